@@ -15,6 +15,8 @@ import java.util.List;
 import java.util.Random;
 
 import core.DTNHost;
+import routing.util.TrafficSignalController;
+import routing.util.TrafficSignalController.Approach;
 
 
 
@@ -69,26 +71,10 @@ public class World {
 	private ArrayList<Coord> lineEW;
 	private ArrayList<Coord> lineNS;
 	private List<DTNHost> neighbors;
-	private double delay;
 
 	private boolean direction;
-	private long delay_time = 100;
-
-
-	private void switchDirection() {
-
-		direction = !direction;
-	}
-
-	private void delay() {
-
-		try {
-    		Thread.sleep(delay_time);
-    	}
-    	catch (InterruptedException e) {
-    		System.out.println("Interrupted");
-    	}
-	}
+	/** times the direction switches in simulation time */
+	private TrafficSignalController signals;
 
 
 	private boolean liesInNS(Coord location) {
@@ -126,6 +112,8 @@ public class World {
 		this.scheduledUpdates = new ScheduledUpdatesQueue();
 		this.isCancelled = false;
 		this.direction = true;
+		this.signals = new TrafficSignalController(
+				new Settings(TrafficSignalController.TRAFFIC_SIGNAL_NS));
 
 		this.lineNS = new ArrayList<Coord>();
 
@@ -166,18 +154,17 @@ public class World {
 		 		System.out.println("Autocar's location: "+ location.getX() + "  and Y: " + location.getY());
 		 	}
 
-       		if (host.toString().equals("Intersection6")) {
-
-       			this.intersection = host;
-       			location = new Coord(157.3598,67.9789);
-       			//location = new Coord(815.291,509.659);
-     			this.intersection.setLocation(location);
-       		}
-
-
-
         }
 
+		int[] controllers = new HostRegistry(hosts).getIndexes(
+				HostRole.intersection);
+		if (controllers.length > 0) {
+			this.intersection = hosts.get(controllers[0]);
+			location = new Coord(157.3598,67.9789);
+			//location = new Coord(815.291,509.659);
+			this.intersection.setLocation(location);
+		}
+
     	//set location for intersection
 		setNextEventQueue();
 		initSettings();
@@ -268,7 +255,7 @@ public class World {
 
 		for(DTNHost host: this.hosts) {
 
-			if(host.toString().equals(this.intersection.toString())) {
+			if(host == this.intersection) {
 				continue;
 			}
 			hostLocation = host.getLocation();
@@ -302,6 +289,12 @@ public class World {
 	public void update () {
 		double runUntil = SimClock.getTime() + this.updateInterval;
 
+		/* north-south has the right of way unless its light is red */
+		if (signals.update(this)) {
+			direction = signals.getColor(Approach.northSouth) !=
+				TrafficSignalController.RED;
+		}
+
 		neighbors = new ArrayList<DTNHost>();
 
 		setNextEventQueue();
@@ -5,20 +5,18 @@
 
 package applications;
 
-import java.util.List;
 import java.util.Random;
 
 import report.PingAppReporter;
 import core.Application;
-import core.Coord;
 import core.DTNHost;
-import core.LineString;
 import core.Message;
+import core.NetworkInterface;
 import core.MovableObject;
 import core.Settings;
 import core.SimClock;
-import core.SimScenario;
-import core.World;
+import core.Trace;
+import core.TraceCategory;
 
 /**
  * Sends out a location update
@@ -26,6 +24,25 @@ import core.World;
 public class LocationUpdateApplication extends Application {
 	/** Don't have any settings right now */
 	public static final String NO_SETTINGS_KEY_S = "no_settings";
+	/**
+	 * Send location updates to the other hosts -setting id ({@value}).
+	 * Boolean, default is false.
+	 */
+	public static final String SEND_UPDATES_S = "sendUpdates";
+	/**
+	 * How often (in updates) a full location update is sent to the same
+	 * host instead of a delta update -setting id ({@value}). Default is
+	 * {@link #DEF_FULL_UPDATE_INTERVAL}.
+	 */
+	public static final String FULL_UPDATE_INTERVAL_S = "fullUpdateInterval";
+	/** default full update interval ({@value}) */
+	public static final int DEF_FULL_UPDATE_INTERVAL = 10;
+	/**
+	 * Radius (meters) around the sender within which the location updates
+	 * are delivered -setting id ({@value}). By default the updates are
+	 * delivered to all connected hosts.
+	 */
+	public static final String GEOCAST_RADIUS_S = "geocastRadius";
 
 	/** Application ID */
 	public static final String APP_ID = "aic.SelfDrivingCarRulesApplication";
@@ -33,20 +50,19 @@ public class LocationUpdateApplication extends Application {
 	// Private vars
 	private boolean futureSetting = false;
 	private Random	rng;
+	private boolean sendUpdates;
+	/** geocast radius or non-positive for broadcast */
+	private double geocastRadius;
+	private LocationUpdateCodec codec;
 
 	// General Message features
 	public static final String EVENT_NAME = "SendLocInfo";
-	public static final int MSG_SIZE = 1;
-	
+
 	// Message Property Keys (and values)
 	public static final String MSG_TYPE_KEY = "type";
 	public static final String MSG_TYPE_VALUE = "loc_update";
-	public static final String CURR_COORD_KEY = "curr_coord";
-	public static final String DEST_COORD_KEY = "dest_coord";
-	public static final String SPEED_KEY = "speed";
-	public static final String INTERVAL_TIME_KEY = "time_interval";
-	public static final String PATH_SIZE_KEY = "path_size";
-	public static final String PATH_ITEM_KEY = "path_";
+	/** the update encoded by {@link LocationUpdateCodec} (byte[]) */
+	public static final String PAYLOAD_KEY = "payload";
 	
 	/**
 	 * Creates a new ping application with the given settings.
@@ -58,6 +74,13 @@ public class LocationUpdateApplication extends Application {
 			this.futureSetting = s.getBoolean(NO_SETTINGS_KEY_S);
 		}
 
+		this.sendUpdates = s.getBoolean(SEND_UPDATES_S, false);
+		this.geocastRadius = s.getDouble(GEOCAST_RADIUS_S, 0);
+		int fullInterval = s.getInt(FULL_UPDATE_INTERVAL_S,
+				DEF_FULL_UPDATE_INTERVAL);
+		s.ensurePositiveValue(fullInterval, FULL_UPDATE_INTERVAL_S);
+		this.codec = new LocationUpdateCodec(fullInterval);
+
 		this.rng = new Random(new java.util.Date().getTime());
 		super.setAppID(APP_ID);
 	}
@@ -69,6 +92,9 @@ public class LocationUpdateApplication extends Application {
 	 */
 	public LocationUpdateApplication(LocationUpdateApplication a) {
 		super(a);
+		this.sendUpdates = a.sendUpdates;
+		this.geocastRadius = a.geocastRadius;
+		this.codec = new LocationUpdateCodec(a.codec.getFullUpdateInterval());
 		this.rng = new Random(new java.util.Date().getTime());
 	}
 
@@ -86,23 +112,15 @@ public class LocationUpdateApplication extends Application {
 			return msg;
 		}
 		
-		Object time_interval = msg.getProperty(INTERVAL_TIME_KEY);
-		core.MovableObject mo = new core.MovableObject(
-			msg.getFrom(),
-			(Coord)msg.getProperty(CURR_COORD_KEY),
-			(Coord)msg.getProperty(DEST_COORD_KEY),
-			(Double)msg.getProperty(SPEED_KEY),
-			(time_interval == null ? 0 : (Double) time_interval),
-			null
-		);
-		Integer pathSize = (Integer)msg.getProperty(PATH_SIZE_KEY);
-		if ((pathSize != null) && (pathSize.intValue() > 0)) {
-			for (int pathIdx = 0, pathSizeMax = pathSize.intValue(); pathIdx < pathSizeMax; pathIdx++) {
-				mo.addToMovePath((LineString)msg.getProperty(PATH_ITEM_KEY + pathIdx));
-			}
+		MovableObject mo = codec.decode(
+				(byte[])msg.getProperty(PAYLOAD_KEY), msg.getFrom());
+		if (mo == null) {
+			return msg; // delta update whose base we didn't get
+		}
+		if (Trace.isOn(TraceCategory.intersection, Trace.DEBUG)) {
+			Trace.log(TraceCategory.intersection, "Received location " +
+					"update :: " + msg + " " + mo);
 		}
-		System.out.println("Received location update :: " + msg.toString());
-		System.out.println(mo);
 		host.addLocUpdateMsg(mo);
 		
 		// Right now we don't need to send a response
@@ -116,43 +134,41 @@ public class LocationUpdateApplication extends Application {
 	}
 
 	/**
-	 * Sends a packet with info about where the host is moving to next
+	 * Broadcasts a packet with info about where the host is moving to next
+	 * to the connected hosts (or to the ones within the geocast radius)
 	 *
 	 * @param host to which the application instance is attached
 	 */
 	@Override
 	public void update(DTNHost host) {
-		/*
-		World w = SimScenario.getInstance().getWorld();
-		int numHosts = w.getNumHosts();
-		for (int hostIdx = 0; hostIdx < numHosts; hostIdx++) {
-			DTNHost recipient = w.getNodeByAddress(hostIdx);
-
-			MovableObject mo = host.getAndRemoveMovableObject();
-			if (mo == null) {
-				break;
-			}
-			Message msg = new Message(host, recipient, MSG_TYPE_VALUE + "_" +
-					SimClock.getIntTime() + "-" + host.getAddress(),
-					MSG_SIZE);
-			msg.addProperty(MSG_TYPE_KEY, MSG_TYPE_VALUE);
-			msg.addProperty(CURR_COORD_KEY, mo.getStartingLoc());
-			msg.addProperty(DEST_COORD_KEY, mo.getEndingLoc()); 
-			msg.addProperty(SPEED_KEY, mo.getSpeed());
-			msg.addProperty(INTERVAL_TIME_KEY, mo.getIntervalTime());
-			if ((mo.getMovePath() != null) && (mo.getMovePath().size() > 0)) {
-				msg.addProperty(PATH_SIZE_KEY, mo.getMovePath().size());
-				for (int pathIdx = 0; pathIdx < mo.getMovePath().size(); pathIdx++) {
-					msg.addProperty(PATH_ITEM_KEY + pathIdx, mo.getMovePath().get(pathIdx)); 
-				}
-			}
-			msg.setAppID(APP_ID);
-			host.createNewMessage(msg);
+		if (!sendUpdates) {
+			return;
+		}
+		MovableObject mo = host.getMovableObject();
+		if (mo == null || !mo.isValid()) {
+			return;
+		}
 
-			// Call listeners
-			super.sendEventToListeners(EVENT_NAME, null, host);
+		/* one frame for all the neighbors, delta encoded against the
+		   previous frame */
+		byte[] payload = codec.encode(mo, LocationUpdateCodec.BROADCAST);
+		Message msg = new Message(host, null, MSG_TYPE_VALUE + "_" +
+				SimClock.getIntTime() + "-" + host.getAddress(),
+				payload.length);
+		msg.addProperty(MSG_TYPE_KEY, MSG_TYPE_VALUE);
+		msg.addProperty(PAYLOAD_KEY, payload);
+		msg.setAppID(APP_ID);
+
+		for (NetworkInterface ni : host.getInterfaces()) {
+			if (geocastRadius > 0) {
+				ni.geocast(msg, host.getLocation(), geocastRadius);
+			} else {
+				ni.broadcast(msg);
+			}
 		}
-		*/
+
+		// Call listeners
+		super.sendEventToListeners(EVENT_NAME, null, host);
 	}
 
 }
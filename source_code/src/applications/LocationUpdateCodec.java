@@ -0,0 +1,274 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package applications;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import core.Coord;
+import core.DTNHost;
+import core.LineString;
+import core.MovableObject;
+
+/**
+ * <P>Binary encoding of location updates. A location update describes the
+ * latest move of a host (see {@link MovableObject}): where the move started
+ * and ended, the speed, the length of the update interval and the roads of
+ * the move as a chain of points.</P>
+ *
+ * <P>A full update has the layout<BR>
+ * <CODE>flags(1) seq(4) startX(8) startY(8) endX(8) endY(8) speed(4)
+ * interval(4) nrofPoints(2) points(16 each)</CODE><BR>
+ * and a delta update, which depends on an earlier update to the same host,
+ * has the layout<BR>
+ * <CODE>flags(1) seq(4) baseSeq(4) dStartX(4) dStartY(4) dEndX(4) dEndY(4)
+ * speed(4) interval(4) [nrofPoints(2) points(16 each)]</CODE><BR>
+ * where the locations are float offsets from the base update's locations and
+ * the points are left out if the roads are the same as in the base update.
+ * Speed and interval are floats in both.</P>
+ *
+ * <P>One codec encodes the updates a host sends and decodes the updates it
+ * receives; it remembers the latest update sent to and received from each
+ * host. Every {@link #getFullUpdateInterval()}th update to a host is a full
+ * update so that a receiver that missed an update recovers.</P>
+ */
+public class LocationUpdateCodec {
+	/** flag of a delta update */
+	public static final int FLAG_DELTA = 1;
+	/** flag of a delta update that has the same roads as its base */
+	public static final int FLAG_SAME_ROADS = 2;
+
+	/** address to use for the updates that are broadcast to all hosts */
+	public static final int BROADCAST = -1;
+	/** largest location offset (meters) encoded in a delta update */
+	public static final double MAX_DELTA = 1000;
+
+	private static final int HEADER_SIZE = 1 + 4;
+	private static final int FULL_SIZE = HEADER_SIZE + 4 * 8 + 4 + 4 + 2;
+	private static final int DELTA_SIZE = HEADER_SIZE + 4 + 4 * 4 + 4 + 4;
+	private static final int POINT_SIZE = 2 * 8;
+
+	private final int fullUpdateInterval;
+	/** latest updates sent, by the address of the receiver */
+	private final Map<Integer, Reference> sent;
+	/** latest updates received, by the address of the sender */
+	private final Map<Integer, Reference> received;
+
+	/**
+	 * Constructor.
+	 * @param fullUpdateInterval How often (in updates) a full update is sent
+	 * to the same host; 1 disables delta updates
+	 */
+	public LocationUpdateCodec(int fullUpdateInterval) {
+		assert fullUpdateInterval > 0 : "Invalid full update interval";
+		this.fullUpdateInterval = fullUpdateInterval;
+		this.sent = new HashMap<Integer, Reference>();
+		this.received = new HashMap<Integer, Reference>();
+	}
+
+	/**
+	 * Returns how often (in updates) a full update is sent to the same host
+	 * @return the full update interval
+	 */
+	public int getFullUpdateInterval() {
+		return this.fullUpdateInterval;
+	}
+
+	/**
+	 * Encodes the move as an update to a host
+	 * @param mo The move
+	 * @param to Address of the host the update is sent to
+	 * @return The encoded update
+	 */
+	public byte[] encode(MovableObject mo, int to) {
+		Reference ref = sent.get(to);
+		if (ref == null) {
+			ref = new Reference();
+			sent.put(to, ref);
+		}
+
+		Coord start = mo.getStartingLoc();
+		Coord end = mo.getEndingLoc();
+		int nrofRoads = mo.getMovePathSize();
+		int nrofPoints = (nrofRoads > 0 ? nrofRoads + 1 : 0);
+		double dsx = start.getX() - ref.startX;
+		double dsy = start.getY() - ref.startY;
+		double dex = end.getX() - ref.endX;
+		double dey = end.getY() - ref.endY;
+
+		boolean delta = ref.seq >= 0 && ref.updatesSinceFull + 1 <
+			fullUpdateInterval && Math.abs(dsx) < MAX_DELTA &&
+			Math.abs(dsy) < MAX_DELTA && Math.abs(dex) < MAX_DELTA &&
+			Math.abs(dey) < MAX_DELTA;
+		boolean sameRoads = delta && ref.hasRoads(mo);
+
+		int size = (delta ? DELTA_SIZE : FULL_SIZE);
+		if (!sameRoads) {
+			size += (delta ? 2 : 0) + nrofPoints * POINT_SIZE;
+		}
+		ByteBuffer buf = ByteBuffer.allocate(size);
+		int seq = ref.seq + 1;
+		buf.put((byte)((delta ? FLAG_DELTA : 0) |
+				(sameRoads ? FLAG_SAME_ROADS : 0)));
+		buf.putInt(seq);
+
+		if (delta) {
+			buf.putInt(ref.seq);
+			/* the reference follows what the receiver decodes */
+			float fsx = (float)dsx, fsy = (float)dsy;
+			float fex = (float)dex, fey = (float)dey;
+			buf.putFloat(fsx).putFloat(fsy).putFloat(fex).putFloat(fey);
+			ref.setLocations(ref.startX + fsx, ref.startY + fsy,
+					ref.endX + fex, ref.endY + fey);
+			ref.updatesSinceFull++;
+		} else {
+			buf.putDouble(start.getX()).putDouble(start.getY());
+			buf.putDouble(end.getX()).putDouble(end.getY());
+			ref.setLocations(start.getX(), start.getY(), end.getX(),
+					end.getY());
+			ref.updatesSinceFull = 0;
+		}
+		buf.putFloat((float)mo.getSpeed());
+		buf.putFloat((float)mo.getIntervalTime());
+
+		if (!sameRoads) {
+			buf.putShort((short)nrofPoints);
+			ref.setRoads(mo);
+			for (int i = 0; i < nrofPoints; i++) {
+				buf.putDouble(ref.points[2 * i]);
+				buf.putDouble(ref.points[2 * i + 1]);
+			}
+		}
+		ref.seq = seq;
+
+		return buf.array();
+	}
+
+	/**
+	 * Decodes an update received from a host
+	 * @param data The encoded update
+	 * @param from The host that sent the update
+	 * @return The move described by the update or null if the update is a
+	 * delta update whose base update wasn't received
+	 */
+	public MovableObject decode(byte[] data, DTNHost from) {
+		ByteBuffer buf = ByteBuffer.wrap(data);
+		int flags = buf.get();
+		int seq = buf.getInt();
+		Reference ref = received.get(from.getAddress());
+
+		if ((flags & FLAG_DELTA) != 0) {
+			int baseSeq = buf.getInt();
+			if (ref == null || ref.seq != baseSeq) {
+				return null;
+			}
+			ref.setLocations(ref.startX + buf.getFloat(),
+					ref.startY + buf.getFloat(), ref.endX + buf.getFloat(),
+					ref.endY + buf.getFloat());
+		} else {
+			if (ref == null) {
+				ref = new Reference();
+				received.put(from.getAddress(), ref);
+			}
+			ref.setLocations(buf.getDouble(), buf.getDouble(),
+					buf.getDouble(), buf.getDouble());
+		}
+		ref.seq = seq;
+		double speed = buf.getFloat();
+		double interval = buf.getFloat();
+
+		if ((flags & FLAG_SAME_ROADS) == 0) {
+			int nrofPoints = buf.getShort();
+			ref.ensureCapacity(nrofPoints);
+			ref.nrofPoints = nrofPoints;
+			for (int i = 0; i < 2 * nrofPoints; i++) {
+				ref.points[i] = buf.getDouble();
+			}
+		}
+
+		MovableObject mo = new MovableObject(from,
+				new Coord(ref.startX, ref.startY),
+				new Coord(ref.endX, ref.endY), speed, interval, null);
+		Coord prev = null;
+		for (int i = 0; i < ref.nrofPoints; i++) {
+			Coord c = new Coord(ref.points[2 * i], ref.points[2 * i + 1]);
+			if (prev != null) {
+				mo.addToMovePath(new LineString(prev, c));
+			}
+			prev = c;
+		}
+		return mo;
+	}
+
+	/**
+	 * Latest update sent to or received from a host
+	 */
+	private static class Reference {
+		private int seq = -1;
+		private int updatesSinceFull;
+		private double startX, startY, endX, endY;
+		/** the roads as a chain of points (x0, y0, x1, y1, ...) */
+		private double[] points = new double[0];
+		private int nrofPoints;
+
+		private void setLocations(double sx, double sy, double ex,
+				double ey) {
+			this.startX = sx;
+			this.startY = sy;
+			this.endX = ex;
+			this.endY = ey;
+		}
+
+		private void ensureCapacity(int n) {
+			if (points.length < 2 * n) {
+				points = new double[2 * n];
+			}
+		}
+
+		/**
+		 * Returns true if the move's roads are the same as the stored ones
+		 */
+		private boolean hasRoads(MovableObject mo) {
+			int n = mo.getMovePathSize();
+			if ((n > 0 ? n + 1 : 0) != nrofPoints) {
+				return false;
+			}
+			for (int i = 0; i < n; i++) {
+				Coord c = mo.getMoveRoadBegin(i);
+				if (c.getX() != points[2 * i] ||
+						c.getY() != points[2 * i + 1]) {
+					return false;
+				}
+			}
+			if (n > 0) {
+				Coord c = mo.getMoveRoadEnd(n - 1);
+				return c.getX() == points[2 * n] &&
+					c.getY() == points[2 * n + 1];
+			}
+			return true;
+		}
+
+		/**
+		 * Stores the move's roads as a chain of points: the beginnings of
+		 * the roads and the end of the last road
+		 */
+		private void setRoads(MovableObject mo) {
+			int n = mo.getMovePathSize();
+			nrofPoints = (n > 0 ? n + 1 : 0);
+			ensureCapacity(nrofPoints);
+			for (int i = 0; i < n; i++) {
+				Coord c = mo.getMoveRoadBegin(i);
+				points[2 * i] = c.getX();
+				points[2 * i + 1] = c.getY();
+			}
+			if (n > 0) {
+				Coord c = mo.getMoveRoadEnd(n - 1);
+				points[2 * n] = c.getX();
+				points[2 * n + 1] = c.getY();
+			}
+		}
+	}
+}
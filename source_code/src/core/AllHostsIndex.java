@@ -0,0 +1,42 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Host index that doesn't do any spatial partitioning; every query returns
+ * all the hosts. Useful as a reference when checking other indexes.
+ */
+public class AllHostsIndex extends HostIndex {
+	private List<DTNHost> hosts;
+
+	/**
+	 * Constructor.
+	 * @param s The settings object (not used)
+	 */
+	public AllHostsIndex(Settings s) {
+		this.hosts = new ArrayList<DTNHost>();
+	}
+
+	@Override
+	public void rebuild(List<DTNHost> hosts) {
+		this.hosts = hosts;
+	}
+
+	@Override
+	public List<DTNHost> getNearHosts(Coord c, double range) {
+		return new ArrayList<DTNHost>(this.hosts);
+	}
+
+	/**
+	 * Returns a string representation of the index
+	 * @return a string representation of the index
+	 */
+	public String toString() {
+		return getClass().getSimpleName() + " of " + hosts.size() + " hosts";
+	}
+}
@@ -28,6 +28,10 @@ public class DTNHost implements Comparable<DTNHost> {
 	private MovementModel movement;
 	private Path path;
 	private double speed;
+	/** speed set by a car following model or negative if there is none */
+	private double actualSpeed = -1;
+	/** the waypoint this host left from towards its destination */
+	private Coord previousWaypoint;
 	private double nextTimeToMove;
 	private String name;
 	private List<MessageListener> msgListeners;
@@ -37,10 +41,19 @@ public class DTNHost implements Comparable<DTNHost> {
 	
 	private boolean active;
 	private GroupTypeEnum groupType;
-	private List<MovableObject> locUpdateMsgsRecd = new java.util.ArrayList<MovableObject>();
+	/** role given in the settings or null */
+	private HostRole role;
+	/** latest location updates from the neighbors; created when needed */
+	private NeighborTable neighbors;
 	private MovableObject mo;
+	/** reused for describing every move of this host */
+	private MovableObject moBuffer;
 	private Coord endOfLastPath = null;
 	private List<Coord> myPath = new ArrayList<Coord>();
+	/** new destinations (and speeds) not yet reported to the movement
+	 * listeners, or null if they are reported immediately */
+	private List<Coord> pendingDestinations = null;
+	private List<Double> pendingSpeeds = null;
 
 	static {
 		DTNSim.registerForReset(DTNHost.class.getCanonicalName());
@@ -224,6 +237,14 @@ public class DTNHost implements Comparable<DTNHost> {
 		return this.location;
 	}
 
+	/**
+	 * Returns the waypoint this host is currently heading to
+	 * @return The current destination or null if the host hasn't got one
+	 */
+	public Coord getDestination() {
+		return this.destination;
+	}
+
 	/**
 	 * Returns the Path this node is currently traveling or null if no
 	 * path is in use at the moment.
@@ -376,59 +397,34 @@ public class DTNHost implements Comparable<DTNHost> {
 		this.router.update();
 		
 		// System.out.println("DTNHost.update :: " + this.name);
-		// Check if this vehicle needs to watch for another vehicle 
-		int DISTANCE_TO_CHECK = 50;
+		// Check if this vehicle needs to watch for another vehicle
 		World w = SimScenario.getInstance().getWorld();
-		int numHosts = w.getNumHosts();
-		for (int hostIdx = 0; hostIdx < numHosts; hostIdx++) {
-			DTNHost other = w.getNodeByAddress(hostIdx);
-			// Don't check if you're going to overrun or T yourself
-			if (this.getAddress() == other.getAddress()) {
-				continue;
-			}
-			
-			System.out.println("this.location.distance(other.location) = " + this.location.distance(other.location));
-			System.out.println("this.mo = " + (this.mo != null ? this.mo : "null"));
-			System.out.println("other.mo = " + (other.mo != null ? other.mo : "null"));
-			System.out.println("");
-			// Check first if we're anywhere near the other car 
-			if (this.location.distance(other.location) < DISTANCE_TO_CHECK) { 
-				if ((this.mo != null) && (other.mo != null) && this.mo.isValid() && other.mo.isValid()) {
-					// Then it's worth checking whether this car is about to overrun the other
-					
-					// Are we in the overlap condition?
-					// if (this.mo.getEndingLoc() == null) this.mo.setEndingLoc(this.mo.getStartingLoc());
-					// if (other.mo.getEndingLoc() == null) other.mo.setEndingLoc(other.mo.getStartingLoc());
-
-					if (this.mo.overlapImminent(other.mo)) {
-						
-						// We're about to run over, slow down.
-						// Slow down by moving the lesser of halfway to the other's starting point
-						// or the end of the first road in the movePath
-						this.location = this.mo.getMovePath().get(0).getCoordOnLineForX(this.mo.getStartingLoc().getX() +
-								(0.5 * (other.mo.getStartingLoc().getX() - this.mo.getStartingLoc().getX())));
-						this.mo.setEndingLoc(this.location.clone());
-						System.out.println(SimClock.getTime() + ": " + this.name + " is about to run over " + other.name);
-						System.out.println("this.mo = " + this.mo);
-						System.out.println("");
-					} else if (this.mo.getMoveLine().intersects(other.mo.getMoveLine()) &&
-							!(other.mo.getStartingLoc().equals(other.mo.getEndingLoc()))) {
-						// We're about to run into, slow down.
-						// Slow down by moving the lesser of halfway to the other's starting point
-						// or the end of the first road in the movePath
-						this.location = this.mo.getMovePath().get(0).getCoordOnLineForX(this.mo.getStartingLoc().getX() +
-								(0.5 * (other.mo.getStartingLoc().getX() - this.mo.getStartingLoc().getX())));
-						this.mo.setEndingLoc(this.location.clone());
-						System.out.println(SimClock.getTime() + ": " + this.name + " is about to run into " + other.name);
-						System.out.println("this.mo = " + this.mo);
-						System.out.println("");
-					} // else: otherwise we don't care
-				}
-			}
-		}
+		w.getCollisionEngine().update(this, w.getHostIndex());
 	}
 	
 
+	/**
+	 * Updates the connectivity optimizer locations of all the interfaces.
+	 * Part of the serial first phase of a two-phase connectivity update.
+	 */
+	public void updateInterfaceLocations() {
+		for (NetworkInterface i : net) {
+			i.updateOptimizerLocation();
+		}
+	}
+
+	/**
+	 * Finds the interfaces within range of this host's interfaces for the
+	 * next {@link #update(boolean)} call. Doesn't change any shared state,
+	 * so it can be run for different hosts in parallel after
+	 * {@link #updateInterfaceLocations()} has been called for all hosts.
+	 */
+	public void findNearInterfaces() {
+		for (NetworkInterface i : net) {
+			i.findNearInterfaces();
+		}
+	}
+
 	/**
 	 * Tears down all connections for this host.
 	 */
@@ -450,6 +446,51 @@ public class DTNHost implements Comparable<DTNHost> {
 		}
 	}
 
+	/**
+	 * Returns the earliest time when this host may need a world update.
+	 * A host that is moving, whose movement model or movement is not
+	 * active, or that is transferring (or could start transferring) a
+	 * message over a connection is busy right now. An idle host waiting for
+	 * its next path isn't busy until it is time to move again.
+	 * @return The simulation time when the host is busy next; the current
+	 * time if it is busy right now
+	 */
+	public double getNextBusyTime() {
+		double now = SimClock.getTime();
+		if (this.path != null || !this.active || !isMovementActive()) {
+			return now;
+		}
+
+		boolean hasMessages = this.router.getNrofMessages() > 0;
+		for (NetworkInterface i : net) {
+			for (Connection con : i.getConnections()) {
+				if (hasMessages || con.isTransferring()) {
+					return now;
+				}
+			}
+		}
+
+		return Math.max(now, this.nextTimeToMove);
+	}
+
+	/**
+	 * Returns the earliest time when updating this host may change its state
+	 * even if it stays idle (see {@link #getNextBusyTime()}): the next
+	 * update time of the router (see
+	 * {@link MessageRouter#getNextUpdateTime()}), or every update if an
+	 * interface may turn on or off over time.
+	 * @return The simulation time of the next update that may change
+	 * something; the current time (or earlier) if every update may do so
+	 */
+	public double getNextUpdateTime() {
+		for (NetworkInterface i : net) {
+			if (i.hasActivenessSchedule()) {
+				return SimClock.getTime();
+			}
+		}
+		return this.router.getNextUpdateTime();
+	}
+
 	/**
 	 * Moves the node towards the next waypoint or waits if it is
 	 * not time to move yet
@@ -458,32 +499,27 @@ public class DTNHost implements Comparable<DTNHost> {
 	public void move(double timeIncrement) {
 		double possibleMovement;
 		double distance;
-		double dx, dy;
 
  		// System.out.println("DTNHost.move(): " + this.name);
 		
-		// Create a MovableObject instance that represents this movement;
-		// Save path as soon as possible
-		MovableObject oldMO = mo;
-		mo = new MovableObject();
-		if (myPath != null) {
-			mo.getFullPath().addAll(myPath);
-		}
-		mo.setHost(this);
-		mo.setIntervalTime(timeIncrement);
-		mo.setStartingLoc(this.location.clone());
-		
 		if (!isMovementActive() || SimClock.getTime() < this.nextTimeToMove || !active) {
-			this.mo = oldMO;
-			return;
+			return; // the latest move stays as it was
+		}
+
+		// Describe this movement with the reused MovableObject;
+		// Save path as soon as possible
+		if (moBuffer == null) {
+			moBuffer = new MovableObject();
 		}
+		mo = moBuffer;
+		mo.beginMove(this, timeIncrement, this.location, myPath);
 		if (this.destination == null) {
 			if (!setNextWaypoint()) {
 				return;
 			}
 		}
 
-		possibleMovement = timeIncrement * speed;
+		possibleMovement = timeIncrement * getActualSpeed();
 		distance = this.location.distance(this.destination);
 
 		while (possibleMovement >= distance) {
@@ -503,38 +539,56 @@ public class DTNHost implements Comparable<DTNHost> {
 
 		// move towards the point for possibleMovement amount
 		if (!(this.destination.equals(this.location))) {
-			dx = (possibleMovement/distance) * (this.destination.getX() -
-					this.location.getX());
-			dy = (possibleMovement/distance) * (this.destination.getY() -
-					this.location.getY());
-			if (this.location.getX() == this.destination.getX()) {
-				// The way the slope is calculated in LineString,
-				// When the X's are equal, getCoordOnLineForX returns a
-				// Y value which is NaN because there is a division by 0
-				this.location.translate(dx, dy);
-		} else {
-				this.location.setLocation(new LineString(this.location, this.destination)
-					.getCoordOnLineForX(this.location.getX() + dx));
-			}
+			double t = possibleMovement / distance;
+			this.location.setLocation(
+					Geometry.lerp(location.getX(), destination.getX(), t),
+					Geometry.lerp(location.getY(), destination.getY(), t));
 		}
-		mo.setEndingLoc(this.location.clone());
-		mo.setSpeed(speed);
-		mo.calculateMovePath();
+		mo.endMove(this.location, getActualSpeed());
  		// System.out.println("DTNHost.move(): " + mo);
 	}
 	
+	/**
+	 * Returns the object describing the latest move of this host
+	 * @return The latest move or null if there is none
+	 */
+	public MovableObject getMovableObject() {
+		return this.mo;
+	}
+
+	/**
+	 * Returns a copy of the latest move of this host and forgets the move
+	 * @return The latest move or null if there is none
+	 */
 	public MovableObject getAndRemoveMovableObject() {
-		MovableObject moClone = this.mo;
+		if (this.mo == null) {
+			return null;
+		}
+		MovableObject moClone = this.mo.copy();
 		this.mo = null;
 		return moClone;
 	}
 	
 	/**
-	 * Add an update message to an internal list to use later
-	 * @param locUpdate The update to add to the internal list
+	 * Stores a location update received from a neighbor. Only the latest
+	 * update of each neighbor is kept (see {@link NeighborTable}).
+	 * @param locUpdate The update; its host is the neighbor that sent it
 	 */
 	public void addLocUpdateMsg(MovableObject locUpdate) {
-		this.locUpdateMsgsRecd.add(locUpdate);
+		getNeighborTable().put(locUpdate.getHost().getAddress(), locUpdate,
+				SimClock.getTime());
+	}
+
+	/**
+	 * Returns the latest location updates received from the neighbors
+	 * @return The neighbor table of this host
+	 */
+	public NeighborTable getNeighborTable() {
+		if (this.neighbors == null) {
+			this.neighbors = new NeighborTable(
+					new Settings(NeighborTable.NEIGHBOR_TABLE_NS));
+		}
+		return this.neighbors;
 	}
 
 	/**
@@ -552,8 +606,7 @@ public class DTNHost implements Comparable<DTNHost> {
 					myPath.add(endOfLastPath);
 				}
 				myPath.addAll(path.getCoords());
-				mo.getFullPath().clear();
-				mo.getFullPath().addAll(myPath);
+				// mo.getFullPath() is myPath
 				endOfLastPath = myPath.get(myPath.size() - 1);
 
 			}
@@ -565,18 +618,61 @@ public class DTNHost implements Comparable<DTNHost> {
 			return false;
 		}
 
+		this.previousWaypoint = (this.destination != null ?
+				this.destination : this.location.clone());
 		this.destination = path.getNextWaypoint();
 		this.speed = path.getSpeed();
 
 		if (this.movListeners != null) {
-			for (MovementListener l : this.movListeners) {
-				l.newDestination(this, this.destination, this.speed);
+			if (this.pendingDestinations != null) {
+				this.pendingDestinations.add(this.destination);
+				this.pendingSpeeds.add(this.speed);
+			} else {
+				for (MovementListener l : this.movListeners) {
+					l.newDestination(this, this.destination, this.speed);
+				}
 			}
 		}
 
 		return true;
 	}
 
+	/**
+	 * Sets whether the movement listeners are informed about new
+	 * destinations immediately or only when {@link #flushMovementEvents()}
+	 * is called. Deferring is needed when hosts are moved in parallel.
+	 * @param defer True if the events should be deferred
+	 */
+	public void setDeferMovementEvents(boolean defer) {
+		flushMovementEvents();
+		if (defer) {
+			this.pendingDestinations = new ArrayList<Coord>();
+			this.pendingSpeeds = new ArrayList<Double>();
+		} else {
+			this.pendingDestinations = null;
+			this.pendingSpeeds = null;
+		}
+	}
+
+	/**
+	 * Informs the movement listeners about the deferred new destinations
+	 * (if any) in the order they were set.
+	 */
+	public void flushMovementEvents() {
+		if (this.pendingDestinations == null ||
+				this.pendingDestinations.isEmpty()) {
+			return;
+		}
+		for (int i=0, n=this.pendingDestinations.size(); i<n; i++) {
+			for (MovementListener l : this.movListeners) {
+				l.newDestination(this, this.pendingDestinations.get(i),
+						this.pendingSpeeds.get(i));
+			}
+		}
+		this.pendingDestinations.clear();
+		this.pendingSpeeds.clear();
+	}
+
 	/**
 	 * Sends a message from this host to another host
 	 * @param id Identifier of the message
@@ -603,6 +699,16 @@ public class DTNHost implements Comparable<DTNHost> {
 		return retVal;
 	}
 
+	/**
+	 * Receives a frame broadcast by another host
+	 * (see {@link NetworkInterface#broadcast(Message)})
+	 * @param m The frame
+	 * @param from Who the frame is from
+	 */
+	public void receiveBroadcast(Message m, DTNHost from) {
+		this.router.receiveBroadcast(m, from);
+	}
+
 	/**
 	 * Requests for deliverable message from this host to be sent trough a
 	 * connection.
@@ -687,6 +793,35 @@ public class DTNHost implements Comparable<DTNHost> {
 		return this.speed;
 	}
 	
+	/**
+	 * Returns the speed this host moves at: the speed set with
+	 * {@link #setActualSpeed(double)} or, if none is set, the speed of the
+	 * current path
+	 * @return the speed this host moves at
+	 */
+	public double getActualSpeed() {
+		return (this.actualSpeed >= 0 ? this.actualSpeed : this.speed);
+	}
+
+	/**
+	 * Sets the speed this host moves at instead of the speed of its path.
+	 * Used by car following models that control the speed.
+	 * @param speed The speed or a negative value to use the path speed
+	 */
+	public void setActualSpeed(double speed) {
+		this.actualSpeed = speed;
+	}
+
+	/**
+	 * Returns the waypoint this host left from towards its current
+	 * destination
+	 * @return the previous waypoint or null if the host hasn't got a
+	 * destination yet
+	 */
+	public Coord getPreviousWaypoint() {
+		return this.previousWaypoint;
+	}
+
 	/**
 	 * Returns the group type of this host
 	 */
@@ -694,6 +829,23 @@ public class DTNHost implements Comparable<DTNHost> {
 		return this.groupType;
 	}
 	
+	/**
+	 * Returns the role of this host given in the settings
+	 * @return The role or null if it wasn't set
+	 * @see HostRegistry#resolveRole(DTNHost)
+	 */
+	public HostRole getRole() {
+		return this.role;
+	}
+
+	/**
+	 * Sets the role of this host
+	 * @param role The role (or null if not known)
+	 */
+	public void setRole(HostRole role) {
+		this.role = role;
+	}
+
 	/**
 	 * Returns true if this host is a self driving car
 	 */
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.awt.geom.Line2D;
+
+/**
+ * Static geometry functions on plain coordinate values. None of the
+ * methods create objects, so they can be used on the per update paths of
+ * the movement and collision code. Segments are given as their end points
+ * (ax, ay) and (bx, by); the parametric position t of a point on a segment
+ * is 0 at a and 1 at b.
+ */
+public final class Geometry {
+
+	private Geometry() { }
+
+	/**
+	 * Returns the squared distance between two points
+	 */
+	public static double distanceSq(double ax, double ay, double bx,
+			double by) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Returns the value at parametric position t between a and b
+	 * @param a Value at t=0
+	 * @param b Value at t=1
+	 * @param t The parametric position
+	 * @return a + t * (b - a)
+	 */
+	public static double lerp(double a, double b, double t) {
+		return a + t * (b - a);
+	}
+
+	/**
+	 * Checks if a point is on the (infinite) line through a and b. The
+	 * tolerance is measured along the axis the line is closest to being
+	 * perpendicular to, i.e., along y for mostly horizontal lines and along x
+	 * for mostly vertical lines, so vertical lines work too.
+	 * @param tolerance Largest allowed distance along the measured axis
+	 * @return True if the point is on the line. Always false if a and b are
+	 * the same point.
+	 */
+	public static boolean onLine(double ax, double ay, double bx, double by,
+			double px, double py, double tolerance) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double cross = dx * (py - ay) - dy * (px - ax);
+		double major = Math.max(Math.abs(dx), Math.abs(dy));
+		return Math.abs(cross) < tolerance * major;
+	}
+
+	/**
+	 * Checks if a point is within the given distance of a segment
+	 * @param tolerance Largest allowed distance from the segment
+	 * @return True if the point is on the segment
+	 */
+	public static boolean onSegment(double ax, double ay, double bx,
+			double by, double px, double py, double tolerance) {
+		return segmentDistanceSq(ax, ay, bx, by, px, py) <=
+			tolerance * tolerance;
+	}
+
+	/**
+	 * Returns the parametric position of a point's projection on the line
+	 * through a and b. The position is not limited to the segment.
+	 * @return The parametric position or 0 if a and b are the same point
+	 */
+	public static double projection(double ax, double ay, double bx,
+			double by, double px, double py) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double len2 = dx * dx + dy * dy;
+		if (len2 == 0) {
+			return 0;
+		}
+		return (dx * (px - ax) + dy * (py - ay)) / len2;
+	}
+
+	/**
+	 * Returns the parametric position of the segment's point that is
+	 * closest to the given point
+	 * @return The parametric position between 0 and 1
+	 */
+	public static double segmentProjection(double ax, double ay, double bx,
+			double by, double px, double py) {
+		double t = projection(ax, ay, bx, by, px, py);
+		return (t < 0 ? 0 : (t > 1 ? 1 : t));
+	}
+
+	/**
+	 * Returns the squared distance from a point to a segment
+	 */
+	public static double segmentDistanceSq(double ax, double ay, double bx,
+			double by, double px, double py) {
+		double t = segmentProjection(ax, ay, bx, by, px, py);
+		return distanceSq(lerp(ax, bx, t), lerp(ay, by, t), px, py);
+	}
+
+	/**
+	 * Checks if two segments intersect (or touch)
+	 * @return True if the segments a-b and c-d intersect
+	 */
+	public static boolean segmentsIntersect(double ax, double ay, double bx,
+			double by, double cx, double cy, double dx, double dy) {
+		return Line2D.linesIntersect(ax, ay, bx, by, cx, cy, dx, dy);
+	}
+
+	/**
+	 * Returns the time of the closest approach of a point moving linearly
+	 * relative to the origin
+	 * @param px Location of the point at time 0
+	 * @param py Location of the point at time 0
+	 * @param vx Velocity of the point
+	 * @param vy Velocity of the point
+	 * @return Time of the closest approach; negative if the point is moving
+	 * away, 0 if it isn't moving
+	 */
+	public static double closestApproachTime(double px, double py, double vx,
+			double vy) {
+		double vv = vx * vx + vy * vy;
+		return (vv == 0 ? 0 : -(px * vx + py * vy) / vv);
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import movement.MovementModel;
+
+/**
+ * <P>Uniform grid over the world where each host is put on a cell depending
+ * on its location. The grid is stored as two flat arrays (cell start offsets
+ * and the hosts sorted by cell) that are rebuilt with a counting sort, so a
+ * rebuild is linear in the number of hosts and doesn't allocate once the
+ * arrays have grown to the number of hosts.</P>
+ *
+ * <P>Locations outside the world's bounds are clamped to the border cells,
+ * so negative coordinates don't break the index but hosts outside the world
+ * end up sharing the border cells.</P>
+ */
+public class GridHostIndex extends HostIndex {
+	/**
+	 * Edge length of a grid cell -setting id ({@value}). Used in
+	 * {@link World#OPTIMIZATION_SETTINGS_NS} name space. Default value is
+	 * {@link #DEF_CELL_SIZE}. Queries with a range up to the cell size check
+	 * only the neighboring cells.
+	 */
+	public static final String CELL_SIZE_S = "hostIndexCellSize";
+	/** default value for the cell size ({@value}) */
+	public static final double DEF_CELL_SIZE = 50;
+
+	private double cellSize;
+	private int rows;
+	private int cols;
+	/** start offset of each cell in {@link #cellHosts}; last is the end */
+	private int[] cellStart;
+	/** fill cursor of each cell during a rebuild */
+	private int[] cellFill;
+	/** cell index of each host in the order the hosts were given */
+	private int[] hostCell;
+	/** hosts sorted by their cell */
+	private DTNHost[] cellHosts;
+	private int nrofHosts;
+
+	/**
+	 * Constructor.
+	 * @param s The settings object where the cell size is read from
+	 */
+	public GridHostIndex(Settings s) {
+		this(readCellSize(s));
+	}
+
+	/**
+	 * Creates an index with the given cell size over the world
+	 * @param cellSize Edge length of a grid cell
+	 */
+	public GridHostIndex(double cellSize) {
+		assert cellSize > 0 : "Non-positive cell size " + cellSize;
+		this.cellSize = cellSize;
+
+		Settings ms = new Settings(MovementModel.MOVEMENT_MODEL_NS);
+		int [] worldSize = ms.getCsvInts(MovementModel.WORLD_SIZE, 2);
+		this.cols = (int)(worldSize[0] / cellSize) + 1;
+		this.rows = (int)(worldSize[1] / cellSize) + 1;
+
+		this.cellStart = new int[rows * cols + 1];
+		this.cellFill = new int[rows * cols];
+		this.hostCell = new int[0];
+		this.cellHosts = new DTNHost[0];
+		this.nrofHosts = 0;
+	}
+
+	/**
+	 * Reads the cell size setting and makes sure it is positive
+	 */
+	private static double readCellSize(Settings s) {
+		double cellSize = s.getDouble(CELL_SIZE_S, DEF_CELL_SIZE);
+		if (cellSize <= 0) {
+			throw new SettingsError("Non-positive value (" + cellSize +
+					") for " + s.getFullPropertyName(CELL_SIZE_S));
+		}
+		return cellSize;
+	}
+
+	@Override
+	public void rebuild(List<DTNHost> hosts) {
+		int n = hosts.size();
+		if (hostCell.length < n) {
+			hostCell = new int[n];
+			cellHosts = new DTNHost[n];
+		}
+		for (int i = nrofHosts; i-- > n; ) {
+			cellHosts[i] = null; /* don't keep removed hosts alive */
+		}
+		this.nrofHosts = n;
+
+		Arrays.fill(cellStart, 0);
+		for (int i=0; i<n; i++) {
+			Coord c = hosts.get(i).getLocation();
+			int cell = row(c.getY()) * cols + col(c.getX());
+			hostCell[i] = cell;
+			cellStart[cell + 1]++;
+		}
+		for (int i=1; i<cellStart.length; i++) {
+			cellStart[i] += cellStart[i-1];
+		}
+		System.arraycopy(cellStart, 0, cellFill, 0, cellFill.length);
+		for (int i=0; i<n; i++) {
+			cellHosts[cellFill[hostCell[i]]++] = hosts.get(i);
+		}
+	}
+
+	@Override
+	public List<DTNHost> getNearHosts(Coord c, double range) {
+		List<DTNHost> near = new ArrayList<DTNHost>();
+		int minRow = row(c.getY() - range);
+		int maxRow = row(c.getY() + range);
+		int minCol = col(c.getX() - range);
+		int maxCol = col(c.getX() + range);
+
+		for (int r = minRow; r <= maxRow; r++) {
+			int first = r * cols + minCol;
+			int last = r * cols + maxCol;
+			/* cells of a row are consecutive in the array */
+			for (int i = cellStart[first], end = cellStart[last + 1];
+					i < end; i++) {
+				near.add(cellHosts[i]);
+			}
+		}
+
+		Collections.sort(near);
+		return near;
+	}
+
+	/**
+	 * Returns the (clamped) row index of an y coordinate
+	 */
+	private int row(double y) {
+		int r = (int)(y / cellSize);
+		return (y < 0 ? 0 : (r >= rows ? rows - 1 : r));
+	}
+
+	/**
+	 * Returns the (clamped) column index of an x coordinate
+	 */
+	private int col(double x) {
+		int c = (int)(x / cellSize);
+		return (x < 0 ? 0 : (c >= cols ? cols - 1 : c));
+	}
+
+	/**
+	 * Returns a string representation of the grid
+	 * @return a string representation of the grid
+	 */
+	public String toString() {
+		return getClass().getSimpleName() + " of size " +
+			this.cols + "x" + this.rows + ", cell size=" + this.cellSize +
+			", hosts=" + this.nrofHosts;
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.List;
+
+/**
+ * A superclass for per-update spatial indexes of host locations. The index
+ * is rebuilt by the {@link World} after every movement round, so the queries
+ * reflect the locations of the hosts at the time of the last rebuild.
+ */
+public abstract class HostIndex {
+
+	/**
+	 * Rebuilds the index from the current locations of the hosts
+	 * @param hosts The hosts to index
+	 */
+	public abstract void rebuild(List<DTNHost> hosts);
+
+	/**
+	 * Finds all hosts that might be within the given range of a location.
+	 * The returned hosts are in the order of their addresses, but the caller
+	 * is responsible for the exact distance check.
+	 * @param c The location
+	 * @param range The range around the location
+	 * @return A list of hosts that may be within the range
+	 */
+	public abstract List<DTNHost> getNearHosts(Coord c, double range);
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <P>Partitions the hosts of the world by their {@link GroupTypeEnum} and
+ * {@link HostRole}. The partitions are arrays of indexes to the host list,
+ * in the order of the list, so the per update loops can go through only the
+ * hosts they are interested in.</P>
+ *
+ * <P>The role of a host is the one given in the group's
+ * {@link SimScenario#ROLE_S} setting, or the role implied by the group type.
+ * If neither is given, the role is guessed once from the host's name using
+ * the old naming conventions: names containing "Intersection" are
+ * intersection controllers and names containing "p" are pedestrians.</P>
+ */
+public class HostRegistry {
+	private final List<DTNHost> hosts;
+	/** role of each host by its index */
+	private final HostRole[] roles;
+	/** host indexes by role ordinal */
+	private final int[][] byRole;
+	/** host indexes by group type ordinal */
+	private final int[][] byType;
+
+	/**
+	 * Creates a registry of the hosts
+	 * @param hosts The hosts; the registry uses indexes to this list
+	 */
+	public HostRegistry(List<DTNHost> hosts) {
+		int n = hosts.size();
+		this.hosts = hosts;
+		this.roles = new HostRole[n];
+
+		int[] roleCounts = new int[HostRole.values().length];
+		int[] typeCounts = new int[GroupTypeEnum.values().length];
+		for (int i=0; i<n; i++) {
+			roles[i] = resolveRole(hosts.get(i));
+			roleCounts[roles[i].ordinal()]++;
+			typeCounts[typeOf(hosts.get(i)).ordinal()]++;
+		}
+
+		this.byRole = new int[roleCounts.length][];
+		for (int r=0; r<roleCounts.length; r++) {
+			byRole[r] = new int[roleCounts[r]];
+			roleCounts[r] = 0;
+		}
+		this.byType = new int[typeCounts.length][];
+		for (int t=0; t<typeCounts.length; t++) {
+			byType[t] = new int[typeCounts[t]];
+			typeCounts[t] = 0;
+		}
+
+		for (int i=0; i<n; i++) {
+			int r = roles[i].ordinal();
+			byRole[r][roleCounts[r]++] = i;
+			int t = typeOf(hosts.get(i)).ordinal();
+			byType[t][typeCounts[t]++] = i;
+		}
+	}
+
+	/**
+	 * Returns the role of a host based on its settings or name
+	 * @param host The host
+	 * @return The role of the host
+	 */
+	public static HostRole resolveRole(DTNHost host) {
+		if (host.getRole() != null) {
+			return host.getRole();
+		}
+		HostRole role = HostRole.forGroupType(host.getGroupType());
+		if (role != null) {
+			return role;
+		}
+
+		/* old naming conventions */
+		String name = host.toString();
+		if (name.contains("Intersection")) {
+			return HostRole.intersection;
+		} else if (name.contains("p")) {
+			return HostRole.pedestrian;
+		}
+		return HostRole.vehicle;
+	}
+
+	private static GroupTypeEnum typeOf(DTNHost host) {
+		GroupTypeEnum type = host.getGroupType();
+		return (type != null ? type : GroupTypeEnum.unknown);
+	}
+
+	/**
+	 * Returns the indexes of the hosts that have the given role. The
+	 * returned array must not be modified.
+	 * @param role The role
+	 * @return Indexes of the hosts in increasing order
+	 */
+	public int[] getIndexes(HostRole role) {
+		return this.byRole[role.ordinal()];
+	}
+
+	/**
+	 * Returns the indexes of the hosts of the given group type. The
+	 * returned array must not be modified.
+	 * @param type The group type
+	 * @return Indexes of the hosts in increasing order
+	 */
+	public int[] getIndexes(GroupTypeEnum type) {
+		return this.byType[type.ordinal()];
+	}
+
+	/**
+	 * Returns the role of the host with the given index
+	 * @param index Index of the host
+	 * @return The role of the host
+	 */
+	public HostRole getRole(int index) {
+		return this.roles[index];
+	}
+
+	/**
+	 * Returns the host with the given index
+	 * @param index Index of the host
+	 * @return The host
+	 */
+	public DTNHost getHost(int index) {
+		return this.hosts.get(index);
+	}
+
+	/**
+	 * Returns the hosts that have the given role
+	 * @param role The role
+	 * @return A new list of the hosts in the order of their indexes
+	 */
+	public List<DTNHost> getHosts(HostRole role) {
+		int[] indexes = getIndexes(role);
+		List<DTNHost> list = new ArrayList<DTNHost>(indexes.length);
+		for (int i : indexes) {
+			list.add(hosts.get(i));
+		}
+		return list;
+	}
+
+	/**
+	 * Returns a string representation of the registry
+	 * @return a string representation of the registry
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder(getClass().getSimpleName());
+		for (HostRole r : HostRole.values()) {
+			sb.append(" " + r + "=" + getIndexes(r).length);
+		}
+		return sb.toString();
+	}
+}
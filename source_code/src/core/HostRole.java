@@ -0,0 +1,40 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * The part a host plays in the traffic scenario.
+ * @see HostRegistry
+ */
+public enum HostRole {
+	/** controls an intersection; never moves */
+	intersection,
+	/** any vehicle on the road */
+	vehicle,
+	/** a pedestrian that vehicles must yield to */
+	pedestrian;
+
+	/**
+	 * Returns the role implied by a group type
+	 * @param type The group type
+	 * @return The role or null if the type doesn't imply one
+	 */
+	public static HostRole forGroupType(GroupTypeEnum type) {
+		if (type == null) {
+			return null;
+		}
+		switch (type) {
+		case pedestrian:
+			return pedestrian;
+		case selfDrivingCar:
+		case manualCar:
+		case bike:
+		case bus:
+			return vehicle;
+		default:
+			return null;
+		}
+	}
+}
@@ -61,18 +61,37 @@ public class LineString implements Comparable<LineString>{
 	}
 	
 	public Coord getCoordOnLineForX(double x) {
-		double y = (x * this.slope) + this.yIntercept;
-		Coord newCoord = new Coord(x, y);
+		Coord newCoord = new Coord(x, 0);
+		getCoordOnLineForX(begin, end, x, newCoord);
+		return newCoord;
+	}
+
+	/**
+	 * Same as {@link #getCoordOnLineForX(double)} for the line from begin to
+	 * end, but sets the result to the given coordinate instead of creating
+	 * a new one. The result may be one of the line's end points.
+	 * @param begin Beginning of the line
+	 * @param end End of the line
+	 * @param x The x coordinate
+	 * @param result The coordinate to set
+	 */
+	public final static void getCoordOnLineForX(Coord begin, Coord end,
+			double x, Coord result) {
+		double slope = (end.getY() - begin.getY()) / (end.getX() - begin.getX());
+		double yIntercept = begin.getY() - (slope * begin.getX());
+		double y = (x * slope) + yIntercept;
 		if (begin.getX() < end.getX()) {
 			if ((x < begin.getX()) || (x > end.getX())) {
-				newCoord.setLocation(end);
+				x = end.getX();
+				y = end.getY();
 			}
 		} else {
 			if ((x < end.getX()) || (x > begin.getX())) {
-				newCoord.setLocation(begin);
+				x = begin.getX();
+				y = begin.getY();
 			}
 		}
-		return newCoord;
+		result.setLocation(x, y);
 	}
 	
 	/**
@@ -106,8 +125,7 @@ public class LineString implements Comparable<LineString>{
 		// if (!isInBoundingBox(point)) {
 		// 	return false;
 		// }
-		double shouldBeY = (this.slope * point.getX()) + this.yIntercept;
-		return (Math.abs(shouldBeY - point.getY()) < EPSILON);
+		return contains(this.begin, this.end, point);
 		/*
 		if (begin.getX() <= end.getX()) {
 			return (begin.getX() <= point.getX()) && (point.getX() <= end.getX());
@@ -136,13 +154,29 @@ public class LineString implements Comparable<LineString>{
 	}
 	*/
 	
+	/**
+	 * Checks if a point is on the line from begin to end without creating
+	 * a LineString; gives the same result as {@link #contains(Coord)}.
+	 * Unlike the line formula, works also for vertical lines.
+	 * @param begin Beginning of the line
+	 * @param end End of the line
+	 * @param point to check
+	 * @return True if the point is on the line
+	 * @see Geometry#onLine(double, double, double, double, double, double,
+	 * double)
+	 */
+	public final static boolean contains(Coord begin, Coord end, Coord point) {
+		return Geometry.onLine(begin.getX(), begin.getY(), end.getX(),
+				end.getY(), point.getX(), point.getY(), EPSILON);
+	}
+
 	/**
 	 * Checks if two lines intersect
 	 * 
 	 */
 	public boolean intersects(LineString other) {
-		return java.awt.geom.Line2D.linesIntersect(
-				begin.getX(), begin.getY(), end.getX(), end.getY(), 
+		return Geometry.segmentsIntersect(
+				begin.getX(), begin.getY(), end.getX(), end.getY(),
 				other.begin.getX(), other.begin.getY(), other.end.getX(), other.end.getY());
 	}
 
@@ -208,7 +242,7 @@ public class LineString implements Comparable<LineString>{
 	 * @return True if the point is on the line defined by begin and end
 	 */
 	public final static boolean isPointOnLine(Coord point, Coord begin, Coord end) {
-		return new LineString(begin, end).contains(point);
+		return contains(begin, end, point);
 	}
 	
 	
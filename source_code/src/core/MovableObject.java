@@ -5,17 +5,35 @@ import java.util.*;
 public class MovableObject {
 
 	private final static String EOLN = System.getProperty("line.separator");
+	/** how far (meters) from a road the ending location may be */
+	private final static double WAYPOINT_TOLERANCE = 0.05;
 	
 	private DTNHost host = null;
 	private Coord startingLoc = null;
 	private Coord endingLoc = null;
+	/** line from the starting to the ending location; created when needed */
 	private LineString moveLine = null;
 	private double speed = 0;
 	private double intervalTime = 0;
 	/** The full path the vehicle is following */
 	private List<Coord> fullPath = new ArrayList<Coord>();
-	/** The path for this time increment */
-	private List<LineString> movePath = new ArrayList<LineString>();
+	/**
+	 * The path for this time increment as a range of the roads of the full
+	 * path: road i goes from fullPath[i] to fullPath[i+1] and the roads
+	 * moveFrom, ..., moveTo - 1 are on the path.
+	 */
+	private int moveFrom = 0;
+	private int moveTo = 0;
+	/**
+	 * The path for this time increment if it was given explicitly, or the
+	 * roads of the range once they have been asked for; null otherwise
+	 */
+	private List<LineString> movePath = null;
+	/** is the move path given explicitly instead of as a range */
+	private boolean explicitMovePath = false;
+	/** locations owned by this object when it is reused by a host */
+	private Coord ownStartingLoc = null;
+	private Coord ownEndingLoc = null;
 
 	public MovableObject() { }
 	
@@ -24,7 +42,6 @@ public class MovableObject {
 		this.host = hostArg;
 		this.startingLoc = startingLocArg;
 		this.endingLoc = endingLocArg;
-		calculateMoveLine();
 		this.speed = speedArg;
 		this.intervalTime = intervalTimeArg;
 		if (fullPathArg != null) {
@@ -32,30 +49,171 @@ public class MovableObject {
 		}
 		calculateMovePath();
 	}
+
+	/**
+	 * Starts describing a new move of a host. Reuses this object and its
+	 * locations instead of creating new ones, so the host can describe all
+	 * its moves with the same object.
+	 * @param hostArg The host that moves
+	 * @param intervalTimeArg Length of the move in time
+	 * @param start Location where the move starts (is copied)
+	 * @param hostPath The path the host is following (is not copied)
+	 */
+	void beginMove(DTNHost hostArg, double intervalTimeArg, Coord start,
+			List<Coord> hostPath) {
+		if (this.ownStartingLoc == null) {
+			this.ownStartingLoc = new Coord(0,0);
+			this.ownEndingLoc = new Coord(0,0);
+		}
+		this.host = hostArg;
+		this.intervalTime = intervalTimeArg;
+		this.ownStartingLoc.setLocation(start);
+		this.startingLoc = this.ownStartingLoc;
+		this.endingLoc = null;
+		this.moveLine = null;
+		this.speed = 0;
+		this.fullPath = hostPath;
+		clearMovePath();
+	}
+
+	/**
+	 * Finishes the description of a move started with
+	 * {@link #beginMove(DTNHost, double, Coord, List)}
+	 * @param end Location where the move ended (is copied)
+	 * @param speedArg Speed of the move
+	 */
+	void endMove(Coord end, double speedArg) {
+		this.ownEndingLoc.setLocation(end);
+		this.endingLoc = this.ownEndingLoc;
+		this.moveLine = null;
+		this.speed = speedArg;
+		calculateMovePath();
+	}
+
+	/**
+	 * Returns a copy of this object that doesn't share any mutable state
+	 * with this object (the coordinates of the full path are shared)
+	 * @return A copy of this object
+	 */
+	public MovableObject copy() {
+		MovableObject c = new MovableObject();
+		c.host = this.host;
+		c.startingLoc = (startingLoc != null ? startingLoc.clone() : null);
+		c.endingLoc = (endingLoc != null ? endingLoc.clone() : null);
+		c.speed = this.speed;
+		c.intervalTime = this.intervalTime;
+		c.fullPath = new ArrayList<Coord>(this.fullPath);
+		c.moveFrom = this.moveFrom;
+		c.moveTo = this.moveTo;
+		c.explicitMovePath = this.explicitMovePath;
+		if (this.explicitMovePath) {
+			c.movePath = new ArrayList<LineString>(this.movePath);
+		}
+		return c;
+	}
+
+	private void clearMovePath() {
+		this.moveFrom = 0;
+		this.moveTo = 0;
+		this.movePath = null;
+		this.explicitMovePath = false;
+	}
 	
 	public void calculateMovePath() {
-		this.movePath.clear();
+		clearMovePath();
 		if (this.fullPath.isEmpty()) {
 			return; // we're in a bad state
 		}
 		int startIdx = 0;
 		while ((startIdx < (this.fullPath.size() - 1)) && 
-			!(new LineString(this.fullPath.get(startIdx), this.fullPath.get(startIdx + 1)).contains(startingLoc))) {
+			!LineString.contains(this.fullPath.get(startIdx), this.fullPath.get(startIdx + 1), startingLoc)) {
 			startIdx++;
 		}
 		if (startIdx == (this.fullPath.size() - 1)) {
 			return;
 		}
-		int endIdx = startIdx;
-		do {
-			this.movePath.add(new LineString(this.fullPath.get(startIdx), this.fullPath.get(startIdx + 1)));
-			endIdx++;
-		} while ((endIdx < (this.fullPath.size() - 1)) && 
-			!(new LineString(this.fullPath.get(startIdx), this.fullPath.get(startIdx + 1)).contains(startingLoc)));
+		// The starting location is on the road at startIdx so the path of
+		// this time increment is that road
+		this.moveFrom = startIdx;
+		this.moveTo = startIdx + 1;
 	}
-	
+
+	/**
+	 * Returns the number of roads on the path of this time increment
+	 * @return the number of roads on the move path
+	 */
+	public int getMovePathSize() {
+		return (explicitMovePath ? movePath.size() : moveTo - moveFrom);
+	}
+
+	/**
+	 * Returns the beginning of a road on the path of this time increment
+	 * @param i Index of the road on the move path
+	 * @return The beginning of the road
+	 */
+	public Coord getMoveRoadBegin(int i) {
+		return (explicitMovePath ? movePath.get(i).getBegin() :
+			fullPath.get(moveFrom + i));
+	}
+
+	/**
+	 * Returns the end of a road on the path of this time increment
+	 * @param i Index of the road on the move path
+	 * @return The end of the road
+	 */
+	public Coord getMoveRoadEnd(int i) {
+		return (explicitMovePath ? movePath.get(i).getEnd() :
+			fullPath.get(moveFrom + i + 1));
+	}
+
+	/**
+	 * Returns the number of known waypoints of the host: the full path it
+	 * is following or, if the move path was given explicitly (e.g. in a
+	 * received location update), the ends of the move path's roads
+	 * @return the number of waypoints
+	 */
+	public int getNrofWaypoints() {
+		if (explicitMovePath) {
+			return (movePath.isEmpty() ? 0 : movePath.size() + 1);
+		}
+		return fullPath.size();
+	}
+
+	/**
+	 * Returns a known waypoint of the host
+	 * @param i Index of the waypoint (see {@link #getNrofWaypoints()})
+	 * @return The waypoint
+	 */
+	public Coord getWaypoint(int i) {
+		if (explicitMovePath) {
+			return (i == 0 ? movePath.get(0).getBegin() :
+				movePath.get(i - 1).getEnd());
+		}
+		return fullPath.get(i);
+	}
+
+	/**
+	 * Returns the index of the waypoint the host is heading to at the
+	 * ending location of this move
+	 * @return Index of the waypoint or {@link #getNrofWaypoints()} if the
+	 * ending location is not on the known waypoints' roads
+	 */
+	public int getNextWaypointIndex() {
+		int n = getNrofWaypoints();
+		for (int i = (explicitMovePath ? 0 : moveFrom); i < n - 1; i++) {
+			Coord a = getWaypoint(i);
+			Coord b = getWaypoint(i + 1);
+			if (Geometry.onSegment(a.getX(), a.getY(), b.getX(), b.getY(),
+					endingLoc.getX(), endingLoc.getY(), WAYPOINT_TOLERANCE)) {
+				return i + 1;
+			}
+		}
+		return n;
+	}
+
 	public boolean overlapImminent(MovableObject moOther) {
-		if ((this.movePath.size() < 1) || (moOther.movePath.size() < 1)) {
+		int mySize = this.getMovePathSize();
+		if ((mySize < 1) || (moOther.getMovePathSize() < 1)) {
 			// One or both of these MovableObjects is in an unstable condition
 			// so don't even try to calculate the overlap
 			return false;
@@ -69,7 +227,7 @@ public class MovableObject {
 		// between its starting and ending location), i.e. one of the following is true:
 		int node2StartingLocPathIdx = -1;
 		// node2.startingLocation is between node1.startingLocation and the end of the first road in node1.movePath 
-		if (new LineString(this.startingLoc, this.movePath.get(0).getEnd()).contains(moOther.startingLoc)) {
+		if (LineString.contains(this.startingLoc, getMoveRoadEnd(0), moOther.startingLoc)) {
 			node2StartingLocPathIdx = 0;
 			/*
 			if (new LineString(moOther.startingLoc, this.movePath.get(0).getEnd()).contains(moOther.endingLoc)) {
@@ -89,8 +247,8 @@ public class MovableObject {
 			}
 			*/
 		// or: node2.startingLocation is between the start of the last road in node1.movePath and node1.endingLocation 
-		} else if (new LineString(this.movePath.get(this.movePath.size() - 1).getBegin(), this.endingLoc).contains(moOther.startingLoc)) {
-			node2StartingLocPathIdx = this.movePath.size() - 1;
+		} else if (LineString.contains(getMoveRoadBegin(mySize - 1), this.endingLoc, moOther.startingLoc)) {
+			node2StartingLocPathIdx = mySize - 1;
 			/*
 			if (new LineString(this.movePath.get(this.movePath.size() - 1).getBegin(), this.endingLoc).contains(moOther.endingLoc)) {
 				return true;
@@ -101,15 +259,15 @@ public class MovableObject {
 		// or: node2.startingLocation is on any road in node1.movePath that is not the first or last road
 		} else {
 			int idx = 1;
-			while ((node2StartingLocPathIdx == -1) && (idx < (this.movePath.size() - 1))) {
-				if (this.movePath.get(idx).contains(moOther.startingLoc)) {
+			while ((node2StartingLocPathIdx == -1) && (idx < (mySize - 1))) {
+				if (LineString.contains(getMoveRoadBegin(idx), getMoveRoadEnd(idx), moOther.startingLoc)) {
 					node2StartingLocPathIdx = idx;
 					break;
 				} else {
 					idx++;
 				}
 			}
-			if ((idx == (this.movePath.size() - 1)) || (node2StartingLocPathIdx == -1)) {
+			if ((idx == (mySize - 1)) || (node2StartingLocPathIdx == -1)) {
 				return false;
 			}
 			/*
@@ -133,14 +291,14 @@ public class MovableObject {
 		// Since paths have a direction, having the same road in both paths indicates 
 		// both nodes are moving in the same direction.
 		// APRIL_TODO: this may not work because sometimes getPath skips a value
-		return (this.movePath.get(node2StartingLocPathIdx).getBegin().equals(moOther.movePath.get(0).getBegin())) ||
-		       (this.movePath.get(node2StartingLocPathIdx).getEnd().equals(moOther.movePath.get(0).getEnd()));
+		return (getMoveRoadBegin(node2StartingLocPathIdx).equals(moOther.getMoveRoadBegin(0))) ||
+		       (getMoveRoadEnd(node2StartingLocPathIdx).equals(moOther.getMoveRoadEnd(0)));
 	}
 	
 	public boolean isValid() {
 		return (this.startingLoc != null) && 
 			   (this.endingLoc != null) &&
-			   !(this.movePath.isEmpty());
+			   (getMovePathSize() > 0);
 	}
 	
 	
@@ -151,14 +309,6 @@ public class MovableObject {
 	public void setHost(DTNHost host) {
 		this.host = host;
 	}
-	
-	private void calculateMoveLine() {
-		if (this.startingLoc != null && this.endingLoc != null) {
-			this.moveLine = new LineString(this.startingLoc, this.endingLoc);
-		} else {
-			this.moveLine = null;
-		}
-	}
 
 	public Coord getStartingLoc() {
 		return startingLoc;
@@ -166,7 +316,7 @@ public class MovableObject {
 
 	public void setStartingLoc(Coord curr) {
 		this.startingLoc = curr;
-		calculateMoveLine();
+		this.moveLine = null;
 	}
 
 	public Coord getEndingLoc() {
@@ -175,7 +325,7 @@ public class MovableObject {
 
 	public void setEndingLoc(Coord dest) {
 		this.endingLoc = dest;
-		calculateMoveLine();
+		this.moveLine = null;
 	}
 
 	public double getSpeed() {
@@ -187,6 +337,10 @@ public class MovableObject {
 	}
 	
 	public LineString getMoveLine() {
+		if (this.moveLine == null && this.startingLoc != null &&
+				this.endingLoc != null) {
+			this.moveLine = new LineString(this.startingLoc, this.endingLoc);
+		}
 		return this.moveLine;
 	}
 
@@ -212,17 +366,31 @@ public class MovableObject {
 		}
 	}
 
+	/**
+	 * Returns the path for this time increment as roads. The roads of a
+	 * calculated move path are created when this is first called.
+	 * @return The roads of the move path
+	 */
 	public List<LineString> getMovePath() {
+		if (this.movePath == null) {
+			this.movePath = new ArrayList<LineString>(moveTo - moveFrom);
+			for (int i = moveFrom; i < moveTo; i++) {
+				this.movePath.add(new LineString(fullPath.get(i),
+						fullPath.get(i + 1)));
+			}
+		}
 		return movePath;
 	}
 
 	public void setMovePath(List<LineString> movePathArg) {
 		this.movePath = movePathArg;
+		this.explicitMovePath = true;
 	}
 
 	public void addToMovePath(LineString newRoad) {
 		if (newRoad != null) {
-			this.movePath.add(newRoad);
+			getMovePath().add(newRoad);
+			this.explicitMovePath = true;
 		}
 	}
 	
@@ -239,8 +407,9 @@ public class MovableObject {
 			sbuf.append("\t").append(coord.toString()).append(EOLN);
 		}
 		sbuf.append("Movement Path = ").append(EOLN);
-		for(LineString ls : movePath) {
-			sbuf.append("\t").append(ls.toString()).append(EOLN);
+		for (int i = 0, n = getMovePathSize(); i < n; i++) {
+			sbuf.append("\t").append(new LineString(getMoveRoadBegin(i),
+					getMoveRoadEnd(i)).toString()).append(EOLN);
 		}
 		return sbuf.toString();
 	}
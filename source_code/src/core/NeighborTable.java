@@ -0,0 +1,200 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.util.Arrays;
+
+/**
+ * The latest location update received from each neighbor of a host. Only
+ * the freshest update of a neighbor is kept and updates older than the
+ * maximum age are treated as missing. The table has a fixed capacity; when
+ * it is full, the expired entries and then the oldest entry make room for
+ * new neighbors. The entries are kept in an open addressing hash table of
+ * primitive arrays keyed by the neighbor's address.
+ */
+public class NeighborTable {
+	/** name space of the neighbor table settings ({@value}) */
+	public static final String NEIGHBOR_TABLE_NS = "NeighborTable";
+	/**
+	 * Maximum number of neighbors in a table -setting id ({@value}).
+	 * Default is {@link #DEF_CAPACITY}.
+	 */
+	public static final String CAPACITY_S = "capacity";
+	/**
+	 * Age (seconds) after which an update is not used anymore -setting id
+	 * ({@value}). Default is {@link #DEF_MAX_AGE}.
+	 */
+	public static final String MAX_AGE_S = "maxAge";
+
+	/** default capacity ({@value}) */
+	public static final int DEF_CAPACITY = 64;
+	/** default maximum age ({@value}) */
+	public static final double DEF_MAX_AGE = 5;
+
+	private static final int EMPTY = -1;
+
+	private final int capacity;
+	private final double maxAge;
+	private final int mask;
+	/** neighbor addresses by slot; {@link #EMPTY} for free slots */
+	private final int[] addresses;
+	/** times of the updates by slot */
+	private final double[] times;
+	/** the updates by slot */
+	private final MovableObject[] updates;
+	private int size;
+
+	/**
+	 * Creates a table based on the settings
+	 * @param s Settings in the {@link #NEIGHBOR_TABLE_NS} name space
+	 */
+	public NeighborTable(Settings s) {
+		this(s.getInt(CAPACITY_S, DEF_CAPACITY),
+				s.getDouble(MAX_AGE_S, DEF_MAX_AGE));
+		s.ensurePositiveValue(capacity, CAPACITY_S);
+		s.ensurePositiveValue(maxAge, MAX_AGE_S);
+	}
+
+	/**
+	 * Constructor.
+	 * @param capacity Maximum number of neighbors
+	 * @param maxAge Age after which an update is not used anymore
+	 */
+	public NeighborTable(int capacity, double maxAge) {
+		this.capacity = capacity;
+		this.maxAge = maxAge;
+		int slots = Integer.highestOneBit(Math.max(capacity, 1)) * 4;
+		this.mask = slots - 1;
+		this.addresses = new int[slots];
+		this.times = new double[slots];
+		this.updates = new MovableObject[slots];
+		Arrays.fill(addresses, EMPTY);
+	}
+
+	/**
+	 * Stores an update of a neighbor unless a fresher one is already stored
+	 * @param address Address of the neighbor
+	 * @param update The update
+	 * @param time Time of the update
+	 */
+	public void put(int address, MovableObject update, double time) {
+		int slot = find(address);
+		if (addresses[slot] == address) {
+			if (time >= times[slot]) {
+				times[slot] = time;
+				updates[slot] = update;
+			}
+			return;
+		}
+
+		if (size == capacity) {
+			expire(time);
+			if (size == capacity) {
+				removeSlot(oldestSlot());
+			}
+			slot = find(address);
+		}
+		addresses[slot] = address;
+		times[slot] = time;
+		updates[slot] = update;
+		size++;
+	}
+
+	/**
+	 * Returns the latest update of a neighbor
+	 * @param address Address of the neighbor
+	 * @param now The current time
+	 * @return The update or null if there is none or it is too old
+	 */
+	public MovableObject get(int address, double now) {
+		int slot = find(address);
+		if (addresses[slot] != address || now - times[slot] > maxAge) {
+			return null;
+		}
+		return updates[slot];
+	}
+
+	/**
+	 * Returns the time of the latest update of a neighbor
+	 * @param address Address of the neighbor
+	 * @return The time of the update or a negative value if there is none
+	 */
+	public double getUpdateTime(int address) {
+		int slot = find(address);
+		return (addresses[slot] == address ? times[slot] : -1);
+	}
+
+	/**
+	 * Removes the updates that are older than the maximum age
+	 * @param now The current time
+	 */
+	public void expire(double now) {
+		for (int slot = 0; slot <= mask; ) {
+			if (addresses[slot] != EMPTY && now - times[slot] > maxAge) {
+				removeSlot(slot); /* may move another entry to this slot */
+			} else {
+				slot++;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of neighbors in the table, including the ones
+	 * whose updates have expired but not removed yet
+	 * @return the number of neighbors in the table
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the slot of the address or the free slot where it belongs
+	 */
+	private int find(int address) {
+		int slot = hash(address);
+		while (addresses[slot] != EMPTY && addresses[slot] != address) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private int hash(int address) {
+		return (address * 0x9E3779B9 >>> 16) & mask;
+	}
+
+	private int oldestSlot() {
+		int oldest = -1;
+		for (int slot = 0; slot <= mask; slot++) {
+			if (addresses[slot] != EMPTY &&
+					(oldest < 0 || times[slot] < times[oldest])) {
+				oldest = slot;
+			}
+		}
+		return oldest;
+	}
+
+	/**
+	 * Empties a slot and moves the following entries of the same probe
+	 * sequence back so that they can still be found
+	 */
+	private void removeSlot(int slot) {
+		int free = slot;
+		int next = (free + 1) & mask;
+		while (addresses[next] != EMPTY) {
+			int home = hash(addresses[next]);
+			/* can the entry at next move to free (is free on its probe path) */
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				addresses[free] = addresses[next];
+				times[free] = times[next];
+				updates[free] = updates[next];
+				free = next;
+			}
+			next = (next + 1) & mask;
+		}
+		addresses[free] = EMPTY;
+		updates[free] = null;
+		size--;
+	}
+}
@@ -8,6 +8,7 @@ import interfaces.ConnectivityGrid;
 import interfaces.ConnectivityOptimizer;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Random;
 
@@ -60,6 +61,9 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	protected double oldTransmitRange;
 	protected int transmitSpeed;
 	protected ConnectivityOptimizer optimizer = null;
+	/** interfaces found within range by {@link #findNearInterfaces()}, or
+	 * null if they should be queried from the optimizer */
+	private List<NetworkInterface> preparedNear = null;
 	/** scanning interval, or 0.0 if n/a */
 	private double scanInterval;
 	private double lastScanTime;
@@ -224,6 +228,14 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		return this.connections;
 	}
 
+	/**
+	 * Returns true if the interface may turn on or off over time
+	 * @return true if the interface has active times or periods
+	 */
+	public boolean hasActivenessSchedule() {
+		return ah != null && !ah.isAlwaysActive();
+	}
+
 	/**
 	 * Returns true if the interface is on at the moment (false if not)
 	 * @return true if the interface is on at the moment (false if not)
@@ -379,6 +391,52 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 		return false;
 	}
 
+	/**
+	 * Delivers a frame to all the hosts this interface is connected to. The
+	 * frame is handed directly to the applications of the receiving hosts
+	 * (see {@link DTNHost#receiveBroadcast(Message, DTNHost)}); unlike the
+	 * messages that the routers transfer, it is not buffered, forwarded or
+	 * reported and it doesn't reserve the connections. All the receivers get
+	 * the same Message object, so they must not modify it.
+	 * @param m The frame to deliver
+	 * @return The number of hosts the frame was delivered to
+	 */
+	public int broadcast(Message m) {
+		return geocast(m, null, 0);
+	}
+
+	/**
+	 * Delivers a frame to the connected hosts that are within the given
+	 * radius of a location. Otherwise works like {@link #broadcast(Message)}.
+	 * @param m The frame to deliver
+	 * @param center Center of the area or null for all connected hosts
+	 * @param radius Radius of the area
+	 * @return The number of hosts the frame was delivered to
+	 */
+	public int geocast(Message m, Coord center, double radius) {
+		if (!isActive()) {
+			return 0;
+		}
+		int delivered = 0;
+		for (int i = 0, n = this.connections.size(); i < n; i++) {
+			Connection con = this.connections.get(i);
+			if (!con.isUp()) {
+				continue;
+			}
+			DTNHost other = con.getOtherNode(this.host);
+			if (center != null) {
+				Coord loc = other.getLocation();
+				if (Geometry.distanceSq(center.getX(), center.getY(),
+						loc.getX(), loc.getY()) > radius * radius) {
+					continue;
+				}
+			}
+			other.receiveBroadcast(m, this.host);
+			delivered++;
+		}
+		return delivered;
+	}
+
 	/**
 	 * Makes sure that a value is positive
 	 * @param value Value to check
@@ -398,6 +456,53 @@ abstract public class NetworkInterface implements ModuleCommunicationListener {
 	 */
 	abstract public void update();
 
+	/**
+	 * Updates the location of this interface in the connectivity optimizer.
+	 * Must be called for all interfaces before any
+	 * {@link #findNearInterfaces()} call of the same update round.
+	 */
+	public void updateOptimizerLocation() {
+		if (optimizer != null) {
+			optimizer.updateLocation(this);
+		}
+	}
+
+	/**
+	 * Finds the interfaces that are within range of this interface and
+	 * stores them for the next {@link #update()} call. Only reads the
+	 * locations and the optimizer, so this can be called for different
+	 * interfaces in parallel once all the optimizer locations are updated.
+	 */
+	public void findNearInterfaces() {
+		if (optimizer == null) {
+			return;
+		}
+		Collection<NetworkInterface> near = optimizer.getNearInterfaces(this);
+		List<NetworkInterface> inRange =
+			new ArrayList<NetworkInterface>(near.size());
+		for (NetworkInterface ni : near) {
+			if (ni != this && isWithinRange(ni)) {
+				inRange.add(ni);
+			}
+		}
+		this.preparedNear = inRange;
+	}
+
+	/**
+	 * Returns the interfaces that are near this interface. If the interfaces
+	 * were already found by {@link #findNearInterfaces()}, those are
+	 * returned (once), otherwise the optimizer is queried.
+	 * @return The near interfaces that may be connected to
+	 */
+	protected Collection<NetworkInterface> getNearInterfaces() {
+		if (this.preparedNear != null) {
+			List<NetworkInterface> near = this.preparedNear;
+			this.preparedNear = null;
+			return near;
+		}
+		return optimizer.getNearInterfaces(this);
+	}
+
 	/**
 	 * Notifies all the connection listeners about a change in connections.
 	 * @param type Type of the change (e.g. {@link #CON_DOWN} )
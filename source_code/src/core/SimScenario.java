@@ -9,10 +9,13 @@ import input.EventQueueHandler;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import movement.CarFollowingModel;
 import movement.MapBasedMovement;
 import movement.MovementModel;
+import movement.map.EdgeOccupancyIndex;
 import movement.map.SimMap;
 import routing.MessageRouter;
 
@@ -85,6 +88,13 @@ public class SimScenario implements Serializable {
 	/** setting name for group type */
 	private static final String GROUP_TYPE_S = "groupType";
 
+	/**
+	 * Role of the group's hosts -setting id ({@value}). One of the
+	 * {@link HostRole} names. If not given, the role is derived from the
+	 * group type (see {@link HostRegistry}).
+	 */
+	public static final String ROLE_S = "role";
+
 	/** The world instance */
 	private World world;
 	/** List of hosts in this simulation */
@@ -162,11 +172,25 @@ public class SimScenario implements Serializable {
 		this.worldSizeX = worldSize[0];
 		this.worldSizeY = worldSize[1];
 
+		/* the occupancy index must see the hosts' initial locations; the
+		 * car following model finds the leaders from it */
+		EdgeOccupancyIndex edgeOccupancy = null;
+		s.setNameSpace(CarFollowingModel.CAR_FOLLOWING_NS);
+		boolean carFollowing = s.getBoolean(CarFollowingModel.ENABLED_S,
+				false);
+		s.setNameSpace(World.OPTIMIZATION_SETTINGS_NS);
+		if (carFollowing ||
+				s.getBoolean(World.EDGE_OCCUPANCY_INDEX_S, false)) {
+			edgeOccupancy = new EdgeOccupancyIndex();
+			this.movementListeners.add(edgeOccupancy);
+		}
+
 		createHosts();
 
 		this.world = new World(hosts, worldSizeX, worldSizeY, updateInterval,
 				updateListeners, simulateConnections,
 				eqHandler.getEventQueues());
+		world.setEdgeOccupancyIndex(edgeOccupancy);
 	}
 
 	/**
@@ -393,6 +417,17 @@ public class SimScenario implements Serializable {
 			}
 			
 			GroupTypeEnum groupType = GroupTypeEnum.valueOf(s.getSetting(GROUP_TYPE_S, "unknown"));
+			HostRole role = null;
+			if (s.contains(ROLE_S)) {
+				try {
+					role = HostRole.valueOf(s.getSetting(ROLE_S));
+				} catch (IllegalArgumentException e) {
+					throw new SettingsError("Invalid value '" +
+							s.getSetting(ROLE_S) + "' for " +
+							s.getFullPropertyName(ROLE_S) + ". Valid roles " +
+							"are " + Arrays.toString(HostRole.values()));
+				}
+			}
 
 			// creates hosts of ith group
 			for (int j=0; j<nrofHosts; j++) {
@@ -403,6 +438,7 @@ public class SimScenario implements Serializable {
 				DTNHost host = new DTNHost(this.messageListeners,
 						this.movementListeners,	gid, interfaces, comBus,
 						mmProto, mRouterProto, groupType);
+				host.setRole(role);
 				hosts.add(host);
 			}
 		}
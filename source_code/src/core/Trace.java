@@ -0,0 +1,208 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <P>Trace output of the simulation internals by {@link TraceCategory}.
+ * Unlike {@link Debug}, this is meant to be left in the code: the callers
+ * check {@link #isOn(TraceCategory, int)} before building the trace text,
+ * so tracing costs only an array lookup when it is disabled.</P>
+ *
+ * <P>Usage:</P>
+ * <PRE>
+ * if (Trace.isOn(TraceCategory.collision, Trace.DEBUG)) {
+ *     Trace.log(TraceCategory.collision, host + " near " + other);
+ * }
+ * </PRE>
+ *
+ * <P>The lines are prefixed with the simulation time and the category.
+ * If a trace file is given, the lines are written to it by a background
+ * thread so the simulation doesn't wait for the disk. Otherwise the lines
+ * are printed to the standard output.</P>
+ */
+public class Trace {
+	/** name space of the trace settings ({@value}) */
+	public static final String TRACE_NS = "Trace";
+	/**
+	 * Highest level of messages that are traced -setting id ({@value}).
+	 * Integer value; {@link #OFF} (the default) disables tracing,
+	 * {@link #INFO} traces the important events and {@link #DEBUG} also the
+	 * per update details.
+	 */
+	public static final String LEVEL_S = "level";
+	/**
+	 * Traced categories -setting id ({@value}). Comma separated list of
+	 * {@link TraceCategory} names. Default is all categories.
+	 */
+	public static final String CATEGORIES_S = "categories";
+	/**
+	 * Trace output file -setting id ({@value}). If not given, the trace is
+	 * printed to the standard output.
+	 */
+	public static final String FILE_S = "file";
+
+	/** trace level that disables all tracing ({@value}) */
+	public static final int OFF = 0;
+	/** level of the important events, e.g. detected conflicts ({@value}) */
+	public static final int INFO = 1;
+	/** level of the details traced on every update ({@value}) */
+	public static final int DEBUG = 2;
+
+	/** highest traced level of each category (indexed by ordinal) */
+	private static int[] levels;
+	private static PrintStream out;
+	private static TraceWriter writer;
+
+	static {
+		DTNSim.registerForReset(Trace.class.getCanonicalName());
+		reset();
+	}
+
+	/**
+	 * Closes the trace output and disables tracing
+	 */
+	public static void reset() {
+		close();
+		levels = new int[TraceCategory.values().length];
+		out = System.out;
+	}
+
+	/**
+	 * Initializes tracing based on the settings. Any previously opened
+	 * trace file is closed.
+	 * @param s The settings object in the {@link #TRACE_NS} name space
+	 */
+	public static void init(Settings s) {
+		reset();
+		int level = s.getInt(LEVEL_S, OFF);
+		if (level <= OFF) {
+			return;
+		}
+
+		if (s.contains(CATEGORIES_S)) {
+			for (String name : s.getCsvSetting(CATEGORIES_S)) {
+				try {
+					levels[TraceCategory.valueOf(name.trim()).ordinal()] =
+						level;
+				} catch (IllegalArgumentException e) {
+					throw new SettingsError("Unknown trace category '" +
+							name + "' for setting " +
+							s.getFullPropertyName(CATEGORIES_S));
+				}
+			}
+		} else {
+			Arrays.fill(levels, level);
+		}
+
+		if (s.contains(FILE_S)) {
+			String fileName = s.getSetting(FILE_S);
+			try {
+				writer = new TraceWriter(new BufferedWriter(
+						new FileWriter(fileName)));
+			} catch (IOException e) {
+				throw new SettingsError("Can't open trace file '" +
+						fileName + "': " + e.getMessage());
+			}
+			writer.start();
+		}
+	}
+
+	/**
+	 * Returns true if messages of the given category and level are traced.
+	 * Call this before building the message text.
+	 * @param category Category of the message
+	 * @param level Level of the message
+	 * @return True if the message should be traced
+	 */
+	public static boolean isOn(TraceCategory category, int level) {
+		return level <= levels[category.ordinal()];
+	}
+
+	/**
+	 * Traces a message. The message is not checked against the trace
+	 * level; use {@link #isOn(TraceCategory, int)} first. Can be called
+	 * from several threads.
+	 * @param category Category of the message
+	 * @param txt The message
+	 */
+	public static void log(TraceCategory category, String txt) {
+		String line = SimClock.getFormattedTime(2) + " " + category + ": " +
+			txt;
+		TraceWriter w = writer;
+		if (w != null) {
+			w.add(line);
+		} else {
+			out.println(line);
+		}
+	}
+
+	/**
+	 * Writes out all the traced messages and closes the trace file (if any)
+	 */
+	public static void close() {
+		TraceWriter w = writer;
+		writer = null;
+		if (w != null) {
+			w.finish();
+		}
+	}
+
+	/**
+	 * Background thread that writes the queued trace lines to a file
+	 */
+	private static class TraceWriter extends Thread {
+		/** queued item that marks the end of the trace */
+		private static final String END = new String("END");
+		private final BlockingQueue<String> queue;
+		private final BufferedWriter fileOut;
+
+		private TraceWriter(BufferedWriter fileOut) {
+			super("TraceWriter");
+			this.queue = new LinkedBlockingQueue<String>();
+			this.fileOut = fileOut;
+			setDaemon(true);
+		}
+
+		private void add(String line) {
+			queue.add(line);
+		}
+
+		/**
+		 * Writes the queued lines, closes the file and waits until done
+		 */
+		private void finish() {
+			queue.add(END);
+			try {
+				join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				for (String line = queue.take(); line != END;
+						line = queue.take()) {
+					fileOut.write(line);
+					fileOut.newLine();
+				}
+				fileOut.close();
+			} catch (IOException e) {
+				System.err.println("Writing the trace failed: " + e);
+			} catch (InterruptedException e) {
+				/* stop tracing */
+			}
+		}
+	}
+}
@@ -0,0 +1,19 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core;
+
+/**
+ * Categories of the trace output. The names are used in the
+ * {@link Trace#CATEGORIES_S} setting.
+ * @see Trace
+ */
+public enum TraceCategory {
+	/** conflicts between the moves of the hosts */
+	collision,
+	/** movement of the hosts */
+	movement,
+	/** intersection control and the location updates it receives */
+	intersection
+}
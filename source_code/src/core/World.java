@@ -4,14 +4,20 @@
  */
 package core;
 
+import core.collision.CollisionEngine;
+import core.collision.PedestrianYield;
 import input.EventQueue;
 import input.ExternalEvent;
 import input.ScheduledUpdatesQueue;
+import movement.CarFollowingModel;
+import movement.map.EdgeOccupancyIndex;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * World contains all the nodes and is responsible for updating their
@@ -37,6 +43,73 @@ public class World {
 	 */
 	public static final String SIMULATE_CON_ONCE_S = "simulateConnectionsOnce";
 
+	/**
+	 * Class of the spatial host index -setting id ({@value}). Name of a
+	 * {@link HostIndex} subclass in the core package. Default is
+	 * {@link #DEF_HOST_INDEX}.
+	 */
+	public static final String HOST_INDEX_S = "hostIndex";
+	/** default host index class ({@value}) */
+	public static final String DEF_HOST_INDEX = "GridHostIndex";
+
+	/**
+	 * Should the hosts be moved in parallel -setting id ({@value}). Boolean
+	 * (true/false) variable. Each host's move only changes the host itself,
+	 * so the hosts are split among the worker threads. When enabled, the
+	 * movement models use per host random number streams by default (see
+	 * {@link movement.MovementModel#PER_HOST_RNG_S}) so the results are the
+	 * same as in a serial run with per host streams. Movement models that
+	 * coordinate through shared (static) state, e.g. bus control systems or
+	 * external movement, must not be used with this. Default is false.
+	 */
+	public static final String PARALLEL_MOVEMENT_S = "parallelMovement";
+
+	/**
+	 * Number of worker threads for the parallel update phases -setting id
+	 * ({@value}). Default is the number of available processors.
+	 */
+	public static final String NROF_THREADS_S = "nrofThreads";
+
+	/**
+	 * Should the connectivity be updated in two phases -setting id
+	 * ({@value}). Boolean (true/false) variable. When enabled, the range
+	 * checks against the near interfaces are done in parallel for all hosts
+	 * first, using the locations of the hosts after the move. The found
+	 * interfaces are then connected and the connections out of range torn
+	 * down in the normal serial host update, so the order of the connection
+	 * events stays the same from run to run. Default is false.
+	 */
+	public static final String PARALLEL_CONNECTIVITY_S =
+		"parallelConnectivity";
+
+	/**
+	 * Should the update intervals where nothing can happen be skipped
+	 * -setting id ({@value}). Boolean (true/false) variable. When all hosts
+	 * are waiting for their next path and no messages can be transferred,
+	 * the clock is advanced in update interval steps up to the interval
+	 * where the next host becomes busy or the next event is due, without
+	 * moving or updating the hosts in between. Hosts whose routers or
+	 * applications may act on their own (e.g. TTL checks) or whose
+	 * interfaces turn on and off by a schedule stop the skipping, so the
+	 * results are the same as without it. Update listeners are not called
+	 * for the skipped intervals. Default is false.
+	 */
+	public static final String SKIP_IDLE_INTERVALS_S = "skipIdleIntervals";
+
+	/**
+	 * Should the hosts on each map edge be kept in an
+	 * {@link EdgeOccupancyIndex} -setting id ({@value}). Boolean
+	 * (true/false) variable. The index is always kept when the
+	 * {@link CarFollowingModel} is enabled. Default is false.
+	 */
+	public static final String EDGE_OCCUPANCY_INDEX_S = "edgeOccupancyIndex";
+
+	/** How many hosts one parallel task processes at most */
+	private static final int HOST_TASK_SIZE = 64;
+
+	/** package where to look for host index classes */
+	private static final String HOST_INDEX_PACKAGE = "core.";
+
 	private int sizeX;
 	private int sizeY;
 	private List<EventQueue> eventQueues;
@@ -56,11 +129,34 @@ public class World {
 	/** Queue of scheduled update requests */
 	private ScheduledUpdatesQueue scheduledUpdates;
 	private boolean simulateConOnce;
-
-
+	/** Spatial index of host locations, rebuilt after every move */
+	private HostIndex hostIndex;
+	/** Checks the hosts' moves for conflicts with nearby hosts */
+	private CollisionEngine collisionEngine;
+	/** Stops the vehicles that are about to drive into pedestrians */
+	private PedestrianYield pedestrianYield;
+	/** Controls the speeds of the cars or null if it isn't enabled */
+	private CarFollowingModel carFollowing;
+	/** the cars whose speeds the car following model controls */
+	private List<DTNHost> cars;
+	/** The hosts on each map edge or null if not enabled */
+	private EdgeOccupancyIndex edgeOccupancy;
+	/** Worker threads for the parallel phases or null if all is serial */
+	private ForkJoinPool workerPool;
+	private boolean parallelMovement;
+	private boolean parallelConnectivity;
+	private boolean skipIdleIntervals;
+	/** end time of the scenario; no intervals are skipped past this */
+	private double endTime;
+	/** which hosts are moved (i.e., aren't intersection controllers) */
+	private boolean[] moving;
+	/** indexes of the hosts that are moved */
+	private int[] movers;
+
+	/** the hosts partitioned by group type and role */
+	private HostRegistry registry;
 	private DTNHost intersection;
 	private List<DTNHost> pedestrians;
-	private Coord location;
 
 
 	/**
@@ -81,23 +177,22 @@ public class World {
 		this.scheduledUpdates = new ScheduledUpdatesQueue();
 		this.isCancelled = false;
 
-		pedestrians = new ArrayList<DTNHost> ();
-
-		for (DTNHost host: hosts) {
-
-			if (host.toString().equals("Intersection8")) {
-       	 		this.intersection = host;
-       	 		location = new Coord(750,450);
-     			this.intersection.setLocation(location);
-       		}
-
-       		if(host.toString().contains("p")) {
-
-       			pedestrians.add(host);
-       		}
-
-
-       	}
+		this.registry = new HostRegistry(hosts);
+		int[] controllers = registry.getIndexes(HostRole.intersection);
+		if (controllers.length > 0) {
+			this.intersection = hosts.get(controllers[0]);
+			this.intersection.setLocation(new Coord(750,450));
+		}
+		this.pedestrians = registry.getHosts(HostRole.pedestrian);
+
+		this.moving = new boolean[hosts.size()];
+		this.movers = new int[hosts.size() - controllers.length];
+		for (int i=0, m=0, n = hosts.size(); i<n; i++) {
+			if (registry.getRole(i) != HostRole.intersection) {
+				moving[i] = true;
+				movers[m++] = i;
+			}
+		}
 
 		setNextEventQueue();
 		initSettings();
@@ -122,6 +217,51 @@ public class World {
 		else { // null pointer means "don't randomize"
 			this.updateOrder = null;
 		}
+
+		Trace.init(new Settings(Trace.TRACE_NS));
+
+		this.hostIndex = (HostIndex)s.createIntializedObject(
+				HOST_INDEX_PACKAGE + s.getSetting(HOST_INDEX_S, DEF_HOST_INDEX));
+		this.hostIndex.rebuild(this.hosts);
+
+		Settings cs = new Settings(CollisionEngine.COLLISION_NS);
+		this.collisionEngine = new CollisionEngine(cs);
+		this.pedestrianYield = new PedestrianYield(cs, pedestrians);
+
+		Settings fs = new Settings(CarFollowingModel.CAR_FOLLOWING_NS);
+		if (fs.getBoolean(CarFollowingModel.ENABLED_S, false)) {
+			this.carFollowing = new CarFollowingModel(fs);
+			this.cars = new ArrayList<DTNHost>();
+			for (GroupTypeEnum type : new GroupTypeEnum[] {
+					GroupTypeEnum.selfDrivingCar, GroupTypeEnum.manualCar}) {
+				for (int i : registry.getIndexes(type)) {
+					DTNHost car = hosts.get(i);
+					car.setActualSpeed(0);
+					cars.add(car);
+				}
+			}
+		}
+
+		this.parallelMovement = s.getBoolean(PARALLEL_MOVEMENT_S, false);
+		this.parallelConnectivity = s.getBoolean(PARALLEL_CONNECTIVITY_S,
+				false);
+		if (parallelMovement || parallelConnectivity) {
+			int nrofThreads = s.getInt(NROF_THREADS_S,
+					Runtime.getRuntime().availableProcessors());
+			s.ensurePositiveValue(nrofThreads, NROF_THREADS_S);
+			this.workerPool = new ForkJoinPool(Math.max(nrofThreads, 1));
+		}
+		if (parallelMovement) {
+			for (DTNHost host : hosts) {
+				host.setDeferMovementEvents(true);
+			}
+		}
+
+		this.skipIdleIntervals = s.getBoolean(SKIP_IDLE_INTERVALS_S, false);
+		if (skipIdleIntervals) {
+			this.endTime = new Settings(SimScenario.SCENARIO_NS).getDouble(
+					SimScenario.END_TIME_S);
+		}
 	}
 
 	/**
@@ -144,6 +284,7 @@ public class World {
 
 		moveHosts(finalStep);
 		simClock.setTime(0);
+		hostIndex.rebuild(hosts);
 	}
 
 	/**
@@ -172,10 +313,14 @@ public class World {
 	 * this method is called and after one update interval.
 	 */
 	public void update () {
-		double runUntil = SimClock.getTime() + this.updateInterval;
-
 		setNextEventQueue();
 
+		if (skipIdleIntervals) {
+			skipIdleIntervals();
+		}
+
+		double runUntil = SimClock.getTime() + this.updateInterval;
+
 		/* process all events that are due until next interval update */
 		while (this.nextQueueEventTime <= runUntil) {
 			simClock.setTime(this.nextQueueEventTime);
@@ -185,7 +330,10 @@ public class World {
 			setNextEventQueue();
 		}
 
+		/* the index still has the locations from before the move */
+		collisionEngine.predict(hosts, hostIndex);
 		moveHosts(this.updateInterval);
+		hostIndex.rebuild(hosts);
 		simClock.setTime(runUntil);
 
 		updateHosts();
@@ -196,12 +344,56 @@ public class World {
 		}
 	}
 
+	/**
+	 * Advances the clock over the update intervals where all hosts are idle
+	 * and no events or host updates that could change something (see
+	 * {@link DTNHost#getNextUpdateTime()}) are due. The clock is advanced
+	 * by update interval steps
+	 * so that the times of the following updates are exactly the same as if
+	 * no intervals were skipped. The randomized update order is shuffled
+	 * for every skipped interval too, so the order of the following updates
+	 * doesn't change either.
+	 */
+	private void skipIdleIntervals() {
+		double time = SimClock.getTime();
+		double nextBusy = Double.MAX_VALUE;
+		double nextUpdate = Double.MAX_VALUE;
+		for (int i=0, n = hosts.size(); i < n; i++) {
+			DTNHost host = hosts.get(i);
+			nextBusy = Math.min(nextBusy, host.getNextBusyTime());
+			nextUpdate = Math.min(nextUpdate, host.getNextUpdateTime());
+			if (nextBusy <= time || nextUpdate <= time + updateInterval) {
+				return; /* someone is busy in this interval */
+			}
+		}
+
+		while (time < nextBusy &&
+				time + updateInterval < nextUpdate &&
+				time + updateInterval < this.nextQueueEventTime &&
+				time + updateInterval < this.endTime) {
+			time += updateInterval;
+			if (this.updateOrder != null) {
+				Collections.shuffle(this.updateOrder,
+						new Random((int)Math.round(time)));
+			}
+		}
+		simClock.setTime(time);
+	}
+
 	/**
 	 * Updates all hosts (calls update for every one of them). If update
 	 * order randomizing is on (updateOrder array is defined), the calls
 	 * are made in random order.
 	 */
 	private void updateHosts() {
+		if (parallelConnectivity && simulateConnections) {
+			/* locations first so that all range checks see the same grid */
+			for (int i=0, n = hosts.size(); i < n; i++) {
+				hosts.get(i).updateInterfaceLocations();
+			}
+			workerPool.invoke(new ConnectivityTask(0, hosts.size()));
+		}
+
 		if (this.updateOrder == null) { // randomizing is off
 			for (int i=0, n = hosts.size();i < n; i++) {
 				if (this.isCancelled) {
@@ -235,33 +427,136 @@ public class World {
 	 * @param timeIncrement The time how long all nodes should move
 	 */
 	private void moveHosts(double timeIncrement) {
-		for (int i=0,n = hosts.size(); i<n; i++) {
-			DTNHost host = hosts.get(i);
+		pedestrianYield.update();
 
-			String hostname = host.toString();
+		for (int k=0; k<movers.length; k++) {
+			DTNHost host = hosts.get(movers[k]);
 
-			if (hostname.contains("Intersection"))
-				continue;
+			if (pedestrianYield.mustYield(host)) {
+				if (Trace.isOn(TraceCategory.movement, Trace.DEBUG)) {
+					Trace.log(TraceCategory.movement, "Host " + host +
+							" slowing down...");
+				}
 
-			location = host.getLocation();
+				//host needs to slow down and stop
+				host.setActive(false);
+			}
+		}
 
-			for(DTNHost person : pedestrians) {
+		if (carFollowing != null) {
+			/* all speeds are set before any car moves */
+			carFollowing.update(cars, edgeOccupancy, timeIncrement);
+		}
 
-				Coord pedLoc = person.getLocation();
+		/* the hosts move only after all of them have been checked so that
+		 * the serial and parallel runs see the same pedestrian locations */
+		if (!parallelMovement) {
+			for (int k=0; k<movers.length; k++) {
+				DTNHost host = hosts.get(movers[k]);
+				host.move(timeIncrement);
+				host.setActive(true);
+			}
+		}
 
-				if (host.compareTo(person)<3 && !pedestrians.contains(host)) {
+		if (parallelMovement) {
+			workerPool.invoke(new MoveTask(0, hosts.size(), timeIncrement));
+			/* report the moves serially and in the order of the hosts */
+			for (int k=0; k<movers.length; k++) {
+				DTNHost host = hosts.get(movers[k]);
+				host.flushMovementEvents();
+				host.setActive(true);
+			}
+		}
 
-				// if (location.distance(pedLoc)<50) {
+		if (edgeOccupancy != null) {
+			edgeOccupancy.reorder();
+		}
+	}
 
-					System.out.println("Host " + host.toString() +" slowing down...");
+	/**
+	 * Does something to a range of hosts in the worker pool; splits itself
+	 * until the range is small enough.
+	 */
+	@SuppressWarnings("serial")
+	private abstract class HostRangeTask extends RecursiveAction {
+		protected final int from;
+		protected final int to;
+
+		/**
+		 * Creates a task for hosts whose index is in [from, to)
+		 */
+		public HostRangeTask(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
 
-					//host needs to slow down and stop
-					host.setActive(false);
+		@Override
+		protected void compute() {
+			if (to - from <= HOST_TASK_SIZE) {
+				for (int i=from; i<to; i++) {
+					process(hosts.get(i), i);
 				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(subtask(from, mid), subtask(mid, to));
+			}
+		}
+
+		/**
+		 * Processes a single host
+		 * @param host The host
+		 * @param i Index of the host
+		 */
+		protected abstract void process(DTNHost host, int i);
+
+		/**
+		 * Creates a task of the same kind for a sub range
+		 */
+		protected abstract HostRangeTask subtask(int from, int to);
+	}
+
+	/**
+	 * Moves the hosts that are marked as moving in this round
+	 */
+	@SuppressWarnings("serial")
+	private class MoveTask extends HostRangeTask {
+		private final double timeIncrement;
+
+		public MoveTask(int from, int to, double timeIncrement) {
+			super(from, to);
+			this.timeIncrement = timeIncrement;
+		}
 
+		@Override
+		protected void process(DTNHost host, int i) {
+			if (moving[i]) {
+				host.move(timeIncrement);
 			}
-			host.move(timeIncrement);
-			host.setActive(true);			
+		}
+
+		@Override
+		protected HostRangeTask subtask(int from, int to) {
+			return new MoveTask(from, to, timeIncrement);
+		}
+	}
+
+	/**
+	 * Finds the interfaces within range of each host's interfaces
+	 */
+	@SuppressWarnings("serial")
+	private class ConnectivityTask extends HostRangeTask {
+		public ConnectivityTask(int from, int to) {
+			super(from, to);
+		}
+
+		@Override
+		protected void process(DTNHost host, int i) {
+			host.findNearInterfaces();
+		}
+
+		@Override
+		protected HostRangeTask subtask(int from, int to) {
+			return new ConnectivityTask(from, to);
 		}
 	}
 
@@ -288,6 +583,51 @@ public class World {
 		return this.hosts.size();
 	}
 
+	/**
+	 * Returns the spatial index of the hosts' locations. The index reflects
+	 * the locations after the latest movement round.
+	 * @return the spatial index of the hosts
+	 */
+	public HostIndex getHostIndex() {
+		return this.hostIndex;
+	}
+
+	/**
+	 * Returns the index of the hosts on each map edge. The index is updated
+	 * when the hosts cross waypoints and reordered after every movement
+	 * round.
+	 * @return the edge occupancy index or null if it isn't enabled
+	 */
+	public EdgeOccupancyIndex getEdgeOccupancyIndex() {
+		return this.edgeOccupancy;
+	}
+
+	/**
+	 * Sets the index of the hosts on each map edge. The index must be a
+	 * movement listener of the hosts since their creation, so it is
+	 * created by the scenario (see {@link #EDGE_OCCUPANCY_INDEX_S}).
+	 * @param index The index or null to disable it
+	 */
+	public void setEdgeOccupancyIndex(EdgeOccupancyIndex index) {
+		this.edgeOccupancy = index;
+	}
+
+	/**
+	 * Returns the registry of the hosts by group type and role
+	 * @return the host registry
+	 */
+	public HostRegistry getHostRegistry() {
+		return this.registry;
+	}
+
+	/**
+	 * Returns the collision engine that checks the hosts' moves
+	 * @return the collision engine
+	 */
+	public CollisionEngine getCollisionEngine() {
+		return this.collisionEngine;
+	}
+
 	/**
 	 * Returns the x-size (width) of the world
 	 * @return the x-size (width) of the world
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import core.MovableObject;
+import core.Settings;
+
+/**
+ * Superclass for the broad phase of the collision check. The broad phase
+ * gives a query range for the host index and a cheap pairwise test that
+ * decides which of the nearby hosts are worth an exact (narrow phase) check.
+ * The test is done on the same moves that the narrow phase checks, so it
+ * also works on the moves received from the neighbors.
+ */
+public abstract class BroadPhase {
+	/**
+	 * Range (meters) around a host where other hosts are checked
+	 * -setting id ({@value}). Default is {@link #DEF_CHECK_DISTANCE}.
+	 */
+	public static final String CHECK_DISTANCE_S = "checkDistance";
+	/** default value for the check distance ({@value}) */
+	public static final double DEF_CHECK_DISTANCE = 50;
+
+	protected double checkDistance;
+
+	/**
+	 * Constructor.
+	 * @param s Settings in the collision name space
+	 */
+	public BroadPhase(Settings s) {
+		this.checkDistance = s.getDouble(CHECK_DISTANCE_S, DEF_CHECK_DISTANCE);
+		s.ensurePositiveValue(checkDistance, CHECK_DISTANCE_S);
+	}
+
+	/**
+	 * Returns the range around a host where the other hosts may conflict
+	 * with it. Used as the query range of the host index.
+	 * @return The range in meters
+	 */
+	public double getRange() {
+		return this.checkDistance;
+	}
+
+	/**
+	 * Returns true if the moves of two hosts may be in conflict and the
+	 * narrow phase should check them. Both moves are valid (see
+	 * {@link MovableObject#isValid()}).
+	 * @param mine The latest move of the host being checked
+	 * @param other The latest (known) move of the other host
+	 * @return True if the narrow phase should check the pair
+	 */
+	public abstract boolean mayCollide(MovableObject mine,
+			MovableObject other);
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import core.DTNHost;
+import core.HostIndex;
+import core.MovableObject;
+import core.Settings;
+import core.SimClock;
+import core.Trace;
+import core.TraceCategory;
+
+/**
+ * Checks the latest move of a host against the moves of the hosts near it
+ * and reacts to the conflicts. The check has three parts that can be
+ * selected from the settings: a {@link BroadPhase} that picks the pairs
+ * worth checking, a {@link NarrowPhase} that does the exact test and a
+ * {@link CollisionResponse} that decides what to do about a conflict.
+ * If the {@link TrajectoryPredictor#PREDICTION_HORIZON_S} setting is given,
+ * the engine also predicts the conflicts of all hosts before they move
+ * (see {@link #predict(List, HostIndex)}).
+ */
+public class CollisionEngine {
+	/** name space of the collision settings ({@value})*/
+	public static final String COLLISION_NS = "Collision";
+
+	/** broad phase class -setting id ({@value}) */
+	public static final String BROAD_PHASE_S = "broadPhase";
+	/** narrow phase class -setting id ({@value}) */
+	public static final String NARROW_PHASE_S = "narrowPhase";
+	/** response policy class -setting id ({@value}) */
+	public static final String RESPONSE_S = "response";
+	/**
+	 * Check against the latest location updates received from the other
+	 * hosts (see {@link DTNHost#getNeighborTable()}) instead of their actual
+	 * latest moves -setting id ({@value}). Boolean, default is false.
+	 */
+	public static final String USE_NEIGHBOR_TABLE_S = "useNeighborTable";
+
+	/** default broad phase class ({@value}) */
+	public static final String DEF_BROAD_PHASE = "DistanceBroadPhase";
+	/** default narrow phase class ({@value}) */
+	public static final String DEF_NARROW_PHASE = "PathOverlapNarrowPhase";
+	/** default response policy class ({@value}) */
+	public static final String DEF_RESPONSE = "SlowDownResponse";
+
+	/** package where to look for the collision classes */
+	private static final String COLLISION_PACKAGE = "core.collision.";
+
+	private BroadPhase broadPhase;
+	private NarrowPhase narrowPhase;
+	private CollisionResponse response;
+	private boolean useNeighborTable;
+	private TrajectoryPredictor predictor;
+	private List<PredictedConflict> predictedConflicts;
+
+	/**
+	 * Creates a collision engine based on the settings in the
+	 * {@link #COLLISION_NS} name space.
+	 * @param s The settings object
+	 */
+	public CollisionEngine(Settings s) {
+		this.broadPhase = (BroadPhase)s.createIntializedObject(
+				COLLISION_PACKAGE + s.getSetting(BROAD_PHASE_S,
+						DEF_BROAD_PHASE));
+		this.narrowPhase = (NarrowPhase)s.createIntializedObject(
+				COLLISION_PACKAGE + s.getSetting(NARROW_PHASE_S,
+						DEF_NARROW_PHASE));
+		this.response = (CollisionResponse)s.createIntializedObject(
+				COLLISION_PACKAGE + s.getSetting(RESPONSE_S, DEF_RESPONSE));
+		this.useNeighborTable = s.getBoolean(USE_NEIGHBOR_TABLE_S, false);
+		if (s.contains(TrajectoryPredictor.PREDICTION_HORIZON_S)) {
+			this.predictor = new TrajectoryPredictor(s);
+		}
+		this.predictedConflicts = new ArrayList<PredictedConflict>();
+	}
+
+	/**
+	 * Creates a collision engine from the given parts
+	 * @param broadPhase The broad phase
+	 * @param narrowPhase The narrow phase
+	 * @param response The response policy
+	 */
+	public CollisionEngine(BroadPhase broadPhase, NarrowPhase narrowPhase,
+			CollisionResponse response) {
+		this.broadPhase = broadPhase;
+		this.narrowPhase = narrowPhase;
+		this.response = response;
+		this.predictedConflicts = new ArrayList<PredictedConflict>();
+	}
+
+	/**
+	 * Predicts the conflicts of the hosts from their current locations and
+	 * paths. Must be called before the hosts move, while the index still
+	 * has their current locations. Does nothing if the engine has no
+	 * trajectory predictor.
+	 * @param hosts The hosts
+	 * @param index Index of the host locations
+	 */
+	public void predict(List<DTNHost> hosts, HostIndex index) {
+		if (predictor == null) {
+			return;
+		}
+		predictor.snapshot(hosts);
+		this.predictedConflicts = predictor.predictAll(index);
+	}
+
+	/**
+	 * Returns the conflicts found by the latest
+	 * {@link #predict(List, HostIndex)} call
+	 * @return the predicted conflicts in the order of their time (empty if
+	 * the engine has no trajectory predictor)
+	 */
+	public List<PredictedConflict> getPredictedConflicts() {
+		return this.predictedConflicts;
+	}
+
+	/**
+	 * Checks the latest move of a host against the hosts near it and lets
+	 * the response policy react to every conflict found. The other hosts are
+	 * checked in the order of their addresses.
+	 * @param host The host to check
+	 * @param index Index of the host locations
+	 */
+	public void update(DTNHost host, HostIndex index) {
+		List<DTNHost> nearHosts = index.getNearHosts(host.getLocation(),
+				broadPhase.getRange());
+
+		for (int i = 0, n = nearHosts.size(); i < n; i++) {
+			DTNHost other = nearHosts.get(i);
+			// Don't check if you're going to overrun or T yourself
+			if (host.getAddress() == other.getAddress()) {
+				continue;
+			}
+
+			MovableObject mine = host.getMovableObject();
+			MovableObject theirs = (useNeighborTable ?
+					host.getNeighborTable().get(other.getAddress(),
+							SimClock.getTime()) :
+					other.getMovableObject());
+			if (Trace.isOn(TraceCategory.collision, Trace.DEBUG)) {
+				Trace.log(TraceCategory.collision, host + " - " + other +
+						" distance=" +
+						host.getLocation().distance(other.getLocation()) +
+						" this.mo=" + mine + " other.mo=" + theirs);
+			}
+
+			if (mine == null || theirs == null || !mine.isValid() ||
+					!theirs.isValid() || !broadPhase.mayCollide(mine, theirs)) {
+				continue;
+			}
+
+			ConflictType type = narrowPhase.check(mine, theirs);
+			if (type != ConflictType.none) {
+				response.respond(host, theirs, type);
+			}
+		}
+	}
+
+	/**
+	 * Returns the broad phase of this engine
+	 * @return the broad phase of this engine
+	 */
+	public BroadPhase getBroadPhase() {
+		return this.broadPhase;
+	}
+
+	/**
+	 * Returns the narrow phase of this engine
+	 * @return the narrow phase of this engine
+	 */
+	public NarrowPhase getNarrowPhase() {
+		return this.narrowPhase;
+	}
+
+	/**
+	 * Returns the response policy of this engine
+	 * @return the response policy of this engine
+	 */
+	public CollisionResponse getResponse() {
+		return this.response;
+	}
+
+	/**
+	 * Returns the trajectory predictor of this engine
+	 * @return the trajectory predictor or null if the conflicts aren't
+	 * predicted
+	 */
+	public TrajectoryPredictor getPredictor() {
+		return this.predictor;
+	}
+
+	/**
+	 * Returns a string representation of the engine
+	 * @return a string representation of the engine
+	 */
+	public String toString() {
+		return getClass().getSimpleName() + " [" +
+			broadPhase.getClass().getSimpleName() + ", " +
+			narrowPhase.getClass().getSimpleName() + ", " +
+			response.getClass().getSimpleName() + "]";
+	}
+}
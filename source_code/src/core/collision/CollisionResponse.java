@@ -0,0 +1,32 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import core.DTNHost;
+import core.MovableObject;
+import core.Settings;
+
+/**
+ * Superclass for policies that decide what a host does when the narrow
+ * phase has found a conflict with another host.
+ */
+public abstract class CollisionResponse {
+
+	/**
+	 * Constructor.
+	 * @param s Settings in the collision name space
+	 */
+	public CollisionResponse(Settings s) { }
+
+	/**
+	 * Reacts to a conflict. The latest moves of both hosts are valid.
+	 * @param host The host that has to react
+	 * @param other The move of the host it is in conflict with, as known
+	 * to the host (see {@link CollisionEngine#USE_NEIGHBOR_TABLE_S})
+	 * @param type Type of the conflict
+	 */
+	public abstract void respond(DTNHost host, MovableObject other,
+			ConflictType type);
+}
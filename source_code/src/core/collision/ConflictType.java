@@ -0,0 +1,18 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+/**
+ * Kinds of conflicts the narrow phase of the collision check can find
+ * between two moving hosts.
+ */
+public enum ConflictType {
+	/** no conflict */
+	none,
+	/** the host is about to run over a host moving in the same direction */
+	overrun,
+	/** the host is about to run into a host crossing its way */
+	runInto
+}
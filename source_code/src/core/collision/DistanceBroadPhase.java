@@ -0,0 +1,29 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import core.MovableObject;
+import core.Settings;
+
+/**
+ * Broad phase that accepts all hosts that are closer than the check distance
+ * at the ends of their moves.
+ */
+public class DistanceBroadPhase extends BroadPhase {
+
+	/**
+	 * Constructor.
+	 * @param s Settings in the collision name space
+	 */
+	public DistanceBroadPhase(Settings s) {
+		super(s);
+	}
+
+	@Override
+	public boolean mayCollide(MovableObject mine, MovableObject other) {
+		return mine.getEndingLoc().distance(other.getEndingLoc()) <
+			this.checkDistance;
+	}
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import core.MovableObject;
+import core.Settings;
+
+/**
+ * Superclass for the narrow phase of the collision check. The narrow phase
+ * does the exact test between the latest moves of two hosts.
+ */
+public abstract class NarrowPhase {
+
+	/**
+	 * Constructor.
+	 * @param s Settings in the collision name space
+	 */
+	public NarrowPhase(Settings s) { }
+
+	/**
+	 * Checks if the move of a host conflicts with the move of another host.
+	 * Both moves are valid (see {@link MovableObject#isValid()}).
+	 * @param mine The latest move of the host being checked
+	 * @param other The latest move of the other host
+	 * @return The type of the conflict or {@link ConflictType#none}
+	 */
+	public abstract ConflictType check(MovableObject mine, MovableObject other);
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import core.Coord;
+import core.Geometry;
+import core.MovableObject;
+import core.Settings;
+
+/**
+ * Narrow phase that checks whether the host is about to run over the other
+ * host on the same road (see {@link MovableObject#overlapImminent}) or
+ * whether the move lines of the hosts cross while the other host is moving.
+ */
+public class PathOverlapNarrowPhase extends NarrowPhase {
+
+	/**
+	 * Constructor.
+	 * @param s Settings in the collision name space
+	 */
+	public PathOverlapNarrowPhase(Settings s) {
+		super(s);
+	}
+
+	@Override
+	public ConflictType check(MovableObject mine, MovableObject other) {
+		if (mine.overlapImminent(other)) {
+			return ConflictType.overrun;
+		}
+
+		Coord a0 = mine.getStartingLoc();
+		Coord a1 = mine.getEndingLoc();
+		Coord b0 = other.getStartingLoc();
+		Coord b1 = other.getEndingLoc();
+		if (!b0.equals(b1) && Geometry.segmentsIntersect(a0.getX(), a0.getY(),
+				a1.getX(), a1.getY(), b0.getX(), b0.getY(), b1.getX(),
+				b1.getY())) {
+			return ConflictType.runInto;
+		}
+		return ConflictType.none;
+	}
+}
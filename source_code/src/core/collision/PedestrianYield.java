@@ -0,0 +1,124 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import core.Coord;
+import core.DTNHost;
+import core.GridHostIndex;
+import core.Settings;
+import core.SettingsError;
+
+/**
+ * Decides which vehicles have to stop for pedestrians. A vehicle stops if
+ * a pedestrian is closer than the yield distance and within the yield angle
+ * from the direction the vehicle is heading to. The pedestrian locations are
+ * kept in a {@link GridHostIndex} that is rebuilt with {@link #update()}
+ * before the hosts are moved.
+ */
+public class PedestrianYield {
+	/**
+	 * Distance within which vehicles stop for pedestrians -setting id
+	 * ({@value}). Used in the {@link CollisionEngine#COLLISION_NS} name
+	 * space. Default is {@link #DEF_YIELD_DISTANCE}.
+	 */
+	public static final String YIELD_DISTANCE_S = "yieldDistance";
+	/**
+	 * Largest angle (in degrees) between the heading of a vehicle and the
+	 * direction to a pedestrian that makes the vehicle stop -setting id
+	 * ({@value}). Default is {@link #DEF_YIELD_ANGLE}, i.e., the vehicles
+	 * stop for pedestrians that are in front of them.
+	 */
+	public static final String YIELD_ANGLE_S = "yieldAngle";
+
+	/** default yield distance ({@value}) */
+	public static final double DEF_YIELD_DISTANCE = 50;
+	/** default yield angle ({@value}) */
+	public static final double DEF_YIELD_ANGLE = 90;
+
+	private final double yieldDistance;
+	/** cosine of the yield angle */
+	private final double cosYieldAngle;
+	private final List<DTNHost> pedestrianList;
+	private final Set<DTNHost> pedestrians;
+	private final GridHostIndex index;
+
+	/**
+	 * Constructor.
+	 * @param s The settings object where the yield settings are read from
+	 * @param pedestrians The pedestrian hosts
+	 */
+	public PedestrianYield(Settings s, List<DTNHost> pedestrians) {
+		this.yieldDistance = s.getDouble(YIELD_DISTANCE_S, DEF_YIELD_DISTANCE);
+		if (yieldDistance <= 0) {
+			throw new SettingsError("Non-positive value (" + yieldDistance +
+					") for " + s.getFullPropertyName(YIELD_DISTANCE_S));
+		}
+		double angle = s.getDouble(YIELD_ANGLE_S, DEF_YIELD_ANGLE);
+		this.cosYieldAngle = Math.cos(Math.toRadians(angle));
+
+		this.pedestrianList = pedestrians;
+		this.pedestrians = new HashSet<DTNHost>(pedestrians);
+		this.index = new GridHostIndex(yieldDistance);
+		this.index.rebuild(pedestrians);
+	}
+
+	/**
+	 * Updates the pedestrian locations in the index
+	 */
+	public void update() {
+		this.index.rebuild(pedestrianList);
+	}
+
+	/**
+	 * Returns true if the host is one of the pedestrians
+	 * @param host The host to check
+	 * @return True if the host is a pedestrian
+	 */
+	public boolean isPedestrian(DTNHost host) {
+		return this.pedestrians.contains(host);
+	}
+
+	/**
+	 * Returns true if the host has to stop for a pedestrian. Pedestrians
+	 * never stop for each other. A vehicle that isn't heading anywhere
+	 * stops for all pedestrians within the yield distance.
+	 * @param host The host to check
+	 * @return True if the host should stop
+	 */
+	public boolean mustYield(DTNHost host) {
+		if (pedestrianList.isEmpty() || isPedestrian(host)) {
+			return false;
+		}
+
+		Coord loc = host.getLocation();
+		Coord dest = host.getDestination();
+		double hx = 0, hy = 0, heading = 0;
+		if (dest != null) {
+			hx = dest.getX() - loc.getX();
+			hy = dest.getY() - loc.getY();
+			heading = Math.sqrt(hx * hx + hy * hy);
+		}
+
+		List<DTNHost> near = index.getNearHosts(loc, yieldDistance);
+		for (int i = 0, n = near.size(); i < n; i++) {
+			Coord pedLoc = near.get(i).getLocation();
+			double px = pedLoc.getX() - loc.getX();
+			double py = pedLoc.getY() - loc.getY();
+			double dist = Math.sqrt(px * px + py * py);
+			if (dist >= yieldDistance) {
+				continue;
+			}
+			if (heading == 0 || dist == 0 ||
+					hx * px + hy * py >= cosYieldAngle * heading * dist) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
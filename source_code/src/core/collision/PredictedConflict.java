@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import core.DTNHost;
+
+/**
+ * A conflict between two hosts predicted by a {@link TrajectoryPredictor}
+ */
+public class PredictedConflict {
+	private final DTNHost host;
+	private final DTNHost other;
+	private final double time;
+	private final double closestTime;
+	private final double closestDistance;
+
+	/**
+	 * Constructor.
+	 * @param host The host with the lower address
+	 * @param other The other host
+	 * @param time Time from now when the hosts get too close
+	 * @param closestTime Time from now of the closest approach
+	 * @param closestDistance Distance of the hosts at the closest approach
+	 */
+	public PredictedConflict(DTNHost host, DTNHost other, double time,
+			double closestTime, double closestDistance) {
+		this.host = host;
+		this.other = other;
+		this.time = time;
+		this.closestTime = closestTime;
+		this.closestDistance = closestDistance;
+	}
+
+	/**
+	 * Returns the host with the lower address
+	 * @return the host with the lower address
+	 */
+	public DTNHost getHost() {
+		return this.host;
+	}
+
+	/**
+	 * Returns the other host of the conflict
+	 * @return the other host of the conflict
+	 */
+	public DTNHost getOther() {
+		return this.other;
+	}
+
+	/**
+	 * Returns the time from now when the hosts get too close
+	 * @return the time of the conflict
+	 */
+	public double getTime() {
+		return this.time;
+	}
+
+	/**
+	 * Returns the time from now when the hosts are closest to each other
+	 * @return the time of the closest approach
+	 */
+	public double getClosestTime() {
+		return this.closestTime;
+	}
+
+	/**
+	 * Returns the distance of the hosts at their closest approach
+	 * @return the distance at the closest approach
+	 */
+	public double getClosestDistance() {
+		return this.closestDistance;
+	}
+
+	/**
+	 * Returns a string representation of the conflict
+	 * @return a string representation of the conflict
+	 */
+	public String toString() {
+		return host + " - " + other + " in " + time + "s (closest " +
+			closestDistance + "m in " + closestTime + "s)";
+	}
+}
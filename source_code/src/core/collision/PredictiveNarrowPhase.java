@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import core.MovableObject;
+import core.Settings;
+
+/**
+ * Narrow phase that predicts the trajectories of both hosts along the rest
+ * of their paths with a {@link TrajectoryPredictor}. The trajectories are
+ * built from the checked moves (see {@link Trajectory#set(MovableObject,
+ * double)}), so a move received from a neighbor is predicted from what the
+ * neighbor reported. The hosts are in
+ * conflict if they are predicted to get closer than the safety distance
+ * (see {@link SegmentNarrowPhase#SAFETY_DISTANCE_S}) within the reaction
+ * time, so the host can react before the conflict instead of after it.
+ */
+public class PredictiveNarrowPhase extends NarrowPhase {
+	/**
+	 * How early (seconds) a predicted conflict is reacted to -setting id
+	 * ({@value}). Default is {@link #DEF_REACTION_TIME}.
+	 */
+	public static final String REACTION_TIME_S = "reactionTime";
+	/** default reaction time ({@value}) */
+	public static final double DEF_REACTION_TIME = 2.0;
+
+	private final double reactionTime;
+	private final TrajectoryPredictor predictor;
+	private final Trajectory mineTrajectory;
+	private final Trajectory otherTrajectory;
+
+	/**
+	 * Constructor.
+	 * @param s Settings in the collision name space
+	 */
+	public PredictiveNarrowPhase(Settings s) {
+		super(s);
+		this.reactionTime = s.getDouble(REACTION_TIME_S, DEF_REACTION_TIME);
+		s.ensurePositiveValue(reactionTime, REACTION_TIME_S);
+		this.predictor = new TrajectoryPredictor(reactionTime,
+				s.getDouble(SegmentNarrowPhase.SAFETY_DISTANCE_S,
+						SegmentNarrowPhase.DEF_SAFETY_DISTANCE));
+		this.mineTrajectory = new Trajectory();
+		this.otherTrajectory = new Trajectory();
+	}
+
+	@Override
+	public ConflictType check(MovableObject mine, MovableObject other) {
+		mineTrajectory.set(mine, reactionTime);
+		if (mineTrajectory.size() < 2) {
+			return ConflictType.none; /* standing still; can't run into */
+		}
+		otherTrajectory.set(other, reactionTime);
+		if (!predictor.mayConflict(mineTrajectory, otherTrajectory) ||
+				predictor.timeToConflict(mineTrajectory, otherTrajectory) ==
+					Double.POSITIVE_INFINITY) {
+			return ConflictType.none;
+		}
+
+		if (otherTrajectory.size() < 2 || heading(mineTrajectory,
+				otherTrajectory) > 0) {
+			return ConflictType.overrun; /* same direction (or standing) */
+		}
+		return ConflictType.runInto;
+	}
+
+	/**
+	 * Returns the dot product of the first legs of the trajectories
+	 */
+	private static double heading(Trajectory a, Trajectory b) {
+		return (a.getX(1) - a.getX(0)) * (b.getX(1) - b.getX(0)) +
+			(a.getY(1) - a.getY(0)) * (b.getY(1) - b.getY(0));
+	}
+}
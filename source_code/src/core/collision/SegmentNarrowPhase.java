@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import core.Coord;
+import core.Geometry;
+import core.MovableObject;
+import core.Settings;
+
+/**
+ * Narrow phase that treats the latest moves of both hosts as linear motion
+ * over the same update interval and computes the time of their closest
+ * approach. The hosts are in conflict if they get closer than the safety
+ * distance while the checked host is closing in on the other host ahead of
+ * it.
+ */
+public class SegmentNarrowPhase extends NarrowPhase {
+	/**
+	 * Minimum allowed distance (meters) between two hosts
+	 * -setting id ({@value}). Default is {@link #DEF_SAFETY_DISTANCE}.
+	 */
+	public static final String SAFETY_DISTANCE_S = "safetyDistance";
+	/** default value for the safety distance ({@value}) */
+	public static final double DEF_SAFETY_DISTANCE = 2.0;
+
+	private double safetyDistance;
+
+	/**
+	 * Constructor.
+	 * @param s Settings in the collision name space
+	 */
+	public SegmentNarrowPhase(Settings s) {
+		super(s);
+		this.safetyDistance = s.getDouble(SAFETY_DISTANCE_S,
+				DEF_SAFETY_DISTANCE);
+		s.ensurePositiveValue(safetyDistance, SAFETY_DISTANCE_S);
+	}
+
+	@Override
+	public ConflictType check(MovableObject mine, MovableObject other) {
+		Coord a0 = mine.getStartingLoc();
+		Coord a1 = mine.getEndingLoc();
+		Coord b0 = other.getStartingLoc();
+		Coord b1 = other.getEndingLoc();
+
+		/* displacements during the interval */
+		double vax = a1.getX() - a0.getX();
+		double vay = a1.getY() - a0.getY();
+		double vbx = b1.getX() - b0.getX();
+		double vby = b1.getY() - b0.getY();
+		if (vax == 0 && vay == 0) {
+			return ConflictType.none; /* standing still; can't run into */
+		}
+
+		/* relative location and displacement of the other host */
+		double px = b0.getX() - a0.getX();
+		double py = b0.getY() - a0.getY();
+		double vx = vbx - vax;
+		double vy = vby - vay;
+
+		if (vax*px + vay*py <= 0 || px*vx + py*vy >= 0) {
+			/* the other host is behind or we're not closing in on it */
+			return ConflictType.none;
+		}
+
+		/* time (0..1 of the interval) of the closest approach */
+		double t = Geometry.closestApproachTime(px, py, vx, vy);
+		if (t > 1) {
+			t = 1;
+		}
+		double dx = px + t*vx;
+		double dy = py + t*vy;
+		if (dx*dx + dy*dy >= safetyDistance * safetyDistance) {
+			return ConflictType.none;
+		}
+
+		if ((vbx == 0 && vby == 0) || vax*vbx + vay*vby > 0) {
+			return ConflictType.overrun; /* same direction (or standing) */
+		}
+		return ConflictType.runInto;
+	}
+}
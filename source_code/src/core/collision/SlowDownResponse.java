@@ -0,0 +1,57 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import core.Coord;
+import core.DTNHost;
+import core.Geometry;
+import core.MovableObject;
+import core.Settings;
+import core.Trace;
+import core.TraceCategory;
+
+/**
+ * Slows the host down by moving it back to the point of the first road in
+ * its move path that is closest to halfway to the other host's starting
+ * point. The host never moves past either end of that road.
+ */
+public class SlowDownResponse extends CollisionResponse {
+
+	/**
+	 * Constructor.
+	 * @param s Settings in the collision name space
+	 */
+	public SlowDownResponse(Settings s) {
+		super(s);
+	}
+
+	@Override
+	public void respond(DTNHost host, MovableObject theirs,
+			ConflictType type) {
+		MovableObject mine = host.getMovableObject();
+
+		Coord begin = mine.getMoveRoadBegin(0);
+		Coord end = mine.getMoveRoadEnd(0);
+		Coord myStart = mine.getStartingLoc();
+		Coord theirStart = theirs.getStartingLoc();
+
+		/* the point of the first road closest to the halfway point */
+		double t = Geometry.segmentProjection(begin.getX(), begin.getY(),
+				end.getX(), end.getY(),
+				Geometry.lerp(myStart.getX(), theirStart.getX(), 0.5),
+				Geometry.lerp(myStart.getY(), theirStart.getY(), 0.5));
+		Coord newLoc = new Coord(
+				Geometry.lerp(begin.getX(), end.getX(), t),
+				Geometry.lerp(begin.getY(), end.getY(), t));
+		host.setLocation(newLoc);
+		mine.setEndingLoc(host.getLocation().clone());
+
+		if (Trace.isOn(TraceCategory.collision, Trace.INFO)) {
+			Trace.log(TraceCategory.collision, host + " is about to " +
+					(type == ConflictType.overrun ? "run over " : "run into ") +
+					theirs.getHost() + " this.mo=" + mine);
+		}
+	}
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import core.DTNHost;
+import core.MovableObject;
+import core.Settings;
+
+/**
+ * Stops the host by moving it back to where it started its latest move.
+ */
+public class StopResponse extends CollisionResponse {
+
+	/**
+	 * Constructor.
+	 * @param s Settings in the collision name space
+	 */
+	public StopResponse(Settings s) {
+		super(s);
+	}
+
+	@Override
+	public void respond(DTNHost host, MovableObject other,
+			ConflictType type) {
+		MovableObject mine = host.getMovableObject();
+		host.setLocation(mine.getStartingLoc());
+		mine.setEndingLoc(host.getLocation().clone());
+	}
+}
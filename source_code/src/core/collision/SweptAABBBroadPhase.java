@@ -0,0 +1,54 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import core.Coord;
+import core.MovableObject;
+import core.Settings;
+
+/**
+ * Broad phase that accepts a pair of hosts if the axis aligned bounding
+ * boxes swept by their latest moves (from the starting to the ending
+ * location of the {@link MovableObject}) overlap. The boxes are grown by a
+ * margin so that hosts that stop just next to each other are also checked.
+ */
+public class SweptAABBBroadPhase extends BroadPhase {
+	/**
+	 * How much (meters) the swept boxes are grown on each side
+	 * -setting id ({@value}). Default is {@link #DEF_MARGIN}.
+	 */
+	public static final String MARGIN_S = "sweptMargin";
+	/** default value for the margin ({@value}) */
+	public static final double DEF_MARGIN = 1.0;
+
+	private double margin;
+
+	/**
+	 * Constructor.
+	 * @param s Settings in the collision name space
+	 */
+	public SweptAABBBroadPhase(Settings s) {
+		super(s);
+		this.margin = s.getDouble(MARGIN_S, DEF_MARGIN);
+		s.ensurePositiveValue(margin, MARGIN_S);
+	}
+
+	@Override
+	public boolean mayCollide(MovableObject a, MovableObject b) {
+		Coord a0 = a.getStartingLoc();
+		Coord a1 = a.getEndingLoc();
+		Coord b0 = b.getStartingLoc();
+		Coord b1 = b.getEndingLoc();
+
+		return Math.min(a0.getX(), a1.getX()) - margin <=
+				Math.max(b0.getX(), b1.getX()) + margin &&
+			Math.min(b0.getX(), b1.getX()) - margin <=
+				Math.max(a0.getX(), a1.getX()) + margin &&
+			Math.min(a0.getY(), a1.getY()) - margin <=
+				Math.max(b0.getY(), b1.getY()) + margin &&
+			Math.min(b0.getY(), b1.getY()) - margin <=
+				Math.max(a0.getY(), a1.getY()) + margin;
+	}
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import java.util.Arrays;
+import java.util.List;
+
+import core.Coord;
+import core.DTNHost;
+import core.Geometry;
+import core.MovableObject;
+import movement.Path;
+
+/**
+ * Piecewise linear prediction of a host's movement. The trajectory is a
+ * list of knots (time, x, y) starting at time 0 (the present); between the
+ * knots the host moves at constant velocity and after the last knot it
+ * stands still. The knots are stored in arrays that are reused when the
+ * trajectory is set again.
+ */
+public class Trajectory {
+	private static final int INITIAL_CAPACITY = 8;
+
+	private double[] times;
+	private double[] xs;
+	private double[] ys;
+	private int size;
+	private double maxSpeed;
+
+	/**
+	 * Creates a trajectory that stands still at the origin
+	 */
+	public Trajectory() {
+		this.times = new double[INITIAL_CAPACITY];
+		this.xs = new double[INITIAL_CAPACITY];
+		this.ys = new double[INITIAL_CAPACITY];
+		reset(0, 0);
+	}
+
+	/**
+	 * Clears the trajectory to stand still at the given location
+	 * @param x X coordinate of the location
+	 * @param y Y coordinate of the location
+	 */
+	public void reset(double x, double y) {
+		this.size = 0;
+		this.maxSpeed = 0;
+		addKnot(0, x, y);
+	}
+
+	/**
+	 * Appends a leg that stays at the last location for the given time
+	 * @param duration How long to stay (non-positive values are ignored)
+	 */
+	public void pause(double duration) {
+		if (duration > 0) {
+			addKnot(getEndTime() + duration, xs[size - 1], ys[size - 1]);
+		}
+	}
+
+	/**
+	 * Appends a leg from the last location to the given location
+	 * @param x X coordinate of the location
+	 * @param y Y coordinate of the location
+	 * @param speed Speed of the leg
+	 * @return False if the leg wasn't added because the speed was not
+	 * positive, true otherwise
+	 */
+	public boolean moveTo(double x, double y, double speed) {
+		if (speed <= 0) {
+			return false;
+		}
+		double dist = Math.sqrt(Geometry.distanceSq(xs[size - 1],
+				ys[size - 1], x, y));
+		if (dist > 0) {
+			addKnot(getEndTime() + dist / speed, x, y);
+			if (speed > maxSpeed) {
+				maxSpeed = speed;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Sets this trajectory to follow the rest of the host's current path
+	 * from its current location. A host that isn't on a path stands still.
+	 * @param host The host
+	 * @param horizon Legs that start after this time are left out
+	 */
+	public void set(DTNHost host, double horizon) {
+		Coord loc = host.getLocation();
+		reset(loc.getX(), loc.getY());
+
+		Path path = host.getPath();
+		Coord dest = host.getDestination();
+		if (path == null || dest == null || !host.isMovementActive()) {
+			return;
+		}
+		if (!moveTo(dest.getX(), dest.getY(), host.getActualSpeed())) {
+			return;
+		}
+
+		List<Coord> coords = path.getCoords();
+		for (int i = path.getNextWaypointIndex(), n = coords.size();
+				i < n && getEndTime() < horizon; i++) {
+			Coord c = coords.get(i);
+			if (!moveTo(c.getX(), c.getY(), path.getSpeedTo(i))) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Sets this trajectory to follow the known waypoints of a move (see
+	 * {@link MovableObject#getNrofWaypoints()}) from the ending location of
+	 * the move at the speed of the move. Only the move is used, not the
+	 * host's current state, so this works also for the moves received from
+	 * the neighbors.
+	 * @param mo The move
+	 * @param horizon Legs that start after this time are left out
+	 */
+	public void set(MovableObject mo, double horizon) {
+		Coord loc = mo.getEndingLoc();
+		reset(loc.getX(), loc.getY());
+
+		for (int i = mo.getNextWaypointIndex(), n = mo.getNrofWaypoints();
+				i < n && getEndTime() < horizon; i++) {
+			Coord c = mo.getWaypoint(i);
+			if (!moveTo(c.getX(), c.getY(), mo.getSpeed())) {
+				break;
+			}
+		}
+	}
+
+	private void addKnot(double t, double x, double y) {
+		if (size == times.length) {
+			int capacity = size * 2;
+			times = Arrays.copyOf(times, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+		}
+		times[size] = t;
+		xs[size] = x;
+		ys[size] = y;
+		size++;
+	}
+
+	/**
+	 * Returns the number of knots
+	 * @return the number of knots (at least one)
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the time of a knot
+	 * @param i Index of the knot
+	 * @return the time of the knot
+	 */
+	public double getTime(int i) {
+		return times[i];
+	}
+
+	/**
+	 * Returns the x coordinate of a knot
+	 * @param i Index of the knot
+	 * @return the x coordinate of the knot
+	 */
+	public double getX(int i) {
+		return xs[i];
+	}
+
+	/**
+	 * Returns the y coordinate of a knot
+	 * @param i Index of the knot
+	 * @return the y coordinate of the knot
+	 */
+	public double getY(int i) {
+		return ys[i];
+	}
+
+	/**
+	 * Returns the time when the host stops at the last knot
+	 * @return the time of the last knot
+	 */
+	public double getEndTime() {
+		return times[size - 1];
+	}
+
+	/**
+	 * Returns the highest speed of the legs
+	 * @return the highest speed or 0 if the host stands still
+	 */
+	public double getMaxSpeed() {
+		return this.maxSpeed;
+	}
+
+	/**
+	 * Returns the index of the leg that is traveled at the given time
+	 * @param t The time
+	 * @return Index of the knot where the leg starts; the last knot's index
+	 * if the host has stopped by then
+	 */
+	public int legAt(double t) {
+		int i = Arrays.binarySearch(times, 0, size, t);
+		if (i < 0) {
+			i = -i - 2; /* knot before the insertion point */
+		}
+		return (i < 0 ? 0 : (i >= size ? size - 1 : i));
+	}
+
+	/**
+	 * Sets the result to the predicted location at the given time
+	 * @param t The time
+	 * @param result The coordinate to set
+	 */
+	public void getLocation(double t, Coord result) {
+		int i = legAt(t);
+		if (i == size - 1) {
+			result.setLocation(xs[i], ys[i]);
+			return;
+		}
+		double f = (t - times[i]) / (times[i + 1] - times[i]);
+		result.setLocation(Geometry.lerp(xs[i], xs[i + 1], f),
+				Geometry.lerp(ys[i], ys[i + 1], f));
+	}
+
+	/**
+	 * Returns a string representation of the trajectory
+	 * @return a string representation of the trajectory
+	 */
+	public String toString() {
+		StringBuilder sb = new StringBuilder("Trajectory [");
+		for (int i = 0; i < size; i++) {
+			sb.append((i > 0 ? ", " : "") + times[i] + ":(" + xs[i] + "," +
+					ys[i] + ")");
+		}
+		return sb.append("]").toString();
+	}
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package core.collision;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import core.Coord;
+import core.DTNHost;
+import core.Geometry;
+import core.HostIndex;
+import core.Settings;
+
+/**
+ * Predicts conflicts between hosts from their {@link Trajectory}s. Two
+ * trajectories are compared leg by leg: between the knot times of both
+ * trajectories the relative motion is linear, so the closest approach and
+ * the first time the hosts are closer than the safety distance can be
+ * solved exactly. Only the time up to the prediction horizon is checked.
+ * {@link PredictiveNarrowPhase} compares one pair of trajectories at a time,
+ * with its reaction time as the horizon. {@link #snapshot(List)} and
+ * {@link #predictAll(HostIndex)} are the batch API over all the candidate
+ * pairs of a host index.
+ */
+public class TrajectoryPredictor {
+	/**
+	 * How far to the future (seconds) the conflicts of all hosts are
+	 * predicted -setting id ({@value}). Used in the
+	 * {@link CollisionEngine#COLLISION_NS} name space. If the setting is not
+	 * given, the collision engine doesn't predict the conflicts.
+	 */
+	public static final String PREDICTION_HORIZON_S = "predictionHorizon";
+
+	private final double horizon;
+	private final double safetyDistance;
+
+	/** the hosts of the latest snapshot */
+	private List<DTNHost> hosts;
+	/** the trajectories of the latest snapshot, in the order of the hosts */
+	private Trajectory[] trajectories;
+	/** index of each host's trajectory by the host's address */
+	private int[] trajectoryIndex;
+	/** highest speed of the snapshot's trajectories */
+	private double maxSpeed;
+
+	/**
+	 * Constructor.
+	 * @param s Settings in the collision name space. The safety distance is
+	 * read from the {@link SegmentNarrowPhase#SAFETY_DISTANCE_S} setting.
+	 */
+	public TrajectoryPredictor(Settings s) {
+		this(s.getDouble(PREDICTION_HORIZON_S),
+				s.getDouble(SegmentNarrowPhase.SAFETY_DISTANCE_S,
+						SegmentNarrowPhase.DEF_SAFETY_DISTANCE));
+		s.ensurePositiveValue(horizon, PREDICTION_HORIZON_S);
+		s.ensurePositiveValue(safetyDistance,
+				SegmentNarrowPhase.SAFETY_DISTANCE_S);
+	}
+
+	/**
+	 * Constructor.
+	 * @param horizon The prediction horizon (seconds)
+	 * @param safetyDistance Minimum allowed distance between two hosts
+	 */
+	public TrajectoryPredictor(double horizon, double safetyDistance) {
+		this.horizon = horizon;
+		this.safetyDistance = safetyDistance;
+		this.hosts = new ArrayList<DTNHost>();
+		this.trajectories = new Trajectory[0];
+		this.trajectoryIndex = new int[0];
+	}
+
+	/**
+	 * Returns the prediction horizon
+	 * @return the prediction horizon
+	 */
+	public double getHorizon() {
+		return this.horizon;
+	}
+
+	/**
+	 * Returns the safety distance
+	 * @return the safety distance
+	 */
+	public double getSafetyDistance() {
+		return this.safetyDistance;
+	}
+
+	/**
+	 * Checks cheaply if two trajectories can come closer than the safety
+	 * distance within the horizon, i.e., if they are close enough to each
+	 * other at the start considering their top speeds.
+	 * @return False if the hosts can't conflict within the horizon
+	 */
+	public boolean mayConflict(Trajectory a, Trajectory b) {
+		double reach = (a.getMaxSpeed() + b.getMaxSpeed()) * horizon +
+			safetyDistance;
+		return Geometry.distanceSq(a.getX(0), a.getY(0), b.getX(0),
+				b.getY(0)) < reach * reach;
+	}
+
+	/**
+	 * Returns the earliest time when the hosts of the trajectories get
+	 * closer than the safety distance
+	 * @return The time or {@link Double#POSITIVE_INFINITY} if it doesn't
+	 * happen within the horizon
+	 */
+	public double timeToConflict(Trajectory a, Trajectory b) {
+		return scan(a, b, true);
+	}
+
+	/**
+	 * Returns the earliest time within the horizon when the distance of
+	 * the hosts of the trajectories is at its minimum
+	 * @return The time of the closest approach
+	 */
+	public double timeOfClosestApproach(Trajectory a, Trajectory b) {
+		return scan(a, b, false);
+	}
+
+	/**
+	 * Returns the distance of the hosts of the trajectories at a time
+	 * @param t The time
+	 * @return The distance
+	 */
+	public double distanceAt(Trajectory a, Trajectory b, double t) {
+		Coord ca = new Coord(0, 0);
+		Coord cb = new Coord(0, 0);
+		a.getLocation(t, ca);
+		b.getLocation(t, cb);
+		return ca.distance(cb);
+	}
+
+	/**
+	 * Goes through the common legs of two trajectories
+	 * @param firstConflict If true, returns the first time the distance is
+	 * below the safety distance; if false, the time of the closest approach
+	 */
+	private double scan(Trajectory a, Trajectory b, boolean firstConflict) {
+		double s2 = safetyDistance * safetyDistance;
+		double bestD2 = Double.POSITIVE_INFINITY;
+		double bestT = 0;
+		int ia = 0;
+		int ib = 0;
+		int na = a.size() - 1;
+		int nb = b.size() - 1;
+		double t = 0;
+
+		while (t < horizon) {
+			while (ia < na && a.getTime(ia + 1) <= t) {
+				ia++;
+			}
+			while (ib < nb && b.getTime(ib + 1) <= t) {
+				ib++;
+			}
+			double next = horizon;
+			double vax = 0, vay = 0, vbx = 0, vby = 0;
+			if (ia < na) {
+				double dt = a.getTime(ia + 1) - a.getTime(ia);
+				vax = (a.getX(ia + 1) - a.getX(ia)) / dt;
+				vay = (a.getY(ia + 1) - a.getY(ia)) / dt;
+				next = Math.min(next, a.getTime(ia + 1));
+			}
+			if (ib < nb) {
+				double dt = b.getTime(ib + 1) - b.getTime(ib);
+				vbx = (b.getX(ib + 1) - b.getX(ib)) / dt;
+				vby = (b.getY(ib + 1) - b.getY(ib)) / dt;
+				next = Math.min(next, b.getTime(ib + 1));
+			}
+
+			/* relative location at t and relative velocity of b */
+			double ta = t - a.getTime(ia);
+			double tb = t - b.getTime(ib);
+			double px = (b.getX(ib) + vbx * tb) - (a.getX(ia) + vax * ta);
+			double py = (b.getY(ib) + vby * tb) - (a.getY(ia) + vay * ta);
+			double vx = vbx - vax;
+			double vy = vby - vay;
+			double len = next - t;
+
+			if (firstConflict) {
+				double c = px * px + py * py - s2;
+				if (c < 0) {
+					return t;
+				}
+				double vv = vx * vx + vy * vy;
+				double pv = px * vx + py * vy;
+				double disc = pv * pv - vv * c;
+				if (pv < 0 && disc >= 0) {
+					double root = (-pv - Math.sqrt(disc)) / vv;
+					if (root <= len) {
+						return t + root;
+					}
+				}
+			} else {
+				double tau = Geometry.closestApproachTime(px, py, vx, vy);
+				tau = (tau < 0 ? 0 : (tau > len ? len : tau));
+				double dx = px + vx * tau;
+				double dy = py + vy * tau;
+				double d2 = dx * dx + dy * dy;
+				if (d2 < bestD2) {
+					bestD2 = d2;
+					bestT = t + tau;
+				}
+			}
+
+			if (ia == na && ib == nb) {
+				break; /* both stand still from now on */
+			}
+			t = next;
+		}
+
+		return (firstConflict ? Double.POSITIVE_INFINITY : bestT);
+	}
+
+	/**
+	 * Takes a snapshot of the trajectories of the hosts. The snapshot should
+	 * be taken before the hosts move, when the locations in the host index
+	 * are the current ones; {@link #predictAll(HostIndex)} then predicts from
+	 * the snapshot no matter how the hosts have moved since. The
+	 * trajectories are reused between snapshots, so one predictor can't be
+	 * used by several threads at the same time.
+	 * @param hosts The hosts
+	 */
+	public void snapshot(List<DTNHost> hosts) {
+		int n = hosts.size();
+		int maxAddress = -1;
+		for (int i = 0; i < n; i++) {
+			maxAddress = Math.max(maxAddress, hosts.get(i).getAddress());
+		}
+		if (trajectories.length < n) {
+			int old = trajectories.length;
+			trajectories = Arrays.copyOf(trajectories, n);
+			for (int i = old; i < n; i++) {
+				trajectories[i] = new Trajectory();
+			}
+		}
+		if (trajectoryIndex.length <= maxAddress) {
+			trajectoryIndex = new int[maxAddress + 1];
+		}
+		Arrays.fill(trajectoryIndex, -1);
+
+		this.hosts = new ArrayList<DTNHost>(hosts);
+		this.maxSpeed = 0;
+		for (int i = 0; i < n; i++) {
+			DTNHost host = hosts.get(i);
+			trajectories[i].set(host, horizon);
+			trajectoryIndex[host.getAddress()] = i;
+			maxSpeed = Math.max(maxSpeed, trajectories[i].getMaxSpeed());
+		}
+	}
+
+	/**
+	 * Predicts the conflicts between the hosts of the latest
+	 * {@link #snapshot(List)}. The candidate pairs are the hosts that the
+	 * index (e.g. a {@link core.GridHostIndex}) gives near each host with a
+	 * range that covers the top speeds of the hosts, and the pairs that
+	 * can't conflict are skipped with {@link #mayConflict}. A pair is in
+	 * conflict if the hosts get closer than the safety distance within the
+	 * horizon. Pairs whose closest approach is not before the horizon are
+	 * left out, since how close they get is not known yet.
+	 * @param index Index of the host locations of the snapshot
+	 * @return The predicted conflicts, each pair once, in the order of the
+	 * conflict time
+	 */
+	public List<PredictedConflict> predictAll(HostIndex index) {
+		List<PredictedConflict> conflicts = new ArrayList<PredictedConflict>();
+		for (int i = 0, n = hosts.size(); i < n; i++) {
+			DTNHost host = hosts.get(i);
+			Trajectory mine = trajectories[i];
+			double range = (mine.getMaxSpeed() + maxSpeed) * horizon +
+				safetyDistance;
+			List<DTNHost> near = index.getNearHosts(
+					new Coord(mine.getX(0), mine.getY(0)), range);
+			for (int k = 0, m = near.size(); k < m; k++) {
+				DTNHost other = near.get(k);
+				int address = other.getAddress();
+				if (address <= host.getAddress() ||
+						address >= trajectoryIndex.length ||
+						trajectoryIndex[address] < 0) {
+					continue; /* same pair checked from the other host */
+				}
+				Trajectory theirs = trajectories[trajectoryIndex[address]];
+				if (!mayConflict(mine, theirs)) {
+					continue;
+				}
+				double t = timeToConflict(mine, theirs);
+				if (t == Double.POSITIVE_INFINITY) {
+					continue;
+				}
+				double closest = timeOfClosestApproach(mine, theirs);
+				if (closest >= horizon) {
+					continue; /* still closing in at the horizon */
+				}
+				conflicts.add(new PredictedConflict(host, other, t, closest,
+						distanceAt(mine, theirs, closest)));
+			}
+		}
+
+		Collections.sort(conflicts, new Comparator<PredictedConflict>() {
+			public int compare(PredictedConflict c1, PredictedConflict c2) {
+				return Double.compare(c1.getTime(), c2.getTime());
+			}
+		});
+		return conflicts;
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+/**
+ * Parser for the decimal numbers of the text input readers. Numbers with at
+ * most {@value #MAX_FAST_DIGITS} significant digits and no exponent are
+ * converted with one exact floating point operation, which gives the same
+ * result as {@link Double#parseDouble(String)}. Other numbers are given to
+ * parseDouble. The text is read through a {@link Source}, so the same
+ * parser works for e.g. char buffers and memory mapped bytes.
+ */
+public class DecimalParser {
+	/** maximum number of significant digits parsed without rounding */
+	public static final int MAX_FAST_DIGITS = 15;
+	/** powers of ten that are exactly representable as doubles */
+	private static final double[] POWERS_OF_TEN = new double[23];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i-1] * 10;
+		}
+	}
+
+	/**
+	 * Text where the numbers are parsed from
+	 */
+	public interface Source {
+		/**
+		 * Returns the length of the text
+		 * @return the length of the text
+		 */
+		public long length();
+
+		/**
+		 * Returns a character of the text
+		 * @param pos Position of the character
+		 * @return the character
+		 */
+		public char charAt(long pos);
+
+		/**
+		 * Returns true if the character ends a number
+		 * @param c The character
+		 * @return true if the character ends a number
+		 */
+		public boolean isDelimiter(char c);
+	}
+
+	/** position after the latest parsed number */
+	private long end;
+
+	/**
+	 * Parses the number that starts at the given position. The number ends
+	 * at the first delimiter of the source or at the end of the text.
+	 * @param src The text
+	 * @param start Position of the first character of the number
+	 * @return The value of the number
+	 * @throws NumberFormatException if the text isn't a number
+	 * @see #getEnd()
+	 */
+	public double parse(Source src, long start) {
+		long length = src.length();
+		long pos = start;
+		boolean negative = false;
+		long mantissa = 0;
+		int digits = 0;
+		int exponent = 0;
+		boolean anyDigits = false;
+		boolean fraction = false;
+		char c = (pos < length ? src.charAt(pos) : 0);
+
+		if (c == '-' || c == '+') {
+			negative = (c == '-');
+			pos++;
+		}
+		for (; pos < length; pos++) {
+			c = src.charAt(pos);
+			if (c == '.' && !fraction) {
+				fraction = true;
+				continue;
+			}
+			if (c < '0' || c > '9') {
+				break;
+			}
+			anyDigits = true;
+			if (fraction) {
+				exponent--;
+			}
+			if (mantissa > 0 || c != '0') {
+				mantissa = mantissa * 10 + (c - '0');
+				if (++digits > MAX_FAST_DIGITS) {
+					return slowParse(src, start);
+				}
+			}
+		}
+		if (!anyDigits || -exponent >= POWERS_OF_TEN.length ||
+				(pos < length && !src.isDelimiter(src.charAt(pos)))) {
+			return slowParse(src, start); // exponent, NaN, etc.
+		}
+
+		this.end = pos;
+		double value = mantissa;
+		if (exponent < 0) {
+			value /= POWERS_OF_TEN[-exponent];
+		}
+		return (negative ? -value : value);
+	}
+
+	/**
+	 * Returns the position after the latest parsed number
+	 * @return the position after the latest parsed number
+	 */
+	public long getEnd() {
+		return this.end;
+	}
+
+	/**
+	 * Parses the number starting at the given position with
+	 * {@link Double#parseDouble(String)}
+	 */
+	private double slowParse(Source src, long start) {
+		long length = src.length();
+		StringBuilder number = new StringBuilder();
+		long pos = start;
+		for (; pos < length && !src.isDelimiter(src.charAt(pos)); pos++) {
+			number.append(src.charAt(pos));
+		}
+		this.end = pos;
+		return Double.parseDouble(number.toString());
+	}
+}
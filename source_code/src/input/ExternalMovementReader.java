@@ -4,16 +4,28 @@
  */
 package input;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
 
 import util.Tuple;
 
 import core.Coord;
 import core.SettingsError;
+import core.SimError;
 
 
 /**
@@ -35,13 +47,31 @@ import core.SettingsError;
  * All lines must be sorted by time. Sampling interval (time difference between
  * two time instances) must be same for the whole file.
  * </P>
+ * <P>
+ * The text is read through memory mapped windows of the file and the
+ * numbers are parsed without creating intermediate strings, so also multi
+ * gigabyte traces can be read fast. Files whose name ends with
+ * {@link #BINARY_EXT} are read as compact binary traces (see
+ * {@link #storeToBinaryFile(String, String)}).
+ * </P>
  */
 public class ExternalMovementReader {
 	/* Prefix for comment lines (lines starting with this are ignored) */
 	public static final String COMMENT_PREFIX = "#";
-	private Scanner scanner;
+	/** Extension of binary external movement files */
+	public static final String BINARY_EXT = ".binem";
+
+	/** magic number of binary files ("ONET") */
+	private static final int BINARY_MAGIC = 0x4f4e4554;
+	private static final int BINARY_VERSION = 1;
+	/** id index that tells that a new id follows in the binary file */
+	private static final int NEW_ID = -1;
+	/** block size that marks the end of a binary file */
+	private static final int END_OF_BLOCKS = -1;
+	/** size of the memory mapped windows of text files */
+	private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
 	private double lastTimeStamp = -1;
-	private String lastLine;
 	private double minTime;
 	private double maxTime;
 	private double minX;
@@ -50,6 +80,42 @@ public class ExternalMovementReader {
 	private double maxY;
 	private boolean normalize;
 
+	/* text input */
+	private RandomAccessFile file;
+	private FileChannel channel;
+	private long size;
+	private long pos;
+	private MappedByteBuffer window;
+	private long windowStart;
+	private long windowEnd;
+	private byte[] idBuffer = new byte[32];
+	private final DecimalParser numbers = new DecimalParser();
+	/** the mapped text for the number parser */
+	private final DecimalParser.Source source = new DecimalParser.Source() {
+		public long length() {
+			return size;
+		}
+
+		public char charAt(long p) {
+			return (char)(at(p) & 0xff);
+		}
+
+		public boolean isDelimiter(char c) {
+			return isSpace((byte)c) || isLineEnd((byte)c);
+		}
+	};
+
+	/* the record read ahead (not normalized) */
+	private boolean hasNext;
+	private double nextTime;
+	private String nextId;
+	private double nextX;
+	private double nextY;
+
+	/* binary input */
+	private DataInputStream binIn;
+	private List<String> binIds;
+	private boolean binDone;
 
 	/**
 	 * Constructor. Creates a new reader that reads the data from a file.
@@ -59,28 +125,70 @@ public class ExternalMovementReader {
 	public ExternalMovementReader(String inFilePath) {
 		this.normalize = true;
 		File inFile = new File(inFilePath);
-		try {
-			scanner = new Scanner(inFile);
-		} catch (FileNotFoundException e) {
+		if (!inFile.isFile()) {
 			throw new SettingsError("Couldn't find external movement input " +
 					"file " + inFile);
 		}
 
-		String offsets = scanner.nextLine();
+		try {
+			if (inFilePath.endsWith(BINARY_EXT)) {
+				openBinary(inFile);
+			}
+			else {
+				openText(inFile);
+			}
+		} catch (IOException e) {
+			throw new SimError("Couldn't read external movement input file " +
+					inFile, e);
+		}
+	}
 
+	/**
+	 * Opens a text file, reads the offset header and the first record
+	 */
+	private void openText(File inFile) throws IOException {
+		file = new RandomAccessFile(inFile, "r");
+		channel = file.getChannel();
+		size = channel.size();
+		pos = 0;
+		windowStart = windowEnd = 0;
+
+		long lineStart = pos;
 		try {
-			Scanner lineScan = new Scanner(offsets);
-			minTime = lineScan.nextDouble();
-			maxTime = lineScan.nextDouble();
-			minX = lineScan.nextDouble();
-			maxX = lineScan.nextDouble();
-			minY = lineScan.nextDouble();
-			maxY = lineScan.nextDouble();
-		} catch (Exception e) {
-			throw new SettingsError("Invalid offset line '" + offsets + "'");
+			minTime = parseDouble();
+			maxTime = parseDouble();
+			minX = parseDouble();
+			maxX = parseDouble();
+			minY = parseDouble();
+			maxY = parseDouble();
+		} catch (NumberFormatException e) {
+			throw new SettingsError("Invalid offset line '" +
+					lineText(lineStart) + "'");
 		}
+		skipLine();
 
-		lastLine = scanner.nextLine();
+		hasNext = readRecord();
+	}
+
+	/**
+	 * Opens a binary file and reads its header
+	 */
+	private void openBinary(File inFile) throws IOException {
+		binIn = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(inFile), 1 << 16));
+		if (binIn.readInt() != BINARY_MAGIC ||
+				binIn.readInt() != BINARY_VERSION) {
+			binIn.close();
+			throw new SettingsError("Invalid binary external movement file " +
+					inFile);
+		}
+		minTime = binIn.readDouble();
+		maxTime = binIn.readDouble();
+		minX = binIn.readDouble();
+		maxX = binIn.readDouble();
+		minY = binIn.readDouble();
+		maxY = binIn.readDouble();
+		binIds = new ArrayList<String>();
 	}
 
 	/**
@@ -99,61 +207,292 @@ public class ExternalMovementReader {
 	 * @throws SettingError if an invalid line was read
 	 */
 	public List<Tuple<String, Coord>> readNextMovements() {
+		if (binIn != null) {
+			return readNextBinaryMovements();
+		}
+
 		ArrayList<Tuple<String, Coord>> moves =
 			new ArrayList<Tuple<String, Coord>>();
 
-		if (!scanner.hasNextLine()) {
+		if (!hasNext) {
 			return moves;
 		}
 
-		Scanner lineScan = new Scanner(lastLine);
-		double time = lineScan.nextDouble();
-		String id = lineScan.next();
-		double x = lineScan.nextDouble();
-		double y = lineScan.nextDouble();
+		double time = time(nextTime);
+		lastTimeStamp = time;
 
-		if (normalize) {
-			time -= minTime;
-			x -= minX;
-			y -= minY;
+		do {
+			moves.add(new Tuple<String, Coord>(nextId,
+					new Coord(x(nextX), y(nextY))));
+			hasNext = readRecord();
+		} while (hasNext && time(nextTime) == time);
+
+		return moves;
+	}
+
+	/**
+	 * Reads the next block of a binary file
+	 */
+	private List<Tuple<String, Coord>> readNextBinaryMovements() {
+		ArrayList<Tuple<String, Coord>> moves =
+			new ArrayList<Tuple<String, Coord>>();
+		try {
+			if (binDone) {
+				return moves;
+			}
+			int n = binIn.readInt();
+			if (n == END_OF_BLOCKS) {
+				binDone = true;
+				binIn.close();
+				return moves;
+			}
+			double time = binIn.readDouble();
+			lastTimeStamp = (normalize ? time - minTime : time);
+			moves.ensureCapacity(n);
+			for (int i = 0; i < n; i++) {
+				int idIndex = binIn.readInt();
+				if (idIndex == NEW_ID) {
+					idIndex = binIds.size();
+					binIds.add(binIn.readUTF());
+				}
+				double dx = binIn.readFloat();
+				double dy = binIn.readFloat();
+				moves.add(new Tuple<String, Coord>(binIds.get(idIndex),
+						normalize ? new Coord(dx, dy) :
+							new Coord(minX + dx, minY + dy)));
+			}
+		} catch (IOException e) {
+			throw new SimError("Couldn't read binary external movement data",
+					e);
 		}
+		return moves;
+	}
 
-		lastTimeStamp = time;
+	private double time(double t) {
+		return (normalize ? t - minTime : t);
+	}
 
-		while (scanner.hasNextLine() && lastTimeStamp == time) {
-			lastLine = scanner.nextLine();
+	private double x(double x) {
+		return (normalize ? x - minX : x);
+	}
 
-			if (lastLine.trim().length() == 0 ||
-					lastLine.startsWith(COMMENT_PREFIX)) {
-				continue; /* skip empty and comment lines */
-			}
+	private double y(double y) {
+		return (normalize ? y - minY : y);
+	}
 
-			// add previous line's tuple
-			moves.add(new Tuple<String, Coord>(id, new Coord(x,y)));
+	/**
+	 * Reads the next data record of a text file. Skips empty lines and
+	 * comment lines.
+	 * @return True if a record was read, false if the end of file was
+	 * reached
+	 */
+	private boolean readRecord() {
+		while (pos < size) {
+			long lineStart = pos;
+			if (at(pos) == COMMENT_PREFIX.charAt(0)) {
+				skipLine();
+				continue;
+			}
+			skipSpaces();
+			if (pos >= size || isLineEnd(at(pos))) {
+				skipLine();
+				continue; // empty line
+			}
 
-			lineScan = new Scanner(lastLine);
+			try {
+				nextTime = parseDouble();
+				nextId = readToken();
+				nextX = parseDouble();
+				nextY = parseDouble();
+			} catch (NumberFormatException e) {
+				throw new SettingsError("Invalid line '" +
+						lineText(lineStart) + "'");
+			}
+			skipLine();
+			return true;
+		}
+		close();
+		return false;
+	}
 
+	/**
+	 * Returns the byte at the given position of the file. Maps a new window
+	 * of the file if the position is outside of the current window.
+	 */
+	private byte at(long p) {
+		if (p < windowStart || p >= windowEnd) {
 			try {
-				time = lineScan.nextDouble();
-				id = lineScan.next();
-				x = lineScan.nextDouble();
-				y = lineScan.nextDouble();
-			} catch (Exception e) {
-				throw new SettingsError("Invalid line '" + lastLine + "'");
+				long length = Math.min(WINDOW_SIZE, size - p);
+				window = channel.map(FileChannel.MapMode.READ_ONLY, p, length);
+				windowStart = p;
+				windowEnd = p + length;
+			} catch (IOException e) {
+				throw new SimError("Couldn't read external movement data", e);
 			}
+		}
+		return window.get((int)(p - windowStart));
+	}
+
+	private static boolean isLineEnd(byte b) {
+		return b == '\n' || b == '\r';
+	}
+
+	private static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\f' || b == 0x0B;
+	}
+
+	private void skipSpaces() {
+		while (pos < size && isSpace(at(pos))) {
+			pos++;
+		}
+	}
 
-			if (normalize) {
-				time -= minTime;
-				x -= minX;
-				y -= minY;
+	/**
+	 * Skips the rest of the current line and the line terminator
+	 */
+	private void skipLine() {
+		while (pos < size && !isLineEnd(at(pos))) {
+			pos++;
+		}
+		if (pos < size && at(pos) == '\r') {
+			pos++;
+		}
+		if (pos < size && at(pos) == '\n') {
+			pos++;
+		}
+	}
+
+	/**
+	 * Returns the text of the line that starts at the given position
+	 */
+	private String lineText(long lineStart) {
+		StringBuilder sb = new StringBuilder();
+		for (long p = lineStart; p < size && !isLineEnd(at(p)); p++) {
+			sb.append((char)(at(p) & 0xff));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Reads a whitespace delimited token
+	 * @throws NumberFormatException if there is no token on the line
+	 */
+	private String readToken() {
+		skipSpaces();
+		int n = 0;
+		while (pos < size && !isSpace(at(pos)) && !isLineEnd(at(pos))) {
+			if (n == idBuffer.length) {
+				byte[] newBuffer = new byte[n * 2];
+				System.arraycopy(idBuffer, 0, newBuffer, 0, n);
+				idBuffer = newBuffer;
 			}
+			idBuffer[n++] = at(pos++);
+		}
+		if (n == 0) {
+			throw new NumberFormatException("Missing token");
 		}
+		return new String(idBuffer, 0, n, Charset.defaultCharset());
+	}
+
+	/**
+	 * Parses a decimal number (see {@link DecimalParser})
+	 * @throws NumberFormatException if the next token is not a number
+	 */
+	private double parseDouble() {
+		skipSpaces();
+		double value = numbers.parse(source, pos);
+		pos = numbers.getEnd();
+		return value;
+	}
 
-		if (!scanner.hasNextLine()) {	// add the last tuple of the file
-			moves.add(new Tuple<String, Coord>(id, new Coord(x,y)));
+	/**
+	 * Closes the input file
+	 */
+	private void close() {
+		if (file == null) {
+			return;
+		}
+		try {
+			file.close();
+		} catch (IOException e) {
+			throw new SimError(e);
 		}
+		file = null;
+		window = null;
+		windowStart = windowEnd = 0;
+	}
 
-		return moves;
+	/**
+	 * Converts a text trace to the binary format. The binary file has the
+	 * offset header and a block of <CODE>(id index, x, y)</CODE> entries per
+	 * time stamp. The ids are stored once, when they first appear, and the
+	 * coordinates are stored as floats relative to the minimum coordinates
+	 * of the header, so they lose precision below about 1/10 000 000 of the
+	 * area's size.
+	 * @param textFile Path to the text trace
+	 * @param binFile Path to the binary file; {@link #BINARY_EXT} is
+	 * appended if the name doesn't end with it
+	 * @throws IOException if something in storing went wrong
+	 */
+	public static void storeToBinaryFile(String textFile, String binFile)
+			throws IOException {
+		if (!binFile.endsWith(BINARY_EXT)) {
+			binFile += BINARY_EXT;
+		}
+
+		ExternalMovementReader r = new ExternalMovementReader(textFile);
+		r.setNormalize(false);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(binFile), 1 << 16));
+		try {
+			out.writeInt(BINARY_MAGIC);
+			out.writeInt(BINARY_VERSION);
+			out.writeDouble(r.minTime);
+			out.writeDouble(r.maxTime);
+			out.writeDouble(r.minX);
+			out.writeDouble(r.maxX);
+			out.writeDouble(r.minY);
+			out.writeDouble(r.maxY);
+
+			Map<String, Integer> ids = new HashMap<String, Integer>();
+			List<Tuple<String, Coord>> moves;
+			while ((moves = r.readNextMovements()).size() > 0) {
+				out.writeInt(moves.size());
+				out.writeDouble(r.getLastTimeStamp());
+				for (Tuple<String, Coord> t : moves) {
+					Integer index = ids.get(t.getKey());
+					if (index == null) {
+						ids.put(t.getKey(), ids.size());
+						out.writeInt(NEW_ID);
+						out.writeUTF(t.getKey());
+					}
+					else {
+						out.writeInt(index);
+					}
+					out.writeFloat((float)(t.getValue().getX() - r.minX));
+					out.writeFloat((float)(t.getValue().getY() - r.minY));
+				}
+			}
+			out.writeInt(END_OF_BLOCKS);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Converts a text trace to the binary format.
+	 * Usage: <CODE>ExternalMovementReader textFile binaryFile</CODE>
+	 * @param args The text and binary file paths
+	 * @throws IOException if the conversion failed
+	 * @see #storeToBinaryFile(String, String)
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: ExternalMovementReader textFile " +
+					"binaryFile");
+			System.exit(1);
+		}
+		storeToBinaryFile(args[0], args[1]);
 	}
 
 	/**
@@ -5,13 +5,19 @@
 package input;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import movement.map.MapNode;
 import movement.map.SimMap;
@@ -20,14 +26,17 @@ import core.Coord;
 /**
  * "Well-known text syntax" map data reader.<BR>
  * <STRONG>Note</STRONG>: Understands only <CODE>LINESTRING</CODE>s and
- * <CODE>MULTILINESTRING</CODE>s. Skips all <CODE>POINT</CODE> data.
- * Other data causes IOException.
+ * <CODE>MULTILINESTRING</CODE>s. Skips all other data.
+ * The data is parsed with a {@link WKTTokenizer}; multiple files are
+ * parsed in parallel (see {@link #addPaths(List, int)}).
  */
 public class WKTMapReader extends WKTReader {
 	private Hashtable<Coord, MapNode> nodes;
 	/** are all paths bidirectional */
 	private boolean bidirectionalPaths = true;
 	private int nodeType = -1;
+	/** index of the read nodes by their coordinates */
+	private NodeIndex index;
 
 	/**
 	 * Constructor. Creates a new WKT reader ready for addPaths() calls.
@@ -37,6 +46,7 @@ public class WKTMapReader extends WKTReader {
 	public WKTMapReader(boolean bidi) {
 		this.bidirectionalPaths = bidi;
 		this.nodes = new Hashtable<Coord, MapNode>();
+		this.index = new NodeIndex();
 	}
 
 	/**
@@ -78,9 +88,56 @@ public class WKTMapReader extends WKTReader {
 	 * @throws IOException If something went wrong while reading the file
 	 */
 	public void addPaths(File file, int type) throws IOException {
-		addPaths(new FileReader(file), type);
+		addPaths(Collections.singletonList(file), type);
 	}
 
+	/**
+	 * Adds paths of multiple files to the map. The files are parsed in
+	 * parallel and then added in the order of the list, so the result is the
+	 * same as adding the files one by one.
+	 * @param files The files where the WKT data is read from
+	 * @param firstType The type of the first file's nodes; the types of the
+	 * other files' nodes are the following integers
+	 * @throws IOException If something went wrong while reading the files
+	 */
+	public void addPaths(List<File> files, int firstType) throws IOException {
+		List<WKTTokenizer> parsed = new ArrayList<WKTTokenizer>();
+		if (files.size() == 1) {
+			parsed.add(WKTTokenizer.parse(files.get(0)));
+		}
+		else if (files.size() > 1) {
+			ExecutorService pool = Executors.newFixedThreadPool(Math.min(
+					files.size(), Runtime.getRuntime().availableProcessors()));
+			try {
+				List<Future<WKTTokenizer>> results =
+					new ArrayList<Future<WKTTokenizer>>();
+				for (final File f : files) {
+					results.add(pool.submit(new Callable<WKTTokenizer>() {
+						public WKTTokenizer call() throws IOException {
+							return WKTTokenizer.parse(f);
+						}
+					}));
+				}
+				for (Future<WKTTokenizer> result : results) {
+					parsed.add(result.get());
+				}
+			} catch (InterruptedException e) {
+				throw new IOException("Interrupted while reading map files");
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException)e.getCause();
+				}
+				throw new IOException(e.getCause().toString());
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		for (int i = 0; i < parsed.size(); i++) {
+			this.nodeType = firstType + i;
+			updateMap(parsed.get(i));
+		}
+	}
 
 	/**
 	 * Add paths to current path set. Adding paths multiple times
@@ -92,54 +149,43 @@ public class WKTMapReader extends WKTReader {
 	 */
 	public void addPaths(Reader input, int nodeType) throws IOException {
 		this.nodeType = nodeType;
-		String type;
-		String contents;
-
-		init(input);
-
-		while((type = nextType()) != null) {
-			if (type.equals(LINESTRING)) {
-				contents = readNestedContents();
-				updateMap(parseLineString(contents));
-			}
-			else if (type.equals(MULTILINESTRING)) {
-				for (List<Coord> list : parseMultilinestring()) {
-					updateMap(list);
-				}
-			}
-			else {
-				// known type but not interesting -> skip
-				readNestedContents();
-			}
-		}
+		updateMap(WKTTokenizer.parse(input));
 	}
 
 	/**
-	 * Updates simulation map with coordinates in the list
-	 * @param coords The list of coordinates
+	 * Updates simulation map with the lines of a tokenizer
+	 * @param lines The tokenizer with the parsed lines
 	 */
-	private void updateMap(List<Coord> coords) {
-		MapNode previousNode = null;
-		for (Coord c : coords) {
-			previousNode = createOrUpdateNode(c, previousNode);
+	private void updateMap(WKTTokenizer lines) {
+		for (int l = 0, n = lines.getNrofLines(); l < n; l++) {
+			MapNode previousNode = null;
+			for (int i = lines.getLineStart(l), end = lines.getLineStart(l+1);
+					i < end; i++) {
+				previousNode = createOrUpdateNode(lines.getX(i),
+						lines.getY(i), previousNode);
+			}
 		}
 	}
 
 	/**
-	 * Creates or updates a node that is in location c and next to
+	 * Creates or updates a node that is in location (x,y) and next to
 	 * node previous
-	 * @param c The location coordinates of the node
-	 * @param previous Previous node whose neighbor node at c is
+	 * @param x The x coordinate of the node
+	 * @param y The y coordinate of the node
+	 * @param previous Previous node whose neighbor node at (x,y) is
 	 * @return The created/updated node
 	 */
-	private MapNode createOrUpdateNode(Coord c, MapNode previous) {
-		MapNode n = null;
-
-		n = nodes.get(c);	// try to get the node at that location
+	private MapNode createOrUpdateNode(double x, double y, MapNode previous) {
+		MapNode n = index.get(x, y); // try to get the node at that location
 
 		if (n == null) { 	// no node in that location -> create new
-			n = new MapNode(c);
-			nodes.put(c, n);
+			Coord c = new Coord(x, y);
+			n = nodes.get(c);
+			if (n == null) {
+				n = new MapNode(c);
+				nodes.put(c, n);
+			}
+			index.put(x, y, n);
 		}
 
 		if (previous != null) {
@@ -156,4 +202,68 @@ public class WKTMapReader extends WKTReader {
 		return n;
 	}
 
+	/**
+	 * Open addressing hash table from the bits of node coordinates to the
+	 * nodes. Finds the node of a coordinate pair without creating a
+	 * {@link Coord} and hashing its string presentation.
+	 */
+	private static class NodeIndex {
+		private long[] xBits = new long[1024];
+		private long[] yBits = new long[1024];
+		private MapNode[] values = new MapNode[1024];
+		private int size = 0;
+
+		private MapNode get(double x, double y) {
+			long xb = Double.doubleToLongBits(x);
+			long yb = Double.doubleToLongBits(y);
+			int mask = values.length - 1;
+			for (int i = slot(xb, yb, mask); values[i] != null;
+					i = (i + 1) & mask) {
+				if (xBits[i] == xb && yBits[i] == yb) {
+					return values[i];
+				}
+			}
+			return null;
+		}
+
+		private void put(double x, double y, MapNode node) {
+			if (2 * (size + 1) > values.length) {
+				grow();
+			}
+			insert(Double.doubleToLongBits(x), Double.doubleToLongBits(y),
+					node);
+			size++;
+		}
+
+		private void insert(long xb, long yb, MapNode node) {
+			int mask = values.length - 1;
+			int i = slot(xb, yb, mask);
+			while (values[i] != null) {
+				i = (i + 1) & mask;
+			}
+			xBits[i] = xb;
+			yBits[i] = yb;
+			values[i] = node;
+		}
+
+		private void grow() {
+			long[] oldX = xBits;
+			long[] oldY = yBits;
+			MapNode[] oldValues = values;
+			xBits = new long[oldValues.length * 2];
+			yBits = new long[oldValues.length * 2];
+			values = new MapNode[oldValues.length * 2];
+			for (int i = 0; i < oldValues.length; i++) {
+				if (oldValues[i] != null) {
+					insert(oldX[i], oldY[i], oldValues[i]);
+				}
+			}
+		}
+
+		private static int slot(long xb, long yb, int mask) {
+			long h = (xb * 31 + yb) * 0x9E3779B97F4A7C15L;
+			return (int)(h >>> 32) & mask;
+		}
+	}
+
 }
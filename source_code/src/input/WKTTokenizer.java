@@ -0,0 +1,264 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package input;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Fast tokenizer for the line data of "Well-known text syntax" input. Parses
+ * <CODE>LINESTRING</CODE>s and <CODE>MULTILINESTRING</CODE>s from a
+ * {@link CharBuffer} straight into primitive coordinate arrays without
+ * creating intermediate strings or {@link core.Coord} objects. Other WKT
+ * types are skipped. The coordinates of line <CODE>l</CODE> are at indexes
+ * {@link #getLineStart(int) getLineStart(l)} ...
+ * {@link #getLineStart(int) getLineStart(l+1)}-1.
+ */
+public class WKTTokenizer {
+	private final CharBuffer text;
+	private final int length;
+	private int pos;
+	private final DecimalParser numbers = new DecimalParser();
+	/** the text for the number parser */
+	private final DecimalParser.Source source = new DecimalParser.Source() {
+		public long length() {
+			return length;
+		}
+
+		public char charAt(long p) {
+			return text.get((int)p);
+		}
+
+		public boolean isDelimiter(char c) {
+			return c == ',' || c == ')' || Character.isWhitespace(c);
+		}
+	};
+
+	private double[] xs = new double[64];
+	private double[] ys = new double[64];
+	private int nrofCoords = 0;
+	/** index of the first coordinate of each line (and the end index) */
+	private int[] lineStarts = new int[16];
+	private int nrofLines = 0;
+
+	/**
+	 * Creates a tokenizer for the given text. Call {@link #parse()} to parse
+	 * it.
+	 * @param text The WKT data
+	 */
+	public WKTTokenizer(CharBuffer text) {
+		this.text = text;
+		this.length = text.limit();
+		this.pos = text.position();
+	}
+
+	/**
+	 * Parses all lines of a file. The file is read through a memory mapped
+	 * channel and decoded with the platform's default charset.
+	 * @param file The file
+	 * @return The tokenizer with the lines of the file
+	 * @throws IOException if the file couldn't be read or parsed
+	 */
+	public static WKTTokenizer parse(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		CharBuffer text;
+		try {
+			FileChannel channel = raf.getChannel();
+			text = Charset.defaultCharset().decode(channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			raf.close();
+		}
+		WKTTokenizer t = new WKTTokenizer(text);
+		t.parse();
+		return t;
+	}
+
+	/**
+	 * Parses all lines of a reader's data
+	 * @param input The reader
+	 * @return The tokenizer with the lines of the data
+	 * @throws IOException if the data couldn't be read or parsed
+	 */
+	public static WKTTokenizer parse(Reader input) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		char[] buf = new char[8192];
+		int n;
+		while ((n = input.read(buf)) > 0) {
+			sb.append(buf, 0, n);
+		}
+		WKTTokenizer t = new WKTTokenizer(CharBuffer.wrap(sb));
+		t.parse();
+		return t;
+	}
+
+	/**
+	 * Parses the text
+	 * @throws IOException if the text has invalid line data
+	 */
+	public void parse() throws IOException {
+		while (true) {
+			skipWhitespace();
+			if (pos >= length) {
+				break;
+			}
+			int start = pos;
+			while (pos < length && text.get(pos) != '(' &&
+					!Character.isWhitespace(text.get(pos))) {
+				pos++;
+			}
+			String type = text.subSequence(start - text.position(),
+					pos - text.position()).toString();
+
+			if (type.equals(WKTReader.LINESTRING)) {
+				expect('(');
+				parseLine();
+			}
+			else if (type.equals(WKTReader.MULTILINESTRING)) {
+				expect('(');
+				do {
+					expect('(');
+					parseLine();
+					skipWhitespace();
+				} while (pos < length && text.get(pos++) == ',');
+			}
+			else {
+				skipNestedContents();
+			}
+		}
+		lineStarts[nrofLines] = nrofCoords;
+	}
+
+	/**
+	 * Returns the number of parsed lines
+	 * @return the number of parsed lines
+	 */
+	public int getNrofLines() {
+		return this.nrofLines;
+	}
+
+	/**
+	 * Returns the index of the first coordinate of a line
+	 * @param line Index of the line; {@link #getNrofLines()} gives the end
+	 * index of the last line
+	 * @return the index of the first coordinate
+	 */
+	public int getLineStart(int line) {
+		return this.lineStarts[line];
+	}
+
+	/**
+	 * Returns the x coordinate of a point
+	 * @param i Index of the point
+	 * @return the x coordinate
+	 */
+	public double getX(int i) {
+		return this.xs[i];
+	}
+
+	/**
+	 * Returns the y coordinate of a point
+	 * @param i Index of the point
+	 * @return the y coordinate
+	 */
+	public double getY(int i) {
+		return this.ys[i];
+	}
+
+	/**
+	 * Parses comma separated coordinate tuples until the closing parenthesis
+	 * of the line. Only the first two values of each tuple are used.
+	 */
+	private void parseLine() throws IOException {
+		if (nrofLines + 1 >= lineStarts.length) {
+			lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+		}
+		lineStarts[nrofLines++] = nrofCoords;
+
+		skipWhitespace();
+		if (pos < length && text.get(pos) == ')') {
+			pos++;
+			return; // empty line
+		}
+		while (true) {
+			double x = parseDouble();
+			double y = parseDouble();
+			if (nrofCoords == xs.length) {
+				xs = Arrays.copyOf(xs, nrofCoords * 2);
+				ys = Arrays.copyOf(ys, nrofCoords * 2);
+			}
+			xs[nrofCoords] = x;
+			ys[nrofCoords] = y;
+			nrofCoords++;
+
+			/* skip possible extra dimensions of the tuple */
+			while (pos < length && text.get(pos) != ',' &&
+					text.get(pos) != ')') {
+				pos++;
+			}
+			if (pos >= length) {
+				throw new IOException("Unterminated line data");
+			}
+			if (text.get(pos++) == ')') {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Parses a decimal number (see {@link DecimalParser})
+	 */
+	private double parseDouble() throws IOException {
+		skipWhitespace();
+		double value;
+		try {
+			value = numbers.parse(source, pos);
+		} catch (NumberFormatException e) {
+			throw new IOException("Bad coordinate value: " + e.getMessage());
+		}
+		pos = (int)numbers.getEnd();
+		return value;
+	}
+
+	private void skipWhitespace() {
+		while (pos < length && Character.isWhitespace(text.get(pos))) {
+			pos++;
+		}
+	}
+
+	private void expect(char c) throws IOException {
+		skipWhitespace();
+		if (pos >= length || text.get(pos) != c) {
+			throw new IOException("Expected '" + c + "' at character " + pos);
+		}
+		pos++;
+	}
+
+	/**
+	 * Skips everything until and including the next parenthesised block
+	 */
+	private void skipNestedContents() {
+		while (pos < length && text.get(pos) != '(') {
+			pos++;
+		}
+		int parOpen = 0;
+		for (; pos < length; pos++) {
+			char c = text.get(pos);
+			if (c == '(') {
+				parOpen++;
+			}
+			else if (c == ')' && --parOpen == 0) {
+				pos++;
+				return;
+			}
+		}
+	}
+}
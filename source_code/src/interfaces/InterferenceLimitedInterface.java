@@ -99,7 +99,7 @@ public class InterferenceLimitedInterface extends NetworkInterface {
 		}
 		// Then find new possible connections
 		Collection<NetworkInterface> interfaces =
-			optimizer.getNearInterfaces(this);
+			getNearInterfaces();
 		for (NetworkInterface i : interfaces)
 			connect(i);
 
@@ -88,7 +88,7 @@ public class SimpleBroadcastInterface extends NetworkInterface {
 		}
 		// Then find new possible connections
 		Collection<NetworkInterface> interfaces =
-			optimizer.getNearInterfaces(this);
+			getNearInterfaces();
 		for (NetworkInterface i : interfaces) {
 			connect(i);
 		}
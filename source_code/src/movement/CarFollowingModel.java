@@ -0,0 +1,257 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement;
+
+import java.util.Arrays;
+import java.util.List;
+
+import movement.map.EdgeOccupancyIndex;
+import core.DTNHost;
+import core.Settings;
+
+/**
+ * <P>Car following model that controls the speed of cars with acceleration
+ * and braking limits. The speed follows the Intelligent Driver Model (IDM):
+ * a car accelerates towards the speed of its path on a free road and keeps
+ * a safe, speed dependent gap to the car ahead of it on the same lane.</P>
+ *
+ * <P>A lane is the road between two consecutive waypoints, i.e., an edge
+ * of the {@link EdgeOccupancyIndex}. The leader of a car is the closest car
+ * ahead of it on the same edge that is on a path; the other hosts on the
+ * edge, e.g. pedestrians, are passed over. All the speeds are computed from
+ * the speeds before the update.</P>
+ *
+ * <P>The speeds are set with {@link DTNHost#setActualSpeed(double)} and the
+ * cars then move normally. Cars that have to yield (aren't active) or
+ * aren't on a path stop.</P>
+ */
+public class CarFollowingModel {
+	/** name space of the car following settings ({@value}) */
+	public static final String CAR_FOLLOWING_NS = "CarFollowing";
+	/**
+	 * Should the speeds of the cars be controlled by the car following model
+	 * -setting id ({@value}). Boolean (true/false) variable. Default is
+	 * false.
+	 */
+	public static final String ENABLED_S = "enabled";
+	/**
+	 * Maximum acceleration (m/s^2) -setting id ({@value}). Default is
+	 * {@link #DEF_MAX_ACCELERATION}.
+	 */
+	public static final String MAX_ACCELERATION_S = "maxAcceleration";
+	/**
+	 * Comfortable deceleration (m/s^2) -setting id ({@value}). Default is
+	 * {@link #DEF_COMFORT_DECELERATION}.
+	 */
+	public static final String COMFORT_DECELERATION_S = "comfortDeceleration";
+	/**
+	 * Maximum deceleration (m/s^2), i.e., the braking limit -setting id
+	 * ({@value}). Default is {@link #DEF_MAX_DECELERATION}.
+	 */
+	public static final String MAX_DECELERATION_S = "maxDeceleration";
+	/**
+	 * Minimum gap (meters) to the car ahead when standing -setting id
+	 * ({@value}). Default is {@link #DEF_MIN_GAP}.
+	 */
+	public static final String MIN_GAP_S = "minGap";
+	/**
+	 * Time headway (seconds) to the car ahead -setting id ({@value}).
+	 * Default is {@link #DEF_TIME_HEADWAY}.
+	 */
+	public static final String TIME_HEADWAY_S = "timeHeadway";
+	/**
+	 * Length of a car (meters) -setting id ({@value}). Default is
+	 * {@link #DEF_VEHICLE_LENGTH}.
+	 */
+	public static final String VEHICLE_LENGTH_S = "vehicleLength";
+
+	/** default maximum acceleration ({@value}) */
+	public static final double DEF_MAX_ACCELERATION = 1.5;
+	/** default comfortable deceleration ({@value}) */
+	public static final double DEF_COMFORT_DECELERATION = 2.0;
+	/** default maximum deceleration ({@value}) */
+	public static final double DEF_MAX_DECELERATION = 8.0;
+	/** default minimum gap ({@value}) */
+	public static final double DEF_MIN_GAP = 2.0;
+	/** default time headway ({@value}) */
+	public static final double DEF_TIME_HEADWAY = 1.5;
+	/** default vehicle length ({@value}) */
+	public static final double DEF_VEHICLE_LENGTH = 5.0;
+
+	private final double maxAcceleration;
+	private final double maxDeceleration;
+	private final double minGap;
+	private final double timeHeadway;
+	private final double vehicleLength;
+	/** 2 * sqrt(maxAcceleration * comfortDeceleration) */
+	private final double brakingTerm;
+
+	/** index of each car in the update's arrays by the car's address */
+	private int[] carIndex;
+	/** offsets of the cars along their edges (negative if not on a path) */
+	private double[] pos;
+	/** speeds of the cars before the update */
+	private double[] v;
+	/** desired speeds of the cars */
+	private double[] v0;
+
+	/**
+	 * Creates a model based on the settings
+	 * @param s Settings in the {@link #CAR_FOLLOWING_NS} name space
+	 */
+	public CarFollowingModel(Settings s) {
+		this(s.getDouble(MAX_ACCELERATION_S, DEF_MAX_ACCELERATION),
+				s.getDouble(COMFORT_DECELERATION_S,
+						DEF_COMFORT_DECELERATION),
+				s.getDouble(MAX_DECELERATION_S, DEF_MAX_DECELERATION),
+				s.getDouble(MIN_GAP_S, DEF_MIN_GAP),
+				s.getDouble(TIME_HEADWAY_S, DEF_TIME_HEADWAY),
+				s.getDouble(VEHICLE_LENGTH_S, DEF_VEHICLE_LENGTH));
+		s.ensurePositiveValue(maxAcceleration, MAX_ACCELERATION_S);
+		s.ensurePositiveValue(s.getDouble(COMFORT_DECELERATION_S,
+				DEF_COMFORT_DECELERATION), COMFORT_DECELERATION_S);
+		s.ensurePositiveValue(maxDeceleration, MAX_DECELERATION_S);
+		s.ensurePositiveValue(minGap, MIN_GAP_S);
+		s.ensurePositiveValue(timeHeadway, TIME_HEADWAY_S);
+		s.ensurePositiveValue(vehicleLength, VEHICLE_LENGTH_S);
+	}
+
+	/**
+	 * Constructor.
+	 * @param maxAcceleration Maximum acceleration (m/s^2)
+	 * @param comfortDeceleration Comfortable deceleration (m/s^2)
+	 * @param maxDeceleration Maximum deceleration (m/s^2)
+	 * @param minGap Minimum gap (meters) to the car ahead
+	 * @param timeHeadway Time headway (seconds) to the car ahead
+	 * @param vehicleLength Length of a car (meters)
+	 */
+	public CarFollowingModel(double maxAcceleration,
+			double comfortDeceleration, double maxDeceleration, double minGap,
+			double timeHeadway, double vehicleLength) {
+		this.maxAcceleration = maxAcceleration;
+		this.maxDeceleration = maxDeceleration;
+		this.minGap = minGap;
+		this.timeHeadway = timeHeadway;
+		this.vehicleLength = vehicleLength;
+		this.brakingTerm = 2 * Math.sqrt(maxAcceleration *
+				comfortDeceleration);
+		this.carIndex = new int[0];
+		this.pos = new double[0];
+		this.v = new double[0];
+		this.v0 = new double[0];
+	}
+
+	/**
+	 * Sets the speeds of the cars for the next move
+	 * @param cars The cars
+	 * @param index Index of the hosts on the map edges where the leaders of
+	 * the cars are found
+	 * @param timeIncrement How long the cars move with the speeds
+	 */
+	public void update(List<DTNHost> cars, EdgeOccupancyIndex index,
+			double timeIncrement) {
+		int n = cars.size();
+		if (v.length < n) {
+			pos = new double[n];
+			v = new double[n];
+			v0 = new double[n];
+		}
+		for (int i = 0; i < n; i++) {
+			int address = cars.get(i).getAddress();
+			if (address >= carIndex.length) {
+				carIndex = Arrays.copyOf(carIndex, address + 1);
+			}
+		}
+		Arrays.fill(carIndex, -1);
+
+		for (int i = 0; i < n; i++) {
+			DTNHost car = cars.get(i);
+			v[i] = car.getActualSpeed();
+			if (car.getPath() == null || car.getDestination() == null ||
+					car.getPreviousWaypoint() == null ||
+					!car.isMovementActive()) {
+				pos[i] = -1;
+				continue;
+			}
+			carIndex[car.getAddress()] = i;
+			pos[i] = index.getOffset(car);
+			v0[i] = (car.getActive() ? car.getSpeed() : 0);
+		}
+
+		for (int i = 0; i < n; i++) {
+			DTNHost car = cars.get(i);
+			if (carIndex[car.getAddress()] != i) {
+				car.setActualSpeed(0); /* starts from standstill */
+				continue;
+			}
+			int leader = -1;
+			for (DTNHost h = index.getLeader(car); h != null && leader < 0;
+					h = index.getLeader(h)) {
+				int address = h.getAddress();
+				leader = (address < carIndex.length ? carIndex[address] : -1);
+			}
+			car.setActualSpeed(leader < 0 ?
+					nextSpeed(v[i], v0[i], Double.POSITIVE_INFINITY, 0,
+							timeIncrement) :
+					nextSpeed(v[i], v0[i], pos[leader] - pos[i], v[leader],
+							timeIncrement));
+		}
+	}
+
+	/**
+	 * Updates the speeds of the cars of one lane in place. The cars must be
+	 * sorted by their position so that the car ahead of car i is car i+1;
+	 * the last car has a free road.
+	 * @param n Number of cars
+	 * @param pos Positions of the cars (meters from the start of the lane)
+	 * @param v Speeds of the cars; set to the new speeds
+	 * @param v0 Desired speeds of the cars; a car whose desired speed isn't
+	 * positive stops
+	 * @param dt Time step (seconds)
+	 */
+	public void accelerate(int n, double[] pos, double[] v, double[] v0,
+			double dt) {
+		/* the car ahead is read before it's updated */
+		for (int i = 0; i < n; i++) {
+			v[i] = (i + 1 < n ?
+					nextSpeed(v[i], v0[i], pos[i + 1] - pos[i], v[i + 1], dt) :
+					nextSpeed(v[i], v0[i], Double.POSITIVE_INFINITY, 0, dt));
+		}
+	}
+
+	/**
+	 * Returns the speed of a car after a time step
+	 * @param v Speed of the car
+	 * @param v0 Desired speed of the car; a car whose desired speed isn't
+	 * positive stops
+	 * @param distance Distance to the car ahead (infinite on a free road)
+	 * @param leaderSpeed Speed of the car ahead
+	 * @param dt Time step (seconds)
+	 * @return The new speed
+	 */
+	private double nextSpeed(double v, double v0, double distance,
+			double leaderSpeed, double dt) {
+		if (v0 <= 0) {
+			return 0;
+		}
+		double ratio = v / v0;
+		double ratio2 = ratio * ratio;
+		double acc = maxAcceleration * (1 - ratio2 * ratio2);
+
+		if (distance != Double.POSITIVE_INFINITY) {
+			double gap = Math.max(distance - vehicleLength, 0.01);
+			double dv = v - leaderSpeed;
+			double sStar = minGap + Math.max(0, v * timeHeadway +
+					v * dv / brakingTerm);
+			double s = sStar / gap;
+			acc -= maxAcceleration * s * s;
+		}
+
+		if (acc < -maxDeceleration) {
+			acc = -maxDeceleration;
+		}
+		return Math.max(0, v + acc * dt);
+	}
+}
@@ -6,8 +6,10 @@ package movement;
 
 import java.util.List;
 
+import movement.map.ContractionHierarchy;
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathCache;
 import core.Coord;
 import core.Settings;
 
@@ -30,7 +32,9 @@ public class CarMovement extends MapBasedMovement implements
 	 */
 	public CarMovement(Settings settings) {
 		super(settings);
-		pathFinder = new DijkstraPathFinder(getOkMapNodeTypes());
+		pathFinder = new DijkstraPathFinder(getOkMapNodeTypes(),
+				PathCache.getInstance(),
+				ContractionHierarchy.isEnabled());
 	}
 
 	/**
@@ -10,13 +10,13 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
 import java.util.Set;
 import java.util.Vector;
 
+import movement.map.BinaryMapCache;
 import movement.map.MapNode;
 import movement.map.SimMap;
 import core.Coord;
@@ -45,6 +45,14 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 	public static final String NROF_FILES_S = "nrofMapFiles";
 	/** map file -setting id ({@value})*/
 	public static final String FILE_S = "mapFile";
+	/**
+	 * Directory of the compiled binary map files -setting id ({@value}).
+	 * If set, the map is read from a binary file there (see
+	 * {@link BinaryMapCache}) instead of parsing the map files, and the
+	 * binary file is written there when it doesn't exist yet.
+	 * By default the map files are always parsed.
+	 */
+	public static final String MAP_CACHE_DIR_S = "mapCacheDir";
 
 	/**
 	 * Per node group setting for selecting map node types that are OK for
@@ -285,11 +293,30 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 
 		try {
 			int nrofMapFiles = settings.getInt(NROF_FILES_S);
+			List<File> mapFiles = new ArrayList<File>();
 
 			for (int i = 1; i <= nrofMapFiles; i++ ) {
 				String pathFile = settings.getSetting(FILE_S + i);
 				cachedMapFiles.add(pathFile);
-				r.addPaths(new File(pathFile), i);
+				mapFiles.add(new File(pathFile));
+			}
+
+			File cacheFile = null;
+			simMap = null;
+			if (settings.contains(MAP_CACHE_DIR_S)) {
+				cacheFile = BinaryMapCache.getCacheFile(
+						new File(settings.getSetting(MAP_CACHE_DIR_S)),
+						mapFiles);
+				simMap = BinaryMapCache.read(cacheFile);
+			}
+
+			if (simMap == null) {
+				r.addPaths(mapFiles, 1);
+				simMap = r.getMap();
+				checkMapConnectedness(simMap.getNodes());
+				if (cacheFile != null) {
+					BinaryMapCache.write(simMap, cacheFile);
+				}
 			}
 
 			nrofMapFilesRead = nrofMapFiles;
@@ -297,8 +324,6 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 			throw new SimError(e.toString(),e);
 		}
 
-		simMap = r.getMap();
-		checkMapConnectedness(simMap.getNodes());
 		// mirrors the map (y' = -y) and moves its upper left corner to origo
 		simMap.mirror();
 		Coord offset = simMap.getMinBound().clone();
@@ -410,19 +435,7 @@ public class MapBasedMovement extends MovementModel implements SwitchableMovemen
 	}
 
 	public void setLocation(Coord lastWaypoint) {
-		// TODO: This should be optimized
-		MapNode nearest = null;
-		double minDistance = Double.MAX_VALUE;
-		Iterator<MapNode> iterator = getMap().getNodes().iterator();
-		while (iterator.hasNext()) {
-			MapNode temp = iterator.next();
-			double distance = temp.getLocation().distance(lastWaypoint);
-			if (distance < minDistance) {
-				minDistance = distance;
-				nearest = temp;
-			}
-		}
-		lastMapNode = nearest;
+		lastMapNode = getMap().getNearestNode(lastWaypoint);
 	}
 
 	public boolean isReady() {
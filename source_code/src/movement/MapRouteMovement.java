@@ -7,9 +7,11 @@ package movement;
 import java.util.List;
 
 import core.SettingsError;
+import movement.map.ContractionHierarchy;
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
 import movement.map.MapRoute;
+import movement.map.PathCache;
 import core.Coord;
 import core.Settings;
 
@@ -60,7 +62,9 @@ public class MapRouteMovement extends MapBasedMovement implements
 		int type = settings.getInt(ROUTE_TYPE_S);
 		allRoutes = MapRoute.readRoutes(fileName, type, getMap());
 		nextRouteIndex = 0;
-		pathFinder = new DijkstraPathFinder(getOkMapNodeTypes());
+		pathFinder = new DijkstraPathFinder(getOkMapNodeTypes(),
+				PathCache.getInstance(),
+				ContractionHierarchy.isEnabled());
 		this.route = this.allRoutes.get(this.nextRouteIndex).replicate();
 		if (this.nextRouteIndex >= this.allRoutes.size()) {
 			this.nextRouteIndex = 0;
@@ -15,6 +15,7 @@ import core.ModuleCommunicationBus;
 import core.Settings;
 import core.SimClock;
 import core.SimError;
+import core.World;
 
 /**
  * <P>Superclass for all movement models. All subclasses must contain at least a
@@ -44,9 +45,25 @@ public abstract class MovementModel {
 	public static final String WORLD_SIZE = "worldSize";
 	/** movement models' rng seed -setting id ({@value})*/
 	public static final String RNG_SEED = "rngSeed";
+	/**
+	 * Should every host's movement model use its own random number stream
+	 * -setting id ({@value}). Boolean (true/false) variable. The streams are
+	 * seeded with the {@link #RNG_SEED} and the host's address, so the
+	 * results don't depend on the order the hosts are moved in. Default is
+	 * the value of {@link core.World#PARALLEL_MOVEMENT_S} setting.
+	 */
+	public static final String PER_HOST_RNG_S = "perHostRng";
 
 	/** common rng for all movement models in the simulation */
-	protected static Random rng;
+	private static Random sharedRng;
+	/** seed of the common rng and base seed of the per host rngs */
+	private static long rngSeed;
+	/** should the per host rngs be used */
+	private static boolean perHostRng;
+
+	/** rng of this movement model; the common rng unless per host rngs
+	 * are used and the model has been attached to a host */
+	protected Random rng;
 
 	/** DTNHost to which this movement model is attached */
 	protected DTNHost host;
@@ -93,6 +110,7 @@ public abstract class MovementModel {
 	 */
 	public MovementModel() {
 		super();
+		this.rng = sharedRng;
 	}
 
 	/**
@@ -103,6 +121,7 @@ public abstract class MovementModel {
 		double[] speeds;
 		double[] times;
 
+		this.rng = sharedRng;
 		ah = new ActivenessHandler(settings);
 
 		if (settings.contains(SPEED)) {
@@ -149,6 +168,7 @@ public abstract class MovementModel {
 		this.maxY = mm.maxY;
 		this.ah = mm.ah;
 		this.comBus = null;
+		this.rng = mm.rng;
 	}
 
 	/**
@@ -217,10 +237,16 @@ public abstract class MovementModel {
 	}
 
 	/**
+	 * Sets the host of this movement model. If per host random number
+	 * streams are in use, also creates the stream of the host.
 	 * @param host the host to set
 	 */
 	public void setHost(DTNHost host) {
 		this.host = host;
+		if (perHostRng && host != null) {
+			this.rng = new Random(rngSeed ^
+					(host.getAddress() * 0x9E3779B97F4A7C15L));
+		}
 	}
 
 	/**
@@ -277,12 +303,16 @@ public abstract class MovementModel {
 	public static void reset() {
 		Settings s = new Settings(MOVEMENT_MODEL_NS);
 		if (s.contains(RNG_SEED)) {
-			int seed = s.getInt(RNG_SEED);
-			rng = new Random(seed);
+			rngSeed = s.getInt(RNG_SEED);
 		}
 		else {
-			rng = new Random(0);
+			rngSeed = 0;
 		}
+		sharedRng = new Random(rngSeed);
+
+		boolean parallel = new Settings(World.OPTIMIZATION_SETTINGS_NS).
+			getBoolean(World.PARALLEL_MOVEMENT_S, false);
+		perHostRng = s.getBoolean(PER_HOST_RNG_S, parallel);
 	}
 
 }
@@ -102,6 +102,27 @@ public class Path  {
 		return (hasNext() ? coords.get(nextWpIndex) : null);
 	}
 
+	/**
+	 * Returns the index of the waypoint that {@link #getNextWaypoint()}
+	 * returns next
+	 * @return the index of the next waypoint in {@link #getCoords()}
+	 */
+	public int getNextWaypointIndex() {
+		return this.nextWpIndex;
+	}
+
+	/**
+	 * Returns the speed towards a waypoint of this path
+	 * @param wpIndex Index of the waypoint
+	 * @return the speed towards the waypoint or 0 if no speed is set
+	 */
+	public double getSpeedTo(int wpIndex) {
+		if (speeds.isEmpty()) {
+			return 0;
+		}
+		return speeds.get(speeds.size() == 1 ? 0 : wpIndex);
+	}
+
 	/**
 	 * Returns true if the path has more waypoints, false if not
 	 * @return true if the path has more waypoints, false if not
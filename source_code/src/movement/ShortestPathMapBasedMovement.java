@@ -6,8 +6,10 @@ package movement;
 
 import java.util.List;
 
+import movement.map.ContractionHierarchy;
 import movement.map.DijkstraPathFinder;
 import movement.map.MapNode;
+import movement.map.PathCache;
 import movement.map.PointsOfInterest;
 import core.Settings;
 
@@ -29,7 +31,9 @@ public class ShortestPathMapBasedMovement extends MapBasedMovement implements
 	 */
 	public ShortestPathMapBasedMovement(Settings settings) {
 		super(settings);
-		this.pathFinder = new DijkstraPathFinder(getOkMapNodeTypes());
+		this.pathFinder = new DijkstraPathFinder(getOkMapNodeTypes(),
+				PathCache.getInstance(),
+				ContractionHierarchy.isEnabled());
 		this.pois = new PointsOfInterest(getMap(), getOkMapNodeTypes(),
 				settings, rng);
 	}
@@ -48,7 +52,7 @@ public class ShortestPathMapBasedMovement extends MapBasedMovement implements
 	@Override
 	public Path getPath() {
 		Path p = new Path(generateSpeed());
-		MapNode to = pois.selectDestination();
+		MapNode to = pois.selectDestination(rng);
 
 		List<MapNode> nodePath = pathFinder.getShortestPath(lastMapNode, to);
 
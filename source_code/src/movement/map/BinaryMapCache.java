@@ -0,0 +1,206 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import util.SafeFileWriter;
+
+import core.Coord;
+import core.SimError;
+
+/**
+ * <P>Compiled binary form of a map that was read from WKT files, so that the
+ * text doesn't have to be parsed again in later runs. The file has the
+ * layout<BR>
+ * <CODE>magic(4) version(4) nrofNodes(4) nrofEdges(4) x(8 each)
+ * y(8 each) typeMask(4 each) edgeOffset(4 each, nrofNodes+1)
+ * neighbor(4 each)</CODE><BR>
+ * i.e., the node coordinates, the node type bit masks and the neighbors in
+ * compressed sparse row form, all in the order of the map's node list. The
+ * file is read through a memory mapped {@link FileChannel}.</P>
+ *
+ * <P>The cache files are named by a hash of the contents of the map files
+ * (see {@link #getCacheFile(File, List)}), so a changed map file is never
+ * read from a stale cache. The map is stored as read from the files, before
+ * it is mirrored and translated.</P>
+ */
+public class BinaryMapCache {
+	private static final int MAGIC = 0x4f4e454d; // "ONEM"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 * 4;
+
+	/** this is a static utility class */
+	private BinaryMapCache() { }
+
+	/**
+	 * Returns the cache file of a set of map files
+	 * @param cacheDir The cache directory
+	 * @param mapFiles The map files in the order of their types
+	 * @return The cache file (that may not exist yet)
+	 * @throws IOException if the map files can't be read
+	 */
+	public static File getCacheFile(File cacheDir, List<File> mapFiles)
+			throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new SimError("No SHA-1 digest available", e);
+		}
+		byte[] buf = new byte[64 * 1024];
+		for (File f : mapFiles) {
+			InputStream in = new FileInputStream(f);
+			try {
+				int n;
+				while ((n = in.read(buf)) > 0) {
+					digest.update(buf, 0, n);
+				}
+			} finally {
+				in.close();
+			}
+			digest.update((byte)0); // file separator
+		}
+
+		StringBuilder name = new StringBuilder("map_");
+		for (byte b : digest.digest()) {
+			name.append(String.format("%02x", b));
+		}
+		return new File(cacheDir, name.append(".bin").toString());
+	}
+
+	/**
+	 * Reads a map from a cache file
+	 * @param file The cache file
+	 * @return The map or null if the file doesn't exist or is not a valid
+	 * cache file
+	 * @throws IOException if the file can't be read
+	 */
+	public static SimMap read(File file) throws IOException {
+		if (!file.isFile()) {
+			return null;
+		}
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() < HEADER_SIZE) {
+				return null;
+			}
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size());
+			if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+				return null;
+			}
+			int nrofNodes = buf.getInt();
+			int nrofEdges = buf.getInt();
+			if (channel.size() != fileSize(nrofNodes, nrofEdges)) {
+				return null; // truncated
+			}
+
+			double[] xs = new double[nrofNodes];
+			double[] ys = new double[nrofNodes];
+			int[] types = new int[nrofNodes];
+			int[] offsets = new int[nrofNodes + 1];
+			int[] targets = new int[nrofEdges];
+			buf.asDoubleBuffer().get(xs);
+			buf.position(buf.position() + 8 * nrofNodes);
+			buf.asDoubleBuffer().get(ys);
+			buf.position(buf.position() + 8 * nrofNodes);
+			buf.asIntBuffer().get(types);
+			buf.position(buf.position() + 4 * nrofNodes);
+			buf.asIntBuffer().get(offsets);
+			buf.position(buf.position() + 4 * (nrofNodes + 1));
+			buf.asIntBuffer().get(targets);
+
+			List<MapNode> nodes = new ArrayList<MapNode>(nrofNodes);
+			for (int i = 0; i < nrofNodes; i++) {
+				MapNode n = new MapNode(new Coord(xs[i], ys[i]));
+				for (int t = MapNode.MIN_TYPE; t <= MapNode.MAX_TYPE; t++) {
+					if ((types[i] & (1 << t)) != 0) {
+						n.addType(t);
+					}
+				}
+				nodes.add(n);
+			}
+			for (int i = 0; i < nrofNodes; i++) {
+				MapNode n = nodes.get(i);
+				for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+					n.addNeighbor(nodes.get(targets[e]));
+				}
+			}
+			return new SimMap(nodes);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Writes a map to a cache file (see {@link SafeFileWriter}).
+	 * @param map The map (as read from the map files)
+	 * @param file The cache file
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(SimMap map, File file) throws IOException {
+		List<MapNode> nodes = map.getNodes();
+		int nrofNodes = nodes.size();
+		Map<MapNode, Integer> indexes = new IdentityHashMap<MapNode, Integer>();
+		int nrofEdges = 0;
+		for (int i = 0; i < nrofNodes; i++) {
+			indexes.put(nodes.get(i), i);
+			nrofEdges += nodes.get(i).getNeighbors().size();
+		}
+
+		ByteBuffer buf = ByteBuffer.allocate((int)fileSize(nrofNodes,
+				nrofEdges));
+		buf.putInt(MAGIC).putInt(VERSION).putInt(nrofNodes).putInt(nrofEdges);
+		for (MapNode n : nodes) {
+			buf.putDouble(n.getLocation().getX());
+		}
+		for (MapNode n : nodes) {
+			buf.putDouble(n.getLocation().getY());
+		}
+		for (MapNode n : nodes) {
+			buf.putInt(n.getTypeMask());
+		}
+		int offset = 0;
+		for (MapNode n : nodes) {
+			buf.putInt(offset);
+			offset += n.getNeighbors().size();
+		}
+		buf.putInt(offset);
+		for (MapNode n : nodes) {
+			for (MapNode neighbor : n.getNeighbors()) {
+				buf.putInt(indexes.get(neighbor));
+			}
+		}
+		buf.flip();
+
+		final ByteBuffer data = buf;
+		SafeFileWriter.write(file, new SafeFileWriter.Content() {
+			public void writeTo(OutputStream out) throws IOException {
+				out.write(data.array(), 0, data.limit());
+			}
+		});
+	}
+
+	private static long fileSize(int nrofNodes, int nrofEdges) {
+		return HEADER_SIZE + 8L * 2 * nrofNodes + 4L * nrofNodes +
+			4L * (nrofNodes + 1) + 4L * nrofEdges;
+	}
+}
@@ -0,0 +1,812 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import util.SafeFileWriter;
+
+import core.DTNSim;
+import core.Settings;
+import core.SimError;
+
+/**
+ * <P>Contraction hierarchy of a {@link MapGraph} for fast shortest path
+ * queries on large maps. The preprocessing contracts the nodes one by one
+ * in the order of their importance (edge difference heuristic) and adds a
+ * shortcut edge between the neighbors of a contracted node whenever the
+ * node is on the only shortest path between them. A query is then a
+ * bidirectional Dijkstra search that only goes "upwards" to more important
+ * nodes and settles only a small part of the graph. The shortcuts are
+ * unpacked to the original nodes.</P>
+ *
+ * <P>Only nodes of the OK types (see {@link MapGraph#typeMask(int[])}) are
+ * in the hierarchy, so a hierarchy is built for each graph and type mask.
+ * The hierarchies are cached for the run and, if a cache directory is set,
+ * also written to files that are read instead of preprocessing again in
+ * later (batch) runs with the same map.</P>
+ */
+public class ContractionHierarchy {
+	/** name space of the contraction hierarchy settings ({@value}) */
+	public static final String CONTRACTION_HIERARCHY_NS =
+		"ContractionHierarchy";
+	/**
+	 * Should the map based movement models find their paths with
+	 * contraction hierarchies -setting id ({@value}). Boolean (true/false)
+	 * variable. Default is false.
+	 */
+	public static final String ENABLED_S = "enabled";
+	/**
+	 * Directory where the preprocessed hierarchies are stored for later
+	 * runs -setting id ({@value}). If not set, the hierarchies are not
+	 * stored.
+	 */
+	public static final String CACHE_DIR_S = "cacheDir";
+
+	/** how many nodes a witness search settles at most */
+	private static final int MAX_WITNESS_SETTLED = 500;
+	private static final int FILE_MAGIC = 0x4f4e4543; // "ONEC"
+	private static final int FILE_VERSION = 1;
+
+	private static boolean configured;
+	private static boolean enabled;
+	private static File cacheDir;
+	/** hierarchies of this run by graph and type mask */
+	private static Map<MapGraph, Map<Integer, ContractionHierarchy>> cache;
+
+	/** query state of each thread */
+	private static final ThreadLocal<QueryState> QUERY =
+		new ThreadLocal<QueryState>() {
+			@Override
+			protected QueryState initialValue() {
+				return new QueryState();
+			}
+		};
+
+	static {
+		DTNSim.registerForReset(
+				ContractionHierarchy.class.getCanonicalName());
+		reset();
+	}
+
+	private final int size;
+	/** contraction order of each node; higher is more important */
+	private final int[] rank;
+	/** upward edges u->w (rank[w] > rank[u]) stored at u */
+	private final int[] fwdOffsets;
+	private final int[] fwdTargets;
+	private final double[] fwdLengths;
+	/** node the edge is a shortcut over or -1 for an original edge */
+	private final int[] fwdMiddles;
+	/** upward edges u->w (rank[u] > rank[w]) stored at w, targets are u */
+	private final int[] bwdOffsets;
+	private final int[] bwdTargets;
+	private final double[] bwdLengths;
+	private final int[] bwdMiddles;
+
+	/**
+	 * Builds the hierarchy of a graph
+	 * @param graph The graph
+	 * @param okTypeMask Bit mask of the OK node types or -1 if all nodes
+	 * are OK
+	 */
+	public ContractionHierarchy(MapGraph graph, int okTypeMask) {
+		Builder b = new Builder(graph, okTypeMask);
+		b.contractAll();
+
+		this.size = graph.size();
+		this.rank = b.rank;
+		/* offsets from the degrees of the upward edges */
+		int[] fwdDeg = new int[size];
+		int[] bwdDeg = new int[size];
+		for (int v = 0; v < size; v++) {
+			Adjacency out = b.outs[v];
+			for (int i = 0; i < out.size; i++) {
+				int w = out.nodes[i];
+				if (rank[w] > rank[v]) {
+					fwdDeg[v]++;
+				} else {
+					bwdDeg[w]++;
+				}
+			}
+		}
+		this.fwdOffsets = new int[size + 1];
+		this.bwdOffsets = new int[size + 1];
+		for (int v = 0; v < size; v++) {
+			fwdOffsets[v + 1] = fwdOffsets[v] + fwdDeg[v];
+			bwdOffsets[v + 1] = bwdOffsets[v] + bwdDeg[v];
+		}
+		this.fwdTargets = new int[fwdOffsets[size]];
+		this.fwdLengths = new double[fwdOffsets[size]];
+		this.fwdMiddles = new int[fwdOffsets[size]];
+		this.bwdTargets = new int[bwdOffsets[size]];
+		this.bwdLengths = new double[bwdOffsets[size]];
+		this.bwdMiddles = new int[bwdOffsets[size]];
+
+		Arrays.fill(fwdDeg, 0);
+		Arrays.fill(bwdDeg, 0);
+		for (int v = 0; v < size; v++) {
+			Adjacency out = b.outs[v];
+			for (int i = 0; i < out.size; i++) {
+				int w = out.nodes[i];
+				if (rank[w] > rank[v]) {
+					int e = fwdOffsets[v] + fwdDeg[v]++;
+					fwdTargets[e] = w;
+					fwdLengths[e] = out.lengths[i];
+					fwdMiddles[e] = out.middles[i];
+				} else {
+					int e = bwdOffsets[w] + bwdDeg[w]++;
+					bwdTargets[e] = v;
+					bwdLengths[e] = out.lengths[i];
+					bwdMiddles[e] = out.middles[i];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates a hierarchy from the arrays read from a file
+	 */
+	private ContractionHierarchy(int[] rank, int[] fwdOffsets,
+			int[] fwdTargets, double[] fwdLengths, int[] fwdMiddles,
+			int[] bwdOffsets, int[] bwdTargets, double[] bwdLengths,
+			int[] bwdMiddles) {
+		this.size = rank.length;
+		this.rank = rank;
+		this.fwdOffsets = fwdOffsets;
+		this.fwdTargets = fwdTargets;
+		this.fwdLengths = fwdLengths;
+		this.fwdMiddles = fwdMiddles;
+		this.bwdOffsets = bwdOffsets;
+		this.bwdTargets = bwdTargets;
+		this.bwdLengths = bwdLengths;
+		this.bwdMiddles = bwdMiddles;
+	}
+
+	/**
+	 * Returns true if contraction hierarchies are enabled in the settings
+	 * @return true if contraction hierarchies should be used
+	 */
+	public static synchronized boolean isEnabled() {
+		if (!configured) {
+			Settings s = new Settings(CONTRACTION_HIERARCHY_NS);
+			enabled = s.getBoolean(ENABLED_S, false);
+			if (s.contains(CACHE_DIR_S)) {
+				cacheDir = new File(s.getSetting(CACHE_DIR_S));
+			}
+			configured = true;
+		}
+		return enabled;
+	}
+
+	/**
+	 * Returns the hierarchy of a graph and type mask. The hierarchy is
+	 * read from the cache directory or built (and written there) if it
+	 * hasn't been used in this run yet.
+	 * @param graph The graph
+	 * @param okTypeMask Bit mask of the OK node types or -1 if all nodes
+	 * are OK
+	 * @return The hierarchy
+	 */
+	public static synchronized ContractionHierarchy of(MapGraph graph,
+			int okTypeMask) {
+		Map<Integer, ContractionHierarchy> byMask = cache.get(graph);
+		if (byMask == null) {
+			byMask = new HashMap<Integer, ContractionHierarchy>();
+			cache.put(graph, byMask);
+		}
+		ContractionHierarchy ch = byMask.get(okTypeMask);
+		if (ch != null) {
+			return ch;
+		}
+
+		File file = null;
+		long hash = hash(graph, okTypeMask);
+		if (cacheDir != null) {
+			file = new File(cacheDir, "ch_" + Long.toHexString(hash) +
+					".bin");
+			ch = read(file, hash, graph.size());
+		}
+		if (ch == null) {
+			ch = new ContractionHierarchy(graph, okTypeMask);
+			if (file != null) {
+				ch.write(file, hash);
+			}
+		}
+		byMask.put(okTypeMask, ch);
+		return ch;
+	}
+
+	/**
+	 * Clears the hierarchies of the run and the settings
+	 */
+	public static synchronized void reset() {
+		cache = new IdentityHashMap<MapGraph,
+			Map<Integer, ContractionHierarchy>>();
+		configured = false;
+		enabled = false;
+		cacheDir = null;
+	}
+
+	/**
+	 * Finds a shortest path
+	 * @param source Index of the source node
+	 * @param target Index of the target node
+	 * @return Indexes of the path's nodes from source to target or null if
+	 * there is no path
+	 */
+	public int[] findPath(int source, int target) {
+		QueryState q = QUERY.get();
+		q.init(size);
+		int meet = q.search(this, source, target);
+		if (meet < 0) {
+			return null;
+		}
+
+		/* the path's edges: source..meet forward, meet..target backward */
+		IntList nodes = new IntList();
+		IntList edges = new IntList();
+		for (int v = meet; v != source; v = q.fwdPrev[v]) {
+			edges.add(v);
+			edges.add(q.fwdPrev[v]);
+		}
+		nodes.add(source);
+		/* forward edges were collected from meet back to the source */
+		for (int i = edges.size - 2; i >= 0; i -= 2) {
+			unpack(edges.values[i + 1], edges.values[i], nodes);
+		}
+		for (int v = meet; v != target; v = q.bwdPrev[v]) {
+			unpack(v, q.bwdPrev[v], nodes);
+		}
+		return Arrays.copyOf(nodes.values, nodes.size);
+	}
+
+	/**
+	 * Appends the nodes of the edge from a to b, without a itself, to the
+	 * list
+	 */
+	private void unpack(int a, int b, IntList nodes) {
+		IntList stack = new IntList();
+		stack.add(b);
+		stack.add(a);
+		while (stack.size > 0) {
+			int from = stack.values[--stack.size];
+			int to = stack.values[--stack.size];
+			int middle = middleOf(from, to);
+			if (middle < 0) {
+				nodes.add(to);
+			} else { // the second half is unpacked after the first one
+				stack.add(to);
+				stack.add(middle);
+				stack.add(middle);
+				stack.add(from);
+			}
+		}
+	}
+
+	/**
+	 * Returns the node the edge from a to b is a shortcut over
+	 */
+	private int middleOf(int a, int b) {
+		if (rank[b] > rank[a]) {
+			for (int e = fwdOffsets[a]; e < fwdOffsets[a + 1]; e++) {
+				if (fwdTargets[e] == b) {
+					return fwdMiddles[e];
+				}
+			}
+		} else {
+			for (int e = bwdOffsets[b]; e < bwdOffsets[b + 1]; e++) {
+				if (bwdTargets[e] == a) {
+					return bwdMiddles[e];
+				}
+			}
+		}
+		throw new SimError("No edge " + a + "->" + b + " in the hierarchy");
+	}
+
+	/**
+	 * Returns the number of edges, including the shortcuts
+	 * @return the number of edges
+	 */
+	public int getNrofEdges() {
+		return fwdTargets.length + bwdTargets.length;
+	}
+
+	/**
+	 * Returns a hash of the graph's structure and the type mask that
+	 * identifies the hierarchy's file
+	 */
+	private static long hash(MapGraph g, int okTypeMask) {
+		long h = 1125899906842597L;
+		h = 31 * h + g.size();
+		h = 31 * h + okTypeMask;
+		for (int i = 0; i < g.size(); i++) {
+			h = 31 * h + Double.doubleToLongBits(g.getX(i));
+			h = 31 * h + Double.doubleToLongBits(g.getY(i));
+			h = 31 * h + g.getTypeMask(i);
+			for (int e = g.getFirstEdge(i); e < g.getFirstEdge(i + 1); e++) {
+				h = 31 * h + g.getTarget(e);
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * Writes the hierarchy to a cache file (see {@link SafeFileWriter}).
+	 */
+	private void write(File file, final long hash) {
+		try {
+			SafeFileWriter.write(file, new SafeFileWriter.Content() {
+				public void writeTo(OutputStream o) throws IOException {
+					DataOutputStream out = new DataOutputStream(o);
+					out.writeInt(FILE_MAGIC);
+					out.writeInt(FILE_VERSION);
+					out.writeLong(hash);
+					out.writeInt(size);
+					writeInts(out, rank);
+					writeInts(out, fwdOffsets);
+					writeInts(out, fwdTargets);
+					writeDoubles(out, fwdLengths);
+					writeInts(out, fwdMiddles);
+					writeInts(out, bwdOffsets);
+					writeInts(out, bwdTargets);
+					writeDoubles(out, bwdLengths);
+					writeInts(out, bwdMiddles);
+					out.flush();
+				}
+			});
+		} catch (IOException e) {
+			throw new SimError("Can't write contraction hierarchy to " +
+					file, e);
+		}
+	}
+
+	/**
+	 * Reads a hierarchy from a file
+	 * @return The hierarchy or null if the file doesn't exist or is not
+	 * for the same graph
+	 */
+	private static ContractionHierarchy read(File file, long hash,
+			int size) {
+		if (!file.isFile()) {
+			return null;
+		}
+		DataInputStream in = null;
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+					new FileInputStream(file)));
+			if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION ||
+					in.readLong() != hash || in.readInt() != size) {
+				return null;
+			}
+			int[] rank = readInts(in);
+			int[] fwdOffsets = readInts(in);
+			int[] fwdTargets = readInts(in);
+			double[] fwdLengths = readDoubles(in);
+			int[] fwdMiddles = readInts(in);
+			int[] bwdOffsets = readInts(in);
+			int[] bwdTargets = readInts(in);
+			double[] bwdLengths = readDoubles(in);
+			int[] bwdMiddles = readInts(in);
+			return new ContractionHierarchy(rank, fwdOffsets, fwdTargets,
+					fwdLengths, fwdMiddles, bwdOffsets, bwdTargets,
+					bwdLengths, bwdMiddles);
+		} catch (IOException e) {
+			return null; // corrupted; built again
+		} finally {
+			try {
+				if (in != null) {
+					in.close();
+				}
+			} catch (IOException e) {}
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, int[] a)
+			throws IOException {
+		out.writeInt(a.length);
+		for (int x : a) {
+			out.writeInt(x);
+		}
+	}
+
+	private static void writeDoubles(DataOutputStream out, double[] a)
+			throws IOException {
+		out.writeInt(a.length);
+		for (double x : a) {
+			out.writeDouble(x);
+		}
+	}
+
+	private static int[] readInts(DataInputStream in) throws IOException {
+		int[] a = new int[in.readInt()];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = in.readInt();
+		}
+		return a;
+	}
+
+	private static double[] readDoubles(DataInputStream in)
+			throws IOException {
+		double[] a = new double[in.readInt()];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = in.readDouble();
+		}
+		return a;
+	}
+
+	/**
+	 * Growable list of ints
+	 */
+	private static class IntList {
+		private int[] values = new int[16];
+		private int size;
+
+		private void add(int v) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = v;
+		}
+	}
+
+	/**
+	 * Min heap of (key, node) pairs; a node may be in the heap many times
+	 * and the stale entries are skipped by the user
+	 */
+	private static class Heap {
+		private double[] keys = new double[16];
+		private int[] nodes = new int[16];
+		private int size;
+
+		private void push(double key, int node) {
+			if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				nodes = Arrays.copyOf(nodes, size * 2);
+			}
+			int i = size++;
+			while (i > 0) {
+				int parent = (i - 1) >> 1;
+				if (keys[parent] <= key) {
+					break;
+				}
+				keys[i] = keys[parent];
+				nodes[i] = nodes[parent];
+				i = parent;
+			}
+			keys[i] = key;
+			nodes[i] = node;
+		}
+
+		private double peekKey() {
+			return (size > 0 ? keys[0] : Double.POSITIVE_INFINITY);
+		}
+
+		/** removes the top entry and returns its node */
+		private int pop() {
+			int top = nodes[0];
+			size--;
+			double key = keys[size];
+			int node = nodes[size];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && keys[child + 1] < keys[child]) {
+					child++;
+				}
+				if (keys[child] >= key) {
+					break;
+				}
+				keys[i] = keys[child];
+				nodes[i] = nodes[child];
+				i = child;
+			}
+			if (size > 0) {
+				keys[i] = key;
+				nodes[i] = node;
+			}
+			return top;
+		}
+	}
+
+	/**
+	 * Edges of a node during the preprocessing
+	 */
+	private static class Adjacency {
+		private int[] nodes = new int[4];
+		private double[] lengths = new double[4];
+		private int[] middles = new int[4];
+		private int size;
+
+		/**
+		 * Adds an edge or shortens an existing edge to the same node
+		 */
+		private void add(int node, double length, int middle) {
+			for (int i = 0; i < size; i++) {
+				if (nodes[i] == node) {
+					if (length < lengths[i]) {
+						lengths[i] = length;
+						middles[i] = middle;
+					}
+					return;
+				}
+			}
+			if (size == nodes.length) {
+				nodes = Arrays.copyOf(nodes, size * 2);
+				lengths = Arrays.copyOf(lengths, size * 2);
+				middles = Arrays.copyOf(middles, size * 2);
+			}
+			nodes[size] = node;
+			lengths[size] = length;
+			middles[size] = middle;
+			size++;
+		}
+	}
+
+	/**
+	 * The preprocessing: contraction order and shortcuts
+	 */
+	private static class Builder {
+		private final int n;
+		private final Adjacency[] outs;
+		private final Adjacency[] ins;
+		private final boolean[] contracted;
+		private final int[] deletedNeighbors;
+		private final int[] rank;
+		/* witness search state */
+		private final double[] dist;
+		private final int[] stamp;
+		private int currentStamp;
+		private final Heap heap = new Heap();
+
+		private Builder(MapGraph g, int okTypeMask) {
+			this.n = g.size();
+			this.outs = new Adjacency[n];
+			this.ins = new Adjacency[n];
+			this.contracted = new boolean[n];
+			this.deletedNeighbors = new int[n];
+			this.rank = new int[n];
+			this.dist = new double[n];
+			this.stamp = new int[n];
+			for (int v = 0; v < n; v++) {
+				outs[v] = new Adjacency();
+				ins[v] = new Adjacency();
+			}
+			for (int v = 0; v < n; v++) {
+				if (!isOk(g, v, okTypeMask)) {
+					continue;
+				}
+				for (int e = g.getFirstEdge(v); e < g.getFirstEdge(v + 1);
+						e++) {
+					int w = g.getTarget(e);
+					if (w != v && isOk(g, w, okTypeMask)) {
+						outs[v].add(w, g.getLength(e), -1);
+						ins[w].add(v, g.getLength(e), -1);
+					}
+				}
+			}
+		}
+
+		private static boolean isOk(MapGraph g, int v, int okTypeMask) {
+			return okTypeMask == -1 || (g.getTypeMask(v) & okTypeMask) != 0;
+		}
+
+		private void contractAll() {
+			Heap order = new Heap();
+			for (int v = 0; v < n; v++) {
+				order.push(priority(v), v);
+			}
+			int next = 0;
+			while (order.size > 0) {
+				int v = order.pop();
+				double p = priority(v);
+				if (order.size > 0 && p > order.peekKey()) {
+					order.push(p, v); // lazy update
+					continue;
+				}
+				contract(v, true);
+				contracted[v] = true;
+				rank[v] = next++;
+				Adjacency out = outs[v], in = ins[v];
+				for (int i = 0; i < out.size; i++) {
+					deletedNeighbors[out.nodes[i]]++;
+				}
+				for (int i = 0; i < in.size; i++) {
+					deletedNeighbors[in.nodes[i]]++;
+				}
+			}
+		}
+
+		private double priority(int v) {
+			int degree = 0;
+			for (int i = 0; i < outs[v].size; i++) {
+				degree += (contracted[outs[v].nodes[i]] ? 0 : 1);
+			}
+			for (int i = 0; i < ins[v].size; i++) {
+				degree += (contracted[ins[v].nodes[i]] ? 0 : 1);
+			}
+			return contract(v, false) - degree + deletedNeighbors[v];
+		}
+
+		/**
+		 * Adds (or just counts) the shortcuts needed if v is contracted
+		 * @return The number of shortcuts
+		 */
+		private int contract(int v, boolean apply) {
+			Adjacency in = ins[v], out = outs[v];
+			double maxOut = 0;
+			for (int i = 0; i < out.size; i++) {
+				if (!contracted[out.nodes[i]] && out.lengths[i] > maxOut) {
+					maxOut = out.lengths[i];
+				}
+			}
+
+			int shortcuts = 0;
+			for (int i = 0; i < in.size; i++) {
+				int u = in.nodes[i];
+				if (contracted[u]) {
+					continue;
+				}
+				double du = in.lengths[i];
+				witnessSearch(u, v, du + maxOut);
+				for (int j = 0; j < out.size; j++) {
+					int w = out.nodes[j];
+					if (w == u || contracted[w]) {
+						continue;
+					}
+					double via = du + out.lengths[j];
+					double witness = (stamp[w] == currentStamp ? dist[w] :
+						Double.POSITIVE_INFINITY);
+					if (witness > via) {
+						shortcuts++;
+						if (apply) {
+							outs[u].add(w, via, v);
+							ins[w].add(u, via, v);
+						}
+					}
+				}
+			}
+			return shortcuts;
+		}
+
+		/**
+		 * Dijkstra search from u that avoids v and the contracted nodes
+		 * and stops at the given distance or settled node limit
+		 */
+		private void witnessSearch(int u, int v, double limit) {
+			currentStamp++;
+			heap.size = 0;
+			stamp[u] = currentStamp;
+			dist[u] = 0;
+			heap.push(0, u);
+			int settled = 0;
+			while (heap.size > 0 && settled < MAX_WITNESS_SETTLED) {
+				double d = heap.peekKey();
+				int x = heap.pop();
+				if (d > dist[x]) {
+					continue; // stale entry
+				}
+				if (d > limit) {
+					break;
+				}
+				settled++;
+				Adjacency out = outs[x];
+				for (int i = 0; i < out.size; i++) {
+					int y = out.nodes[i];
+					if (y == v || contracted[y]) {
+						continue;
+					}
+					double dy = d + out.lengths[i];
+					if (stamp[y] != currentStamp || dy < dist[y]) {
+						stamp[y] = currentStamp;
+						dist[y] = dy;
+						heap.push(dy, y);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * State of a bidirectional query
+	 */
+	private static class QueryState {
+		private double[] fwdDist = new double[0];
+		private double[] bwdDist = new double[0];
+		private int[] fwdPrev = new int[0];
+		private int[] bwdPrev = new int[0];
+		private int[] fwdStamp = new int[0];
+		private int[] bwdStamp = new int[0];
+		private int currentStamp;
+		private final Heap fwdHeap = new Heap();
+		private final Heap bwdHeap = new Heap();
+
+		private void init(int n) {
+			if (fwdDist.length < n) {
+				fwdDist = new double[n];
+				bwdDist = new double[n];
+				fwdPrev = new int[n];
+				bwdPrev = new int[n];
+				fwdStamp = new int[n];
+				bwdStamp = new int[n];
+				currentStamp = 0;
+			}
+			currentStamp++;
+			if (currentStamp == Integer.MAX_VALUE) {
+				Arrays.fill(fwdStamp, 0);
+				Arrays.fill(bwdStamp, 0);
+				currentStamp = 1;
+			}
+			fwdHeap.size = 0;
+			bwdHeap.size = 0;
+		}
+
+		/**
+		 * Runs the upward searches from both ends
+		 * @return The node where the shortest path's halves meet or -1 if
+		 * there is no path
+		 */
+		private int search(ContractionHierarchy ch, int source, int target) {
+			fwdStamp[source] = currentStamp;
+			fwdDist[source] = 0;
+			fwdPrev[source] = -1;
+			fwdHeap.push(0, source);
+			bwdStamp[target] = currentStamp;
+			bwdDist[target] = 0;
+			bwdPrev[target] = -1;
+			bwdHeap.push(0, target);
+
+			double best = Double.POSITIVE_INFINITY;
+			int meet = -1;
+			while (fwdHeap.peekKey() < best || bwdHeap.peekKey() < best) {
+				boolean forward = fwdHeap.peekKey() <= bwdHeap.peekKey();
+				Heap heap = (forward ? fwdHeap : bwdHeap);
+				double[] dist = (forward ? fwdDist : bwdDist);
+				int[] prev = (forward ? fwdPrev : bwdPrev);
+				int[] stamp = (forward ? fwdStamp : bwdStamp);
+				double[] otherDist = (forward ? bwdDist : fwdDist);
+				int[] otherStamp = (forward ? bwdStamp : fwdStamp);
+				int[] offsets = (forward ? ch.fwdOffsets : ch.bwdOffsets);
+				int[] targets = (forward ? ch.fwdTargets : ch.bwdTargets);
+				double[] lengths = (forward ? ch.fwdLengths : ch.bwdLengths);
+
+				double d = heap.peekKey();
+				int x = heap.pop();
+				if (d > dist[x]) {
+					continue; // stale entry
+				}
+				if (otherStamp[x] == currentStamp &&
+						d + otherDist[x] < best) {
+					best = d + otherDist[x];
+					meet = x;
+				}
+				for (int e = offsets[x]; e < offsets[x + 1]; e++) {
+					int y = targets[e];
+					double dy = d + lengths[e];
+					if (stamp[y] != currentStamp || dy < dist[y]) {
+						stamp[y] = currentStamp;
+						dist[y] = dy;
+						prev[y] = x;
+						heap.push(dy, y);
+					}
+				}
+			}
+			return meet;
+		}
+	}
+}
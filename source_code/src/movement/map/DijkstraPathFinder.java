@@ -4,35 +4,38 @@
  */
 package movement.map;
 
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Set;
 
 /**
- * Implementation of the Dijkstra's shortest path algorithm.
+ * Shortest path finder for map nodes. The search is A* (Dijkstra's
+ * algorithm guided by the Euclidean distance to the destination) over the
+ * compact {@link MapGraph} of the map. The search state is kept in
+ * primitive arrays that are reused by all searches of the same thread, so
+ * one path finder can be shared by hosts that are moved in parallel.
  */
 public class DijkstraPathFinder {
-	/** Value for infinite distance  */
-	private static final Double INFINITY = Double.MAX_VALUE;
-	/** Initial size of the priority queue */
-	private static final int PQ_INIT_SIZE = 11;
-
-	/** Map of node distances from the source node */
-	private DistanceMap distances;
-	/** Set of already visited nodes (where the shortest path is known) */
-	private Set<MapNode> visited;
-	/** Priority queue of unvisited nodes discovered so far */
-	private Queue<MapNode> unvisited;
-	/** Map of previous nodes on the shortest path(s) */
-	private Map<MapNode, MapNode> prevNodes;
-
-	private int [] okMapNodes;
+	/** search state of each thread */
+	private static final ThreadLocal<SearchState> STATE =
+		new ThreadLocal<SearchState>() {
+			@Override
+			protected SearchState initialValue() {
+				return new SearchState();
+			}
+		};
+
+	/** result of the searches that find no path */
+	private static final MapNode[] NO_PATH = new MapNode[0];
+	/** type mask that accepts all nodes, also the ones without types */
+	private static final int ALL_TYPES = -1;
+
+	/** bit mask of the OK node types; {@link #ALL_TYPES} if all are OK */
+	private final int okTypeMask;
+	/** cache of the found paths or null if paths are not cached */
+	private final PathCache cache;
+	/** should the paths be found with contraction hierarchies */
+	private final boolean useHierarchy;
 
 	/**
 	 * Constructor.
@@ -40,27 +43,36 @@ public class DijkstraPathFinder {
 	 * all nodes are OK
 	 */
 	public DijkstraPathFinder(int [] okMapNodes) {
-		super();
-		this.okMapNodes = okMapNodes;
+		this(okMapNodes, null);
+	}
+
+	/**
+	 * Creates a path finder that caches the paths it finds
+	 * @param okMapNodes The map node types that are OK for paths or null if
+	 * all nodes are OK
+	 * @param cache The cache where the paths are looked up and stored or
+	 * null for no caching
+	 */
+	public DijkstraPathFinder(int [] okMapNodes, PathCache cache) {
+		this(okMapNodes, cache, false);
 	}
 
 	/**
-	 * Initializes a new search with a source node
-	 * @param node The path's source node
+	 * Creates a path finder that caches the paths it finds and optionally
+	 * uses a {@link ContractionHierarchy} of the map instead of A*
+	 * @param okMapNodes The map node types that are OK for paths or null if
+	 * all nodes are OK
+	 * @param cache The cache where the paths are looked up and stored or
+	 * null for no caching
+	 * @param useHierarchy If true, the paths are found with a contraction
+	 * hierarchy that is built on the first search
 	 */
-	private void initWith(MapNode node) {
-		assert (okMapNodes != null ? node.isType(okMapNodes) : true);
-
-		// create needed data structures
-		this.unvisited = new PriorityQueue<MapNode>(PQ_INIT_SIZE,
-				new DistanceComparator());
-		this.visited = new HashSet<MapNode>();
-		this.prevNodes = new HashMap<MapNode, MapNode>();
-		this.distances = new DistanceMap();
-
-		// set distance to source 0 and initialize unvisited queue
-		this.distances.put(node, 0);
-		this.unvisited.add(node);
+	public DijkstraPathFinder(int [] okMapNodes, PathCache cache,
+			boolean useHierarchy) {
+		super();
+		this.okTypeMask = MapGraph.typeMask(okMapNodes);
+		this.cache = cache;
+		this.useHierarchy = useHierarchy;
 	}
 
 	/**
@@ -71,158 +83,228 @@ public class DijkstraPathFinder {
 	 * a list of MapNodes or an empty list if such path is not available
 	 */
 	public List<MapNode> getShortestPath(MapNode from, MapNode to) {
-		List<MapNode> path = new LinkedList<MapNode>();
+		List<MapNode> path = new ArrayList<MapNode>();
 
 		if (from.compareTo(to) == 0) { // source and destination are the same
 			path.add(from); // return a list containing only source node
 			return path;
 		}
 
-		initWith(from);
-		MapNode node = null;
-
-		// always take the node with shortest distance
-		while ((node = unvisited.poll()) != null) {
-			if (node == to) {
-				break; // we found the destination -> no need to search further
+		if (cache != null) {
+			MapNode[] cached = cache.get(from, to, okTypeMask);
+			if (cached != null) {
+				path.addAll(Arrays.asList(cached));
+				return path;
 			}
-
-			visited.add(node); // mark the node as visited
-			relax(node); // add/update neighbor nodes' distances
 		}
 
-		// now we either have the path or such path wasn't available
-		if (node == to) { // found a path
-			path.add(0,to);
-			MapNode prev = prevNodes.get(to);
-			while (prev != from) {
-				path.add(0, prev);	// always put previous node to beginning
-				prev = prevNodes.get(prev);
-			}
-
-			path.add(0, from); // finally put the source node to first node
+		MapNode[] nodes = findPath(from, to);
+		if (cache != null) {
+			cache.put(from, to, okTypeMask, nodes);
 		}
+		path.addAll(Arrays.asList(nodes));
 
 		return path;
 	}
 
 	/**
-	 * Relaxes the neighbors of a node (updates the shortest distances).
-	 * @param node The node whose neighbors are relaxed
+	 * Runs the search
+	 * @return The nodes of the path or an empty array if there is no path
 	 */
-	private void relax(MapNode node) {
-		double nodeDist = distances.get(node);
-		for (MapNode n : node.getNeighbors()) {
-			if (visited.contains(n)) {
-				continue; // skip visited nodes
-			}
+	private MapNode[] findPath(MapNode from, MapNode to) {
+		MapGraph graph = MapGraph.of(from);
+		int source = graph.indexOf(from);
+		int target = graph.indexOf(to);
+		assert isOk(graph, source) : "Source node " + from + " is not OK";
+		if (target < 0 || !isOk(graph, target)) {
+			return NO_PATH; // not reachable
+		}
 
-			if (okMapNodes != null && !n.isType(okMapNodes)) {
-				continue; // skip nodes that are not OK
+		if (useHierarchy && isOk(graph, source)) {
+			int[] indexes = ContractionHierarchy.of(graph, okTypeMask).findPath(
+					source, target);
+			if (indexes == null) {
+				return NO_PATH;
+			}
+			MapNode[] nodes = new MapNode[indexes.length];
+			for (int i = 0; i < indexes.length; i++) {
+				nodes[i] = graph.getNode(indexes[i]);
 			}
+			return nodes;
+		}
 
-			// n node's distance from path's source node
-			double nDist = nodeDist + getDistance(node, n);
+		SearchState s = STATE.get();
+		s.init(graph.size());
+		if (!s.search(graph, source, target, okTypeMask)) {
+			return NO_PATH;
+		}
 
-			if (distances.get(n) > nDist) { // stored distance > found dist?
-				prevNodes.put(n, node);
-				setDistance(n, nDist);
-			}
+		int length = 1;
+		for (int n = target; n != source; n = s.prev[n]) {
+			length++;
+		}
+		MapNode[] nodes = new MapNode[length];
+		for (int n = target, i = length - 1; i >= 0; n = s.prev[n], i--) {
+			nodes[i] = graph.getNode(n);
 		}
+		return nodes;
 	}
 
-	/**
-	 * Sets the distance from source node to a node
-	 * @param n The node whose distance is set
-	 * @param distance The distance of the node from the source node
-	 */
-	private void setDistance(MapNode n, double distance) {
-		unvisited.remove(n); // remove node from old place in the queue
-		distances.put(n, distance); // update distance
-		unvisited.add(n); // insert node to the new place in the queue
+	private boolean isOk(MapGraph graph, int node) {
+		return okTypeMask == ALL_TYPES ||
+			(graph.getTypeMask(node) & okTypeMask) != 0;
 	}
 
 	/**
-	 * Returns the (euclidean) distance between the two map nodes
-	 * @param from The first node
-	 * @param to The second node
-	 * @return Euclidean distance between the two map nodes
+	 * State of an A* search: distances, previous nodes and an indexed
+	 * binary heap of the open nodes. A node's entries are valid only if its
+	 * stamp is the current search's stamp, so the arrays don't need to be
+	 * cleared between searches.
 	 */
-	private double getDistance(MapNode from, MapNode to) {
-		return from.getLocation().distance(to.getLocation());
-	}
+	private static class SearchState {
+		/** distance from the source */
+		private double[] dist = new double[0];
+		/** distance from the source plus the estimate to the target */
+		private double[] estimate = new double[0];
+		/** previous node on the shortest path */
+		private int[] prev = new int[0];
+		/** search when the node was reached */
+		private int[] stamp = new int[0];
+		/** position of the node in the heap; -1 if it is closed */
+		private int[] heapPos = new int[0];
+		/** the open nodes */
+		private int[] heap = new int[0];
+		private int heapSize;
+		private int currentStamp;
 
-	/**
-	 * Comparator that compares two map nodes by their distance from
-	 * the source node.
-	 */
-	private class DistanceComparator implements Comparator<MapNode> {
+		private void init(int n) {
+			if (dist.length < n) {
+				dist = new double[n];
+				estimate = new double[n];
+				prev = new int[n];
+				stamp = new int[n];
+				heapPos = new int[n];
+				heap = new int[n];
+				currentStamp = 0;
+			}
+			currentStamp++;
+			if (currentStamp == Integer.MAX_VALUE) {
+				Arrays.fill(stamp, 0);
+				currentStamp = 1;
+			}
+			heapSize = 0;
+		}
 
 		/**
-		 * Compares two map nodes by their distance from the source node
-		 * @return -1, 0 or 1 if node1's distance is smaller, equal to, or
-		 * bigger than node2's distance
+		 * Runs the search
+		 * @return True if the target was reached
 		 */
-		public int compare(MapNode node1, MapNode node2) {
-			double dist1 = distances.get(node1);
-			double dist2 = distances.get(node2);
+		private boolean search(MapGraph g, int source, int target,
+				int okTypeMask) {
+			double tx = g.getX(target);
+			double ty = g.getY(target);
 
-			if (dist1 > dist2) {
-				return 1;
-			}
-			else if (dist1 < dist2) {
-				return -1;
-			}
-			else {
-				return node1.compareTo(node2);
+			reach(source, 0, -1, heuristic(g, source, tx, ty));
+
+			while (heapSize > 0) {
+				int node = poll();
+				if (node == target) {
+					return true;
+				}
+
+				double nodeDist = dist[node];
+				int end = g.getFirstEdge(node + 1);
+				for (int e = g.getFirstEdge(node); e < end; e++) {
+					int n = g.getTarget(e);
+					double nDist = nodeDist + g.getLength(e);
+					if (stamp[n] == currentStamp) {
+						if (heapPos[n] < 0 || dist[n] <= nDist) {
+							continue; // closed or no shorter
+						}
+						estimate[n] -= dist[n] - nDist;
+						dist[n] = nDist;
+						prev[n] = node;
+						siftUp(heapPos[n]);
+					} else if (okTypeMask == ALL_TYPES ||
+							(g.getTypeMask(n) & okTypeMask) != 0) {
+						reach(n, nDist, node,
+								nDist + heuristic(g, n, tx, ty));
+					}
+				}
 			}
+			return false;
 		}
-	}
 
-	/**
-	 * Simple Map implementation for storing distances.
-	 */
-	private class DistanceMap {
-		private HashMap<MapNode, Double> map;
+		private static double heuristic(MapGraph g, int n, double tx,
+				double ty) {
+			double dx = g.getX(n) - tx;
+			double dy = g.getY(n) - ty;
+			return Math.sqrt(dx * dx + dy * dy);
+		}
 
-		/**
-		 * Constructor. Creates an empty distance map
-		 */
-		public DistanceMap() {
-			this.map = new HashMap<MapNode, Double>();
+		private void reach(int n, double d, int from, double est) {
+			stamp[n] = currentStamp;
+			dist[n] = d;
+			estimate[n] = est;
+			prev[n] = from;
+			heap[heapSize] = n;
+			heapPos[n] = heapSize;
+			heapSize++;
+			siftUp(heapSize - 1);
 		}
 
-		/**
-		 * Returns the distance to a node. If no distance value
-		 * is found, returns {@link DijkstraPathFinder#INFINITY} as the value.
-		 * @param node The node whose distance is requested
-		 * @return The distance to that node
-		 */
-		public double get(MapNode node) {
-			Double value = map.get(node);
-			if (value != null) {
-				return value;
-			}
-			else {
-				return INFINITY;
+		private int poll() {
+			int top = heap[0];
+			heapPos[top] = -1;
+			heapSize--;
+			if (heapSize > 0) {
+				heap[0] = heap[heapSize];
+				heapPos[heap[0]] = 0;
+				siftDown(0);
 			}
+			return top;
 		}
 
-		/**
-		 * Puts a new distance value for a map node
-		 * @param node The node
-		 * @param distance Distance to that node
-		 */
-		public void  put(MapNode node, double distance) {
-			map.put(node, distance);
+		private boolean less(int a, int b) {
+			return estimate[a] < estimate[b] ||
+				(estimate[a] == estimate[b] && a < b);
 		}
 
-		/**
-		 * Returns a string representation of the map's contents
-		 * @return a string representation of the map's contents
-		 */
-		public String toString() {
-			return map.toString();
+		private void siftUp(int i) {
+			int n = heap[i];
+			while (i > 0) {
+				int parent = (i - 1) >> 1;
+				if (!less(n, heap[parent])) {
+					break;
+				}
+				heap[i] = heap[parent];
+				heapPos[heap[i]] = i;
+				i = parent;
+			}
+			heap[i] = n;
+			heapPos[n] = i;
+		}
+
+		private void siftDown(int i) {
+			int n = heap[i];
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= heapSize) {
+					break;
+				}
+				if (child + 1 < heapSize &&
+						less(heap[child + 1], heap[child])) {
+					child++;
+				}
+				if (!less(heap[child], n)) {
+					break;
+				}
+				heap[i] = heap[child];
+				heapPos[heap[i]] = i;
+				i = child;
+			}
+			heap[i] = n;
+			heapPos[n] = i;
 		}
 	}
 }
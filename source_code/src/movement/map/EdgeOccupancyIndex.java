@@ -0,0 +1,336 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.Coord;
+import core.DTNHost;
+import core.MovementListener;
+
+/**
+ * <P>Index of the hosts on each directed edge of a {@link SimMap}. An edge
+ * is the road from one {@link MapNode} to a neighboring one and a host is
+ * on the edge from the waypoint it left from to its current destination.
+ * The index is a {@link MovementListener}, so it is updated incrementally
+ * when a host gets a new destination, i.e., crosses a waypoint.</P>
+ *
+ * <P>The hosts of an edge are in a doubly linked list sorted by their
+ * offset along the edge, front-most first. A host enters an edge at its
+ * start, behind the hosts already on it, so the entry order is the offset
+ * order as long as the hosts don't overtake each other;
+ * {@link #reorder()} restores the order after overtakes. The leader and
+ * follower of a host and the number of hosts on an edge are found in
+ * constant time. A host that has reached the end of its path stays on its
+ * last edge until it gets a new destination.</P>
+ */
+public class EdgeOccupancyIndex implements MovementListener {
+	/** the edges that have hosts, by their end points */
+	private final Map<EdgeKey, Edge> edges;
+	/** key used for the edge look ups */
+	private final EdgeKey probe;
+	/** the hosts' entries by their addresses */
+	private Entry[] entries;
+
+	/**
+	 * Creates an empty index
+	 */
+	public EdgeOccupancyIndex() {
+		this.edges = new HashMap<EdgeKey, Edge>();
+		this.probe = new EdgeKey();
+		this.entries = new Entry[16];
+	}
+
+	public void initialLocation(DTNHost host, Coord location) {
+		Entry e = entryOf(host);
+		remove(e);
+		e.destination = location.clone();
+	}
+
+	public void newDestination(DTNHost host, Coord destination,
+			double speed) {
+		Entry e = entryOf(host);
+		Coord from = e.destination;
+		remove(e);
+		e.destination = destination;
+		if (from == null || from.equals(destination)) {
+			return; /* not on a road */
+		}
+
+		probe.set(from, destination);
+		Edge edge = edges.get(probe);
+		if (edge == null) {
+			edge = new Edge(from, destination);
+			edges.put(new EdgeKey(probe), edge);
+		}
+		/* enters the edge behind the others */
+		e.edge = edge;
+		e.ahead = edge.tail;
+		if (edge.tail != null) {
+			edge.tail.behind = e;
+		} else {
+			edge.head = e;
+		}
+		edge.tail = e;
+		edge.size++;
+	}
+
+	/**
+	 * Returns the host ahead of the given host on the same edge
+	 * @param host The host
+	 * @return The leader or null if the host is the front-most one or not
+	 * on an edge
+	 */
+	public DTNHost getLeader(DTNHost host) {
+		Entry e = find(host);
+		return (e != null && e.ahead != null ? e.ahead.host : null);
+	}
+
+	/**
+	 * Returns the host behind the given host on the same edge
+	 * @param host The host
+	 * @return The follower or null if the host is the last one or not on an
+	 * edge
+	 */
+	public DTNHost getFollower(DTNHost host) {
+		Entry e = find(host);
+		return (e != null && e.behind != null ? e.behind.host : null);
+	}
+
+	/**
+	 * Returns how far along its edge a host is
+	 * @param host The host
+	 * @return The distance (meters) from the start of the edge or a negative
+	 * value if the host is not on an edge
+	 */
+	public double getOffset(DTNHost host) {
+		Entry e = find(host);
+		return (e != null && e.edge != null ? e.edge.offsetOf(host) : -1);
+	}
+
+	/**
+	 * Returns the number of hosts on a directed edge
+	 * @param from The node where the edge starts
+	 * @param to The node where the edge ends
+	 * @return The number of hosts on the edge
+	 */
+	public int getNrofHosts(MapNode from, MapNode to) {
+		Edge edge = getEdge(from, to);
+		return (edge != null ? edge.size : 0);
+	}
+
+	/**
+	 * Returns the density of hosts on a directed edge
+	 * @param from The node where the edge starts
+	 * @param to The node where the edge ends
+	 * @return The number of hosts per meter of the edge
+	 */
+	public double getDensity(MapNode from, MapNode to) {
+		Edge edge = getEdge(from, to);
+		return (edge != null && edge.length > 0 ? edge.size / edge.length : 0);
+	}
+
+	/**
+	 * Returns the hosts on a directed edge
+	 * @param from The node where the edge starts
+	 * @param to The node where the edge ends
+	 * @return The hosts, front-most first
+	 */
+	public List<DTNHost> getHosts(MapNode from, MapNode to) {
+		Edge edge = getEdge(from, to);
+		List<DTNHost> list = new ArrayList<DTNHost>();
+		for (Entry e = (edge != null ? edge.head : null); e != null;
+				e = e.behind) {
+			list.add(e.host);
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the number of edges that have hosts on them
+	 * @return the number of occupied edges
+	 */
+	public int getNrofOccupiedEdges() {
+		return this.edges.size();
+	}
+
+	/**
+	 * Sorts the hosts of every edge by their current offsets. Only needed
+	 * if the hosts can overtake each other; takes linear time on edges
+	 * whose hosts are already in order.
+	 */
+	public void reorder() {
+		for (Edge edge : edges.values()) {
+			edge.sort();
+		}
+	}
+
+	private Edge getEdge(MapNode from, MapNode to) {
+		probe.set(from.getLocation(), to.getLocation());
+		return edges.get(probe);
+	}
+
+	private Entry find(DTNHost host) {
+		int address = host.getAddress();
+		return (address < entries.length ? entries[address] : null);
+	}
+
+	private Entry entryOf(DTNHost host) {
+		int address = host.getAddress();
+		if (address >= entries.length) {
+			entries = Arrays.copyOf(entries, Math.max(address + 1,
+					entries.length * 2));
+		}
+		if (entries[address] == null) {
+			entries[address] = new Entry(host);
+		}
+		return entries[address];
+	}
+
+	/**
+	 * Removes the host of the entry from its edge (if any)
+	 */
+	private void remove(Entry e) {
+		Edge edge = e.edge;
+		if (edge == null) {
+			return;
+		}
+		edge.unlink(e);
+		if (edge.size == 0) {
+			probe.set(edge.from, edge.to);
+			edges.remove(probe);
+		}
+	}
+
+	/**
+	 * A host's place in the index
+	 */
+	private static class Entry {
+		private final DTNHost host;
+		/** the latest destination of the host */
+		private Coord destination;
+		private Edge edge;
+		private Entry ahead;
+		private Entry behind;
+
+		private Entry(DTNHost host) {
+			this.host = host;
+		}
+	}
+
+	/**
+	 * The hosts on one directed edge, front-most (head) to last (tail)
+	 */
+	private static class Edge {
+		private final Coord from;
+		private final Coord to;
+		private final double length;
+		private Entry head;
+		private Entry tail;
+		private int size;
+
+		private Edge(Coord from, Coord to) {
+			this.from = from;
+			this.to = to;
+			this.length = from.distance(to);
+		}
+
+		private double offsetOf(DTNHost host) {
+			return length - host.getLocation().distance(to);
+		}
+
+		private void unlink(Entry e) {
+			if (e.ahead != null) {
+				e.ahead.behind = e.behind;
+			} else {
+				head = e.behind;
+			}
+			if (e.behind != null) {
+				e.behind.ahead = e.ahead;
+			} else {
+				tail = e.ahead;
+			}
+			e.ahead = e.behind = null;
+			e.edge = null;
+			size--;
+		}
+
+		/**
+		 * Insertion sort of the list by decreasing offset
+		 */
+		private void sort() {
+			Entry e = (head != null ? head.behind : null);
+			while (e != null) {
+				Entry next = e.behind;
+				double offset = offsetOf(e.host);
+				Entry pos = e.ahead;
+				if (offsetOf(pos.host) < offset) {
+					while (pos.ahead != null &&
+							offsetOf(pos.ahead.host) < offset) {
+						pos = pos.ahead;
+					}
+					unlink(e);
+					/* insert e in front of pos */
+					e.edge = this;
+					e.behind = pos;
+					e.ahead = pos.ahead;
+					if (pos.ahead != null) {
+						pos.ahead.behind = e;
+					} else {
+						head = e;
+					}
+					pos.ahead = e;
+					size++;
+				}
+				e = next;
+			}
+		}
+	}
+
+	/**
+	 * Key of a directed edge: the coordinates of its end points
+	 */
+	private static class EdgeKey {
+		private double x1, y1, x2, y2;
+
+		private EdgeKey() { }
+
+		private EdgeKey(EdgeKey other) {
+			this.x1 = other.x1;
+			this.y1 = other.y1;
+			this.x2 = other.x2;
+			this.y2 = other.y2;
+		}
+
+		private void set(Coord from, Coord to) {
+			this.x1 = from.getX();
+			this.y1 = from.getY();
+			this.x2 = to.getX();
+			this.y2 = to.getY();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof EdgeKey)) {
+				return false;
+			}
+			EdgeKey k = (EdgeKey)o;
+			return x1 == k.x1 && y1 == k.y1 && x2 == k.x2 && y2 == k.y2;
+		}
+
+		@Override
+		public int hashCode() {
+			long h = Double.doubleToLongBits(x1);
+			h = 31 * h + Double.doubleToLongBits(y1);
+			h = 31 * h + Double.doubleToLongBits(x2);
+			h = 31 * h + Double.doubleToLongBits(y2);
+			return (int)(h ^ (h >>> 32));
+		}
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.DTNSim;
+
+/**
+ * <P>Compact, int indexed copy of a map's node graph for path finding. The
+ * edges are stored in compressed sparse row (CSR) form: the neighbors of
+ * node <CODE>i</CODE> are <CODE>targets[offsets[i]] ...
+ * targets[offsets[i+1]-1]</CODE> and the edge lengths are in a parallel
+ * array. The node locations and type bit masks are in primitive arrays
+ * too.</P>
+ *
+ * <P>A graph covers the nodes reachable from the node it was built from.
+ * The graphs are cached by the node objects and shared by all path finders
+ * (see {@link #of(MapNode)}). The cached graphs keep copies of the node
+ * locations, so whoever moves the nodes must drop their graphs with
+ * {@link #invalidate(Collection)}, as {@link SimMap} does.</P>
+ */
+public class MapGraph {
+	/** cached graphs by the nodes they cover */
+	private static Map<MapNode, MapGraph> graphs;
+
+	static {
+		DTNSim.registerForReset(MapGraph.class.getCanonicalName());
+		reset();
+	}
+
+	private final MapNode[] nodes;
+	private final Map<MapNode, Integer> indexes;
+	private final double[] xs;
+	private final double[] ys;
+	private final int[] types;
+	private final int[] offsets;
+	private final int[] targets;
+	private final double[] lengths;
+
+	/**
+	 * Creates a graph of the nodes reachable from a node
+	 * @param start The node to start from
+	 */
+	public MapGraph(MapNode start) {
+		/* breadth first search gives the indexes */
+		List<MapNode> list = new ArrayList<MapNode>();
+		this.indexes = new IdentityHashMap<MapNode, Integer>();
+		list.add(start);
+		indexes.put(start, 0);
+		int nrofEdges = 0;
+		for (int i = 0; i < list.size(); i++) {
+			MapNode node = list.get(i);
+			for (int j = 0, k = node.getNrofNeighbors(); j < k; j++) {
+				MapNode n = node.getNeighbor(j);
+				nrofEdges++;
+				if (!indexes.containsKey(n)) {
+					indexes.put(n, list.size());
+					list.add(n);
+				}
+			}
+		}
+
+		int n = list.size();
+		this.nodes = list.toArray(new MapNode[n]);
+		this.xs = new double[n];
+		this.ys = new double[n];
+		this.types = new int[n];
+		this.offsets = new int[n + 1];
+		this.targets = new int[nrofEdges];
+		this.lengths = new double[nrofEdges];
+
+		for (int i = 0, e = 0; i < n; i++) {
+			MapNode node = nodes[i];
+			xs[i] = node.getLocation().getX();
+			ys[i] = node.getLocation().getY();
+			types[i] = node.getTypeMask();
+			offsets[i] = e;
+			for (int j = 0, k = node.getNrofNeighbors(); j < k; j++) {
+				targets[e] = indexes.get(node.getNeighbor(j));
+				lengths[e] = node.getNeighborDistance(j);
+				e++;
+			}
+		}
+		offsets[n] = nrofEdges;
+	}
+
+	/**
+	 * Returns the (cached) graph that covers the given node
+	 * @param node The node
+	 * @return A graph that contains the node and all nodes reachable from it
+	 */
+	public static synchronized MapGraph of(MapNode node) {
+		MapGraph g = graphs.get(node);
+		if (g == null) {
+			g = new MapGraph(node);
+			for (MapNode n : g.nodes) {
+				if (!graphs.containsKey(n)) {
+					graphs.put(n, g);
+				}
+			}
+		}
+		return g;
+	}
+
+	/**
+	 * Drops the cached graphs that cover any of the given nodes, e.g. after
+	 * the nodes have been moved. The next {@link #of(MapNode)} call builds
+	 * the graph again.
+	 * @param nodes The nodes
+	 */
+	public static synchronized void invalidate(Collection<MapNode> nodes) {
+		for (MapNode node : nodes) {
+			MapGraph g = graphs.get(node);
+			if (g == null) {
+				continue;
+			}
+			for (MapNode n : g.nodes) {
+				if (graphs.get(n) == g) {
+					graphs.remove(n);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Clears the graph cache
+	 */
+	public static synchronized void reset() {
+		graphs = new IdentityHashMap<MapNode, MapGraph>();
+	}
+
+	/**
+	 * Returns the number of nodes
+	 * @return the number of nodes
+	 */
+	public int size() {
+		return this.nodes.length;
+	}
+
+	/**
+	 * Returns the index of a node
+	 * @param node The node
+	 * @return The index of the node or -1 if the node is not in this graph
+	 */
+	public int indexOf(MapNode node) {
+		Integer i = indexes.get(node);
+		return (i != null ? i : -1);
+	}
+
+	/**
+	 * Returns the node with the given index
+	 * @param i Index of the node
+	 * @return the node
+	 */
+	public MapNode getNode(int i) {
+		return nodes[i];
+	}
+
+	/**
+	 * Returns the x coordinate of a node
+	 * @param i Index of the node
+	 * @return the x coordinate
+	 */
+	public double getX(int i) {
+		return xs[i];
+	}
+
+	/**
+	 * Returns the y coordinate of a node
+	 * @param i Index of the node
+	 * @return the y coordinate
+	 */
+	public double getY(int i) {
+		return ys[i];
+	}
+
+	/**
+	 * Returns the type bit mask of a node
+	 * @param i Index of the node
+	 * @return the type bit mask (see {@link #typeMask(int[])})
+	 */
+	public int getTypeMask(int i) {
+		return types[i];
+	}
+
+	/**
+	 * Returns the index where the edges of a node start in the edge arrays
+	 * @param i Index of the node
+	 * @return Index of the node's first edge; the edges of the node end
+	 * where the next node's edges start
+	 */
+	public int getFirstEdge(int i) {
+		return offsets[i];
+	}
+
+	/**
+	 * Returns the node an edge leads to
+	 * @param e Index of the edge
+	 * @return Index of the edge's target node
+	 */
+	public int getTarget(int e) {
+		return targets[e];
+	}
+
+	/**
+	 * Returns the length of an edge
+	 * @param e Index of the edge
+	 * @return Euclidean length of the edge
+	 */
+	public double getLength(int e) {
+		return lengths[e];
+	}
+
+	/**
+	 * Returns the type bit mask that matches nodes of any of the given types
+	 * @param okTypes The node types or null for all types
+	 * @return The bit mask or -1 (all bits set) if okTypes is null
+	 */
+	public static int typeMask(int[] okTypes) {
+		if (okTypes == null) {
+			return -1;
+		}
+		int mask = 0;
+		for (int type : okTypes) {
+			assert type >= MapNode.MIN_TYPE && type <= MapNode.MAX_TYPE :
+				"Invalid node type " + type;
+			mask |= 1 << type;
+		}
+		return mask;
+	}
+}
@@ -4,15 +4,19 @@
  */
 package movement.map;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Vector;
+import java.util.RandomAccess;
 
 import core.Coord;
 import core.SettingsError;
 
 /**
  * A node in a SimMap. Node has a location, 0-n neighbors that it is
- * connected to and possibly a type identifier.
+ * connected to and possibly a type identifier. The neighbors and the
+ * distances to them are kept in plain arrays; the distances are computed
+ * once when the map is loaded or moved (see {@link SimMap}).
  */
 public class MapNode implements Comparable<MapNode> {
 	/** Smallest valid type of a node: {@value}*/
@@ -21,8 +25,16 @@ public class MapNode implements Comparable<MapNode> {
 	public static final int MAX_TYPE = 31;
 
 
+	private static final MapNode[] NO_NEIGHBORS = new MapNode[0];
+
 	private Coord location;
-	private Vector<MapNode> neighbors;
+	/** the neighbors; only the first nrofNeighbors elements are used */
+	private MapNode[] neighbors;
+	private int nrofNeighbors;
+	/** distances to the neighbors or null if they need to be computed */
+	private double[] neighborDistances;
+	/** read-only list view of the neighbors */
+	private final List<MapNode> neighborList;
 	// bit mask of map node's types or 0 if no type's are defined
 	private int type;
 
@@ -32,7 +44,9 @@ public class MapNode implements Comparable<MapNode> {
 	 */
 	public MapNode(Coord location) {
 		this.location = location;
-		this.neighbors = new Vector<MapNode>();
+		this.neighbors = NO_NEIGHBORS;
+		this.nrofNeighbors = 0;
+		this.neighborList = new NeighborList();
 		type = 0;
 	}
 
@@ -77,6 +91,15 @@ public class MapNode implements Comparable<MapNode> {
 		return false;
 	}
 
+	/**
+	 * Returns the bit mask of the node's types
+	 * @return The bit mask (bit <CODE>1 &lt;&lt; type</CODE> is set for each
+	 * type) or 0 if the node has no types
+	 */
+	int getTypeMask() {
+		return this.type;
+	}
+
 	/**
 	 * Converts type integer to a bit mask for setting & checking type
 	 * @param type The type to convert
@@ -106,9 +129,36 @@ public class MapNode implements Comparable<MapNode> {
 	 * @param node
 	 */
 	private void addToList(MapNode node) {
-		if (!this.neighbors.contains(node) && node != this) {
-			this.neighbors.add(node);
+		if (node == this) {
+			return;
+		}
+		for (int i = 0; i < nrofNeighbors; i++) {
+			if (neighbors[i] == node) {
+				return;
+			}
+		}
+		if (nrofNeighbors == neighbors.length) {
+			neighbors = Arrays.copyOf(neighbors, Math.max(4, 2*nrofNeighbors));
 		}
+		neighbors[nrofNeighbors++] = node;
+		neighborDistances = null;
+	}
+
+	/**
+	 * Trims the neighbor array and computes the distances to the neighbors
+	 * from the current locations. Called by {@link SimMap} when the map has
+	 * been loaded and after its coordinates have changed.
+	 */
+	void freeze() {
+		if (neighbors.length != nrofNeighbors) {
+			neighbors = (nrofNeighbors == 0 ? NO_NEIGHBORS :
+				Arrays.copyOf(neighbors, nrofNeighbors));
+		}
+		double[] distances = new double[nrofNeighbors];
+		for (int i = 0; i < nrofNeighbors; i++) {
+			distances[i] = location.distance(neighbors[i].location);
+		}
+		this.neighborDistances = distances;
 	}
 
 	/**
@@ -121,10 +171,42 @@ public class MapNode implements Comparable<MapNode> {
 
 	/**
 	 * Returns the neighbors of this node.
-	 * @return the neighbors in a list
+	 * @return the neighbors in a read-only list
 	 */
 	public List<MapNode> getNeighbors() {
-		return neighbors;
+		return neighborList;
+	}
+
+	/**
+	 * Returns the number of neighbors of this node
+	 * @return the number of neighbors
+	 */
+	public int getNrofNeighbors() {
+		return nrofNeighbors;
+	}
+
+	/**
+	 * Returns a neighbor of this node
+	 * @param i Index of the neighbor (in the order of {@link #getNeighbors()})
+	 * @return The neighbor
+	 */
+	public MapNode getNeighbor(int i) {
+		assert i < nrofNeighbors : "No neighbor " + i + " in " + this;
+		return neighbors[i];
+	}
+
+	/**
+	 * Returns the distance to a neighbor of this node
+	 * @param i Index of the neighbor (in the order of {@link #getNeighbors()})
+	 * @return The distance between this node and the neighbor
+	 */
+	public double getNeighborDistance(int i) {
+		double[] distances = neighborDistances;
+		if (distances == null) {
+			freeze();
+			distances = neighborDistances;
+		}
+		return distances[i];
 	}
 
 	/**
@@ -143,4 +225,24 @@ public class MapNode implements Comparable<MapNode> {
 		return this.getLocation().compareTo((o).getLocation());
 	}
 
+	/**
+	 * Read-only list view of the neighbor array
+	 */
+	private class NeighborList extends AbstractList<MapNode>
+			implements RandomAccess {
+		@Override
+		public MapNode get(int index) {
+			if (index >= nrofNeighbors) {
+				throw new IndexOutOfBoundsException("Index: " + index +
+						", Size: " + nrofNeighbors);
+			}
+			return neighbors[index];
+		}
+
+		@Override
+		public int size() {
+			return nrofNeighbors;
+		}
+	}
+
 }
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import core.Coord;
+
+/**
+ * <P>Uniform grid index of a map's nodes and edges for nearest neighbor
+ * queries. The nodes and edges are stored per cell in flat arrays (cell
+ * start offsets and the items sorted by cell), like in
+ * {@link core.GridHostIndex}. An edge is stored in every cell that its
+ * bounding box overlaps.</P>
+ *
+ * <P>The nearest node and edge queries search the cells in growing rings
+ * around the query location until no unsearched cell can contain anything
+ * closer. Of equally distant nodes the one that is first in the map's node
+ * list is returned. The index doesn't change once built, so it can be
+ * queried from multiple threads. It must be rebuilt if the locations of the
+ * map nodes change (see {@link SimMap#getNodeIndex()}).</P>
+ */
+public class MapNodeIndex {
+	/** target average number of nodes per cell */
+	private static final int NODES_PER_CELL = 2;
+	/** maximum number of cells per side of the grid */
+	private static final int MAX_CELLS_PER_SIDE = 1024;
+
+	private final List<MapNode> nodes;
+	private final double minX;
+	private final double minY;
+	private final double cellSize;
+	private final int cols;
+	private final int rows;
+
+	/** start offset of each cell in {@link #cellNodes}; last is the end */
+	private final int[] nodeStart;
+	/** node indexes sorted by their cell */
+	private final int[] cellNodes;
+	/** start offset of each cell in {@link #cellEdges}; last is the end */
+	private final int[] edgeStart;
+	/** edge indexes sorted by cell */
+	private final int[] cellEdges;
+	/** first end node of each edge */
+	private final int[] edgeFrom;
+	/** second end node of each edge */
+	private final int[] edgeTo;
+
+	/**
+	 * Creates an index of map nodes and the edges between them
+	 * @param nodes The nodes of the map
+	 */
+	public MapNodeIndex(List<MapNode> nodes) {
+		this.nodes = nodes;
+		int n = nodes.size();
+
+		double x0 = 0, y0 = 0, x1 = 0, y1 = 0;
+		for (int i = 0; i < n; i++) {
+			Coord c = nodes.get(i).getLocation();
+			if (i == 0 || c.getX() < x0) { x0 = c.getX(); }
+			if (i == 0 || c.getY() < y0) { y0 = c.getY(); }
+			if (i == 0 || c.getX() > x1) { x1 = c.getX(); }
+			if (i == 0 || c.getY() > y1) { y1 = c.getY(); }
+		}
+		double width = x1 - x0;
+		double height = y1 - y0;
+		double size = Math.sqrt(Math.max(width * height, 1) *
+				NODES_PER_CELL / Math.max(n, 1));
+		size = Math.max(size, Math.max(width, height) / MAX_CELLS_PER_SIDE);
+		this.minX = x0;
+		this.minY = y0;
+		this.cellSize = (size > 0 ? size : 1);
+		this.cols = (int)(width / cellSize) + 1;
+		this.rows = (int)(height / cellSize) + 1;
+		int nrofCells = rows * cols;
+
+		/* nodes by cell (counting sort) */
+		int[] nodeCell = new int[n];
+		this.nodeStart = new int[nrofCells + 1];
+		for (int i = 0; i < n; i++) {
+			Coord c = nodes.get(i).getLocation();
+			nodeCell[i] = col(c.getX()) + row(c.getY()) * cols;
+			nodeStart[nodeCell[i] + 1]++;
+		}
+		this.cellNodes = new int[n];
+		int[] fill = prefixSums(nodeStart);
+		for (int i = 0; i < n; i++) {
+			cellNodes[fill[nodeCell[i]]++] = i;
+		}
+
+		/* undirected edges, each only once */
+		Map<MapNode, Integer> indexes = new IdentityHashMap<MapNode, Integer>();
+		for (int i = 0; i < n; i++) {
+			indexes.put(nodes.get(i), i);
+		}
+		List<int[]> edges = new ArrayList<int[]>();
+		for (int i = 0; i < n; i++) {
+			MapNode node = nodes.get(i);
+			for (MapNode neighbor : node.getNeighbors()) {
+				Integer j = indexes.get(neighbor);
+				if (j != null && (i < j ||
+						!neighbor.getNeighbors().contains(node))) {
+					edges.add(new int[] {i, j});
+				}
+			}
+		}
+		int m = edges.size();
+		this.edgeFrom = new int[m];
+		this.edgeTo = new int[m];
+		for (int e = 0; e < m; e++) {
+			edgeFrom[e] = edges.get(e)[0];
+			edgeTo[e] = edges.get(e)[1];
+		}
+
+		/* edges by the cells of their bounding boxes (counting sort) */
+		this.edgeStart = new int[nrofCells + 1];
+		for (int e = 0; e < m; e++) {
+			int[] box = edgeCells(e);
+			for (int r = box[2]; r <= box[3]; r++) {
+				for (int c = box[0]; c <= box[1]; c++) {
+					edgeStart[c + r * cols + 1]++;
+				}
+			}
+		}
+		fill = prefixSums(edgeStart);
+		this.cellEdges = new int[edgeStart[nrofCells]];
+		for (int e = 0; e < m; e++) {
+			int[] box = edgeCells(e);
+			for (int r = box[2]; r <= box[3]; r++) {
+				for (int c = box[0]; c <= box[1]; c++) {
+					cellEdges[fill[c + r * cols]++] = e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the node that is closest to the given location
+	 * @param c The location
+	 * @return The nearest node or null if there are no nodes
+	 */
+	public MapNode getNearestNode(Coord c) {
+		List<MapNode> nearest = getNearestNodes(c, 1);
+		return (nearest.isEmpty() ? null : nearest.get(0));
+	}
+
+	/**
+	 * Returns the k nodes that are closest to the given location
+	 * @param c The location
+	 * @param k Maximum number of nodes to return
+	 * @return The nearest nodes ordered by their distance (nearest first)
+	 */
+	public List<MapNode> getNearestNodes(Coord c, int k) {
+		k = Math.min(k, nodes.size());
+		/* best k so far, sorted by distance and node index */
+		int[] best = new int[k];
+		double[] bestDist = new double[k];
+		int found = 0;
+
+		int cx = col(c.getX());
+		int cy = row(c.getY());
+		for (int ring = 0; k > 0; ring++) {
+			if (found == k && bestDist[k - 1] <= (ring - 1) * cellSize) {
+				break; // nothing closer in this or any outer ring
+			}
+			if (ring > rows + cols) {
+				break; // all cells searched
+			}
+			for (int r = cy - ring; r <= cy + ring; r++) {
+				if (r < 0 || r >= rows) {
+					continue;
+				}
+				boolean edgeRow = (r == cy - ring || r == cy + ring);
+				int step = (edgeRow || ring == 0 ? 1 : 2 * ring);
+				for (int col = cx - ring; col <= cx + ring; col += step) {
+					if (col < 0 || col >= cols) {
+						continue;
+					}
+					int cell = col + r * cols;
+					for (int i = nodeStart[cell]; i < nodeStart[cell+1]; i++) {
+						int node = cellNodes[i];
+						double d = nodes.get(node).getLocation().distance(c);
+						found = insert(best, bestDist, found, node, d);
+					}
+				}
+			}
+		}
+
+		List<MapNode> result = new ArrayList<MapNode>(found);
+		for (int i = 0; i < found; i++) {
+			result.add(nodes.get(best[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns all nodes within the given distance of a location
+	 * @param c The location
+	 * @param radius The maximum distance
+	 * @return The nodes within the distance in the order of the map's node
+	 * list
+	 */
+	public List<MapNode> getNodesWithin(Coord c, double radius) {
+		List<MapNode> result = new ArrayList<MapNode>();
+		if (nodes.isEmpty() || radius < 0) {
+			return result;
+		}
+		int c0 = col(c.getX() - radius);
+		int c1 = col(c.getX() + radius);
+		int r0 = row(c.getY() - radius);
+		int r1 = row(c.getY() + radius);
+		List<Integer> found = new ArrayList<Integer>();
+		for (int r = r0; r <= r1; r++) {
+			for (int col = c0; col <= c1; col++) {
+				int cell = col + r * cols;
+				for (int i = nodeStart[cell]; i < nodeStart[cell+1]; i++) {
+					if (nodes.get(cellNodes[i]).getLocation().distance(c) <=
+							radius) {
+						found.add(cellNodes[i]);
+					}
+				}
+			}
+		}
+		int[] sorted = new int[found.size()];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = found.get(i);
+		}
+		Arrays.sort(sorted);
+		for (int i : sorted) {
+			result.add(nodes.get(i));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the map edge that is closest to the given location
+	 * @param c The location
+	 * @return The end nodes of the nearest edge or null if the map has no
+	 * edges
+	 */
+	public MapNode[] getNearestEdge(Coord c) {
+		int best = -1;
+		double bestDist = Double.MAX_VALUE;
+		int cx = col(c.getX());
+		int cy = row(c.getY());
+
+		for (int ring = 0; edgeFrom.length > 0; ring++) {
+			if (best >= 0 && bestDist <= (ring - 1) * cellSize) {
+				break;
+			}
+			if (ring > rows + cols) {
+				break;
+			}
+			for (int r = cy - ring; r <= cy + ring; r++) {
+				if (r < 0 || r >= rows) {
+					continue;
+				}
+				boolean edgeRow = (r == cy - ring || r == cy + ring);
+				int step = (edgeRow || ring == 0 ? 1 : 2 * ring);
+				for (int col = cx - ring; col <= cx + ring; col += step) {
+					if (col < 0 || col >= cols) {
+						continue;
+					}
+					int cell = col + r * cols;
+					for (int i = edgeStart[cell]; i < edgeStart[cell+1]; i++) {
+						int e = cellEdges[i];
+						double d = segmentDistance(c,
+								nodes.get(edgeFrom[e]).getLocation(),
+								nodes.get(edgeTo[e]).getLocation());
+						if (d < bestDist || (d == bestDist && e < best)) {
+							best = e;
+							bestDist = d;
+						}
+					}
+				}
+			}
+		}
+
+		if (best < 0) {
+			return null;
+		}
+		return new MapNode[] {nodes.get(edgeFrom[best]),
+				nodes.get(edgeTo[best])};
+	}
+
+	/**
+	 * Returns the point on the nearest map edge that is closest to the
+	 * given location, i.e., snaps the location to the road network
+	 * @param c The location
+	 * @return The closest point on the map's edges or null if the map has
+	 * no edges
+	 */
+	public Coord snapToEdge(Coord c) {
+		MapNode[] edge = getNearestEdge(c);
+		if (edge == null) {
+			return null;
+		}
+		Coord a = edge[0].getLocation();
+		Coord b = edge[1].getLocation();
+		double t = projection(c, a, b);
+		return new Coord(a.getX() + t * (b.getX() - a.getX()),
+				a.getY() + t * (b.getY() - a.getY()));
+	}
+
+	/**
+	 * Inserts a node to the sorted best k list if it is good enough
+	 * @return The new number of nodes in the list
+	 */
+	private static int insert(int[] best, double[] bestDist, int found,
+			int node, double d) {
+		int k = best.length;
+		if (found == k && (d > bestDist[k - 1] ||
+				(d == bestDist[k - 1] && node > best[k - 1]))) {
+			return found;
+		}
+		int i = (found < k ? found++ : k - 1);
+		while (i > 0 && (bestDist[i - 1] > d ||
+				(bestDist[i - 1] == d && best[i - 1] > node))) {
+			best[i] = best[i - 1];
+			bestDist[i] = bestDist[i - 1];
+			i--;
+		}
+		best[i] = node;
+		bestDist[i] = d;
+		return found;
+	}
+
+	/**
+	 * Returns the relative position [0,1] of the point closest to c on the
+	 * segment a-b
+	 */
+	private static double projection(Coord c, Coord a, Coord b) {
+		double dx = b.getX() - a.getX();
+		double dy = b.getY() - a.getY();
+		double len2 = dx * dx + dy * dy;
+		if (len2 == 0) {
+			return 0;
+		}
+		double t = ((c.getX() - a.getX()) * dx + (c.getY() - a.getY()) * dy) /
+			len2;
+		return Math.max(0, Math.min(1, t));
+	}
+
+	private static double segmentDistance(Coord c, Coord a, Coord b) {
+		double t = projection(c, a, b);
+		double x = a.getX() + t * (b.getX() - a.getX()) - c.getX();
+		double y = a.getY() + t * (b.getY() - a.getY()) - c.getY();
+		return Math.sqrt(x * x + y * y);
+	}
+
+	/**
+	 * Returns the cell range {col0, col1, row0, row1} of an edge's
+	 * bounding box
+	 */
+	private int[] edgeCells(int e) {
+		Coord a = nodes.get(edgeFrom[e]).getLocation();
+		Coord b = nodes.get(edgeTo[e]).getLocation();
+		return new int[] {col(Math.min(a.getX(), b.getX())),
+				col(Math.max(a.getX(), b.getX())),
+				row(Math.min(a.getY(), b.getY())),
+				row(Math.max(a.getY(), b.getY()))};
+	}
+
+	/**
+	 * Turns cell counts (at index cell+1) into start offsets and returns
+	 * a copy of the offsets to be used as fill cursors
+	 */
+	private static int[] prefixSums(int[] start) {
+		for (int i = 1; i < start.length; i++) {
+			start[i] += start[i - 1];
+		}
+		return Arrays.copyOf(start, start.length - 1);
+	}
+
+	/** Returns the column of an x coordinate clamped to the grid */
+	private int col(double x) {
+		int c = (int)Math.floor((x - minX) / cellSize);
+		return Math.max(0, Math.min(cols - 1, c));
+	}
+
+	/** Returns the row of a y coordinate clamped to the grid */
+	private int row(double y) {
+		int r = (int)Math.floor((y - minY) / cellSize);
+		return Math.max(0, Math.min(rows - 1, r));
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package movement.map;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import core.DTNSim;
+import core.Settings;
+
+/**
+ * Least recently used cache of shortest paths between map nodes. The paths
+ * are keyed by the source and destination nodes and the OK node types of
+ * the search, so path finders with different type filters can share the
+ * cache. The cache is thread safe and keeps statistics of its hit rate.
+ * One shared cache (see {@link #getInstance()}) is used by the map based
+ * movement models and all their replicates.
+ */
+public class PathCache {
+	/** name space of the path cache settings ({@value}) */
+	public static final String PATH_CACHE_NS = "PathCache";
+	/**
+	 * Maximum number of paths in the shared cache -setting id ({@value}).
+	 * Zero disables the cache. Default is {@link #DEF_CAPACITY}.
+	 */
+	public static final String CAPACITY_S = "capacity";
+	/** default capacity ({@value}) */
+	public static final int DEF_CAPACITY = 4096;
+
+	private static PathCache instance;
+	private static boolean instanceCreated;
+
+	static {
+		DTNSim.registerForReset(PathCache.class.getCanonicalName());
+		reset();
+	}
+
+	private final int capacity;
+	private final Map<Key, MapNode[]> paths;
+	private long hits;
+	private long misses;
+
+	/**
+	 * Constructor.
+	 * @param capacity Maximum number of paths in the cache
+	 */
+	public PathCache(final int capacity) {
+		this.capacity = capacity;
+		this.paths = new LinkedHashMap<Key, MapNode[]>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<Key, MapNode[]> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Returns the shared cache. The cache is created, based on the
+	 * settings, on the first call.
+	 * @return The shared cache or null if the cache is disabled
+	 */
+	public static synchronized PathCache getInstance() {
+		if (!instanceCreated) {
+			Settings s = new Settings(PATH_CACHE_NS);
+			int capacity = s.getInt(CAPACITY_S, DEF_CAPACITY);
+			if (capacity < 0) {
+				s.ensurePositiveValue(capacity, CAPACITY_S);
+			}
+			instance = (capacity > 0 ? new PathCache(capacity) : null);
+			instanceCreated = true;
+		}
+		return instance;
+	}
+
+	/**
+	 * Discards the shared cache
+	 */
+	public static synchronized void reset() {
+		instance = null;
+		instanceCreated = false;
+	}
+
+	/**
+	 * Returns a cached path
+	 * @param from The source node
+	 * @param to The destination node
+	 * @param okTypeMask Bit mask of the OK node types of the search
+	 * @return The path (which must not be modified) or null if it is not in
+	 * the cache
+	 */
+	public synchronized MapNode[] get(MapNode from, MapNode to,
+			int okTypeMask) {
+		MapNode[] path = paths.get(new Key(from, to, okTypeMask));
+		if (path != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return path;
+	}
+
+	/**
+	 * Stores a path in the cache
+	 * @param from The source node
+	 * @param to The destination node
+	 * @param okTypeMask Bit mask of the OK node types of the search
+	 * @param path The path (an empty array if there is none)
+	 */
+	public synchronized void put(MapNode from, MapNode to, int okTypeMask,
+			MapNode[] path) {
+		paths.put(new Key(from, to, okTypeMask), path);
+	}
+
+	/**
+	 * Returns the number of look ups that found a path
+	 * @return the number of hits
+	 */
+	public synchronized long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * Returns the number of look ups that didn't find a path
+	 * @return the number of misses
+	 */
+	public synchronized long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * Returns the share of the look ups that found a path
+	 * @return the hit rate or 0 if nothing has been looked up
+	 */
+	public synchronized double getHitRate() {
+		long total = hits + misses;
+		return (total > 0 ? (double)hits / total : 0);
+	}
+
+	/**
+	 * Returns the number of paths in the cache
+	 * @return the number of paths in the cache
+	 */
+	public synchronized int size() {
+		return this.paths.size();
+	}
+
+	/**
+	 * Returns the maximum number of paths in the cache
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Key of a path: the end nodes and the type filter
+	 */
+	private static class Key {
+		private final MapNode from;
+		private final MapNode to;
+		private final int okTypeMask;
+
+		private Key(MapNode from, MapNode to, int okTypeMask) {
+			this.from = from;
+			this.to = to;
+			this.okTypeMask = okTypeMask;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key k = (Key)o;
+			return from == k.from && to == k.to && okTypeMask == k.okTypeMask;
+		}
+
+		@Override
+		public int hashCode() {
+			return (System.identityHashCode(from) * 31 +
+					System.identityHashCode(to)) * 31 + okTypeMask;
+		}
+	}
+}
@@ -75,6 +75,16 @@ public class PointsOfInterest {
 	 * @return A destination among POIs or all MapNodes
 	 */
 	public MapNode selectDestination() {
+		return selectDestination(this.rng);
+	}
+
+	/**
+	 * Selects a random destination like {@link #selectDestination()} but
+	 * draws the random numbers from the given random number generator.
+	 * @param rng The random number generator to use
+	 * @return A destination among POIs or all MapNodes
+	 */
+	public MapNode selectDestination(Random rng) {
 		double random = rng.nextDouble();
 		double acc = 0;
 
@@ -6,6 +6,7 @@ package movement.map;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
@@ -32,6 +33,8 @@ public class SimMap implements Serializable {
 
 	/** is re-hash needed before using hash mode (some coordinates changed) */
 	private boolean needsRehash = false;
+	/** spatial index of the nodes or null if it needs to be (re)built */
+	private transient MapNodeIndex nodeIndex;
 
 	public SimMap(Map<Coord, MapNode> nodes) {
 		this.offset = new Coord(0,0);
@@ -40,6 +43,25 @@ public class SimMap implements Serializable {
 		this.nodesMap = nodes;
 		this.isMirrored = false;
 		setBounds();
+		freezeNodes();
+	}
+
+	/**
+	 * Creates a map of the given nodes. The nodes are kept in the given
+	 * order (see {@link #getNodes()}).
+	 * @param nodes The nodes of the map
+	 */
+	public SimMap(List<MapNode> nodes) {
+		this.offset = new Coord(0,0);
+		this.nodes = new ArrayList<MapNode>(nodes);
+		this.nodesMap = new Hashtable<Coord, MapNode>();
+		for (MapNode node : nodes) {
+			nodesMap.put(node.getLocation(), node);
+		}
+		this.mappedNodes = nodesMap;
+		this.isMirrored = false;
+		setBounds();
+		freezeNodes();
 	}
 
 	/**
@@ -75,6 +97,30 @@ public class SimMap implements Serializable {
 		return nodesMap.get(c);
 	}
 
+	/**
+	 * Returns the spatial index of the map's nodes and edges. The index is
+	 * built on the first call after the map has been created, translated or
+	 * mirrored.
+	 * @return The index
+	 */
+	public synchronized MapNodeIndex getNodeIndex() {
+		if (nodeIndex == null) {
+			nodeIndex = new MapNodeIndex(nodes);
+		}
+		return nodeIndex;
+	}
+
+	/**
+	 * Returns the map node that is closest to the given coordinate. Unlike
+	 * {@link #getNodeByCoord(Coord)}, the coordinate doesn't need to be
+	 * exactly at a node.
+	 * @param c The coordinate
+	 * @return The nearest map node or null if the map has no nodes
+	 */
+	public MapNode getNearestNode(Coord c) {
+		return getNodeIndex().getNearestNode(c);
+	}
+
 	/**
 	 * Returns the upper left corner coordinate of the map
 	 * @return the upper left corner coordinate of the map
@@ -124,6 +170,8 @@ public class SimMap implements Serializable {
 		offset.translate(dx, dy);
 
 		needsRehash = true;
+		invalidateNodeIndex();
+		freezeNodes();
 	}
 
 	/**
@@ -140,6 +188,22 @@ public class SimMap implements Serializable {
 		setBounds();
 		this.isMirrored = true;
 		needsRehash = true;
+		invalidateNodeIndex();
+		freezeNodes();
+	}
+
+	private synchronized void invalidateNodeIndex() {
+		this.nodeIndex = null;
+		MapGraph.invalidate(nodes); /* the graphs have the old locations */
+	}
+
+	/**
+	 * Freezes the adjacency of the nodes (see {@link MapNode#freeze()})
+	 */
+	private void freezeNodes() {
+		for (MapNode n : nodes) {
+			n.freeze();
+		}
 	}
 
 	/**
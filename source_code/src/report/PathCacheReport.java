@@ -0,0 +1,30 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package report;
+
+import movement.map.PathCache;
+
+/**
+ * Reports the statistics of the shared shortest path cache (see
+ * {@link PathCache}) at the end of the simulation.
+ */
+public class PathCacheReport extends Report {
+
+	@Override
+	public void done() {
+		PathCache cache = PathCache.getInstance();
+		write("Path cache stats for scenario " + getScenarioName());
+		if (cache == null) {
+			write("disabled");
+		} else {
+			write("capacity: " + cache.getCapacity());
+			write("size: " + cache.size());
+			write("hits: " + cache.getHits());
+			write("misses: " + cache.getMisses());
+			write("hitrate: " + format(cache.getHitRate()));
+		}
+		super.done();
+	}
+}
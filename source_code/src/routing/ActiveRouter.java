@@ -571,6 +571,21 @@ public abstract class ActiveRouter extends MessageRouter {
 		return this.energy == null || this.energy.getEnergy() > 0;
 	}
 
+	/**
+	 * Returns the earliest time when {@link #update()} may change the state
+	 * of this router: the next TTL check, or every update if energy is
+	 * modeled. The TTL check is due even without messages since it sets
+	 * the time of the following checks.
+	 */
+	@Override
+	public double getNextUpdateTime() {
+		if (energy != null) {
+			return SimClock.getTime(); /* energy is used on every update */
+		}
+		return Math.min(super.getNextUpdateTime(),
+				lastTtlCheck + TTL_CHECK_INTERVAL);
+	}
+
 	/**
 	 * Checks out all sending connections to finalize the ready ones
 	 * and abort those whose connection went down. Also drops messages
@@ -10,7 +10,10 @@ import core.World;
 import input.MessageCreateEvent;
 import core.Settings;
 import core.Connection;
-import core.SimError;
+import core.SimClock;
+import core.SimScenario;
+import routing.util.TrafficSignalController;
+import routing.util.TrafficSignalController.Approach;
 
 import java.io.Serializable;
 
@@ -22,32 +25,21 @@ public class IntersectionRouter extends ActiveRouter {
     //NS_EW: false- EW = Green
 
     private boolean NS_EW = false;
-    private int GREEN =0, YELLOW = 1, RED =2;
-    private double time, max;
-    private long delay_time;
+
+    /** times the light phases in simulation time */
+    private TrafficSignalController signals;
 
     private List<DTNHost> vehicles;
 
     public IntersectionRouter(Settings s) {
         super(s);
+        this.signals = new TrafficSignalController(
+                new Settings(TrafficSignalController.TRAFFIC_SIGNAL_NS));
     }
 
     protected IntersectionRouter(IntersectionRouter r) {
         super(r);
-    }
-
-    private void switchLights(){
-		NS_EW = !NS_EW;
-    }
-
-    private long delay() {
-    	try {
-    		Thread.sleep(delay_time);
-    	}
-    	catch (InterruptedException e) {
-    		System.out.println("Interrupted");
-    	}
-    	return delay_time;
+        this.signals = new TrafficSignalController(r.signals);
     }
 
     @Override
@@ -63,15 +55,16 @@ public class IntersectionRouter extends ActiveRouter {
         //get neighbors
         vehicles = getNeighbors(NS_EW);
         DTNHost host = getHost();
+        String approach = NS_EW ? "NS" : "EW";
         for (DTNHost neighbor: vehicles) {
 
-            Message msg = new Message(host,neighbor,"Green",1);
+            /* a new id for every change so receivers don't take the later
+               changes for copies of the first one */
+            String id = "TL" + SimClock.getIntTime() + "-" + approach + "-" +
+                neighbor.getAddress();
+            Message msg = new Message(host,neighbor,id,1);
             msg.setTtl(this.msgTtl);
             msg.addProperty("Color", color);
-            if(!createNewMessage(msg))
-            {
-                throw new SimError("Message could not be created");
-            }
             host.createNewMessage(msg);
 
             // Received a pong reply
@@ -154,11 +147,29 @@ public class IntersectionRouter extends ActiveRouter {
         return neighbors;
     }
 
+    /**
+     * Returns the earliest time when the update may change the state of the
+     * router; the lights change at the next change time (the current time
+     * if the lights haven't been started yet).
+     */
+    @Override
+    public double getNextUpdateTime() {
+        return Math.min(super.getNextUpdateTime(),
+                signals.getNextChangeTime());
+    }
+
     @Override
     public void update() {
-        Vector<String> messages = new Vector<String>();
         super.update();
 
+        /* tell the vehicles about the new lights when they change */
+        if (signals.update(SimScenario.getInstance().getWorld())) {
+            NS_EW = true;
+            sendMessage(NS_EW, signals.getColor(Approach.northSouth));
+            NS_EW = false;
+            sendMessage(NS_EW, signals.getColor(Approach.eastWest));
+        }
+
         if (isTransferring() || !canStartTransfer()) {
             return; /* transferring, don't try other connections yet */
         }
@@ -167,17 +178,6 @@ public class IntersectionRouter extends ActiveRouter {
         if (exchangeDeliverableMessages() != null) {
             return;
         }
-        //need to send message to all connected
-        for(;time<max;) {
-          //East-West Light is green
-          NS_EW = true;
-          sendMessage(NS_EW,GREEN);
-          time += delay();
-          //after time out
-          NS_EW = false;
-          sendMessage(NS_EW,GREEN);
-        }
-
         /* see if need to drop some messages... 
         for (Message m : getMessageCollection()) {
             peerMsgCount = getPeerMessageCount(m);
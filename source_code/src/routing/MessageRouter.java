@@ -189,6 +189,25 @@ public abstract class MessageRouter {
 		}
 	}
 
+	/**
+	 * Returns the earliest time when {@link #update()} may change the state
+	 * of this router if no connection comes up or goes down before that.
+	 * The applications are updated on every update, so a router with
+	 * applications needs every update. Subclasses that do something on
+	 * their own over time must override this.
+	 * @return The time of the next update that may change something; the
+	 * current time (or earlier) if every update may do so and
+	 * {@link Double#MAX_VALUE} if none does
+	 */
+	public double getNextUpdateTime() {
+		for (Collection<Application> apps : this.applications.values()) {
+			if (!apps.isEmpty()) {
+				return SimClock.getTime();
+			}
+		}
+		return Double.MAX_VALUE;
+	}
+
 	/**
 	 * Informs the router about change in connections state.
 	 * @param con The connection that changed
@@ -341,6 +360,22 @@ public abstract class MessageRouter {
 		return RCV_OK; // superclass always accepts messages
 	}
 
+	/**
+	 * Passes a broadcast frame to the applications of this host. The frame
+	 * is not put to the message buffer, forwarded or reported to the message
+	 * listeners, and the applications must not modify it.
+	 * @param m The frame
+	 * @param from Host the frame was from
+	 * @see core.NetworkInterface#broadcast(Message)
+	 */
+	public void receiveBroadcast(Message m, DTNHost from) {
+		for (Application app : getApplications(m.getAppID())) {
+			if (app.handle(m, this.host) == null) {
+				break; // Some app wanted to drop the frame
+			}
+		}
+	}
+
 	/**
 	 * This method should be called (on the receiving host) after a message
 	 * was successfully transferred. The transferred message is put to the
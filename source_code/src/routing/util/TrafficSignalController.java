@@ -0,0 +1,152 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package routing.util;
+
+import core.Settings;
+import core.SettingsError;
+import core.SimClock;
+import core.World;
+
+/**
+ * Traffic lights of a two-approach intersection timed in simulation time.
+ * The lights cycle through north-south green, north-south yellow, east-west
+ * green and east-west yellow; the approach that doesn't have green or
+ * yellow has red. Every phase change is scheduled as a world update with
+ * {@link World#scheduleUpdate(double)}, so the change is noticed at the
+ * right simulation time whatever the update interval is.
+ */
+public class TrafficSignalController {
+	/** name space of the traffic signal settings ({@value}) */
+	public static final String TRAFFIC_SIGNAL_NS = "TrafficSignal";
+	/**
+	 * How long (seconds) an approach has green light -setting id
+	 * ({@value}). Default is {@link #DEF_GREEN_TIME}.
+	 */
+	public static final String GREEN_TIME_S = "greenTime";
+	/**
+	 * How long (seconds) an approach has yellow light -setting id
+	 * ({@value}). Default is {@link #DEF_YELLOW_TIME}.
+	 */
+	public static final String YELLOW_TIME_S = "yellowTime";
+
+	/** default green time ({@value}) */
+	public static final double DEF_GREEN_TIME = 30;
+	/** default yellow time ({@value}) */
+	public static final double DEF_YELLOW_TIME = 3;
+
+	/** green light ({@value}) */
+	public static final int GREEN = 0;
+	/** yellow light ({@value}) */
+	public static final int YELLOW = 1;
+	/** red light ({@value}) */
+	public static final int RED = 2;
+
+	/** Approaches to the intersection */
+	public enum Approach {
+		northSouth, eastWest
+	}
+
+	private static final int NS_GREEN = 0;
+	private static final int NS_YELLOW = 1;
+	private static final int EW_GREEN = 2;
+	private static final int EW_YELLOW = 3;
+	private static final int NROF_PHASES = 4;
+
+	private final double greenTime;
+	private final double yellowTime;
+	private int phase;
+	/** time of the next phase change or negative if not started yet */
+	private double nextChange;
+
+	/**
+	 * Constructor.
+	 * @param s Settings where the phase durations are read from
+	 */
+	public TrafficSignalController(Settings s) {
+		this.greenTime = s.getDouble(GREEN_TIME_S, DEF_GREEN_TIME);
+		this.yellowTime = s.getDouble(YELLOW_TIME_S, DEF_YELLOW_TIME);
+		if (greenTime <= 0 || yellowTime <= 0) {
+			throw new SettingsError("Non-positive phase time for " +
+					s.getFullPropertyName(GREEN_TIME_S) + " or " +
+					s.getFullPropertyName(YELLOW_TIME_S));
+		}
+		this.phase = NS_GREEN;
+		this.nextChange = -1;
+	}
+
+	/**
+	 * Copy constructor. The copy starts from the beginning of the cycle.
+	 * @param proto The controller prototype
+	 */
+	public TrafficSignalController(TrafficSignalController proto) {
+		this.greenTime = proto.greenTime;
+		this.yellowTime = proto.yellowTime;
+		this.phase = NS_GREEN;
+		this.nextChange = -1;
+	}
+
+	/**
+	 * Advances the lights to the current simulation time and schedules a
+	 * world update for the next phase change. The first call starts the
+	 * cycle with north-south green.
+	 * @param world The world where the next change is scheduled
+	 * @return True if the lights changed (or were started) in this call
+	 */
+	public boolean update(World world) {
+		double now = SimClock.getTime();
+		if (nextChange < 0) {
+			phase = NS_GREEN;
+			nextChange = now + greenTime;
+		} else if (now < nextChange) {
+			return false;
+		} else {
+			while (now >= nextChange) {
+				phase = (phase + 1) % NROF_PHASES;
+				nextChange += (phase == NS_GREEN || phase == EW_GREEN ?
+						greenTime : yellowTime);
+			}
+		}
+
+		world.scheduleUpdate(nextChange);
+		return true;
+	}
+
+	/**
+	 * Returns the current color of an approach's light
+	 * @param approach The approach
+	 * @return {@link #GREEN}, {@link #YELLOW} or {@link #RED}
+	 */
+	public int getColor(Approach approach) {
+		boolean ns = (approach == Approach.northSouth);
+		switch (phase) {
+		case NS_GREEN:
+			return ns ? GREEN : RED;
+		case NS_YELLOW:
+			return ns ? YELLOW : RED;
+		case EW_GREEN:
+			return ns ? RED : GREEN;
+		default:
+			return ns ? RED : YELLOW;
+		}
+	}
+
+	/**
+	 * Returns the time of the next phase change
+	 * @return the time of the next phase change or a negative value if the
+	 * lights haven't been started
+	 */
+	public double getNextChangeTime() {
+		return this.nextChange;
+	}
+
+	/**
+	 * Returns a string representation of the lights
+	 * @return a string representation of the lights
+	 */
+	public String toString() {
+		return "TrafficSignal NS=" + getColor(Approach.northSouth) + " EW=" +
+			getColor(Approach.eastWest) + " next change at " + nextChange;
+	}
+}
@@ -50,6 +50,25 @@ public class AllTests {
 		suite.addTestSuite(MessageTest.class);
 		suite.addTestSuite(ModuleCommunicationBusTest.class);
 		suite.addTestSuite(DTNHostTest.class);
+		suite.addTestSuite(GridHostIndexTest.class);
+		suite.addTestSuite(NarrowPhaseTest.class);
+		suite.addTestSuite(PedestrianYieldTest.class);
+		suite.addTestSuite(HostRegistryTest.class);
+		suite.addTestSuite(TrafficSignalControllerTest.class);
+		suite.addTestSuite(IntersectionRouterTest.class);
+		suite.addTestSuite(GeometryTest.class);
+		suite.addTestSuite(TrajectoryPredictorTest.class);
+		suite.addTestSuite(LocationUpdateCodecTest.class);
+		suite.addTestSuite(BroadcastTest.class);
+		suite.addTestSuite(NeighborTableTest.class);
+		suite.addTestSuite(CarFollowingModelTest.class);
+		suite.addTestSuite(EdgeOccupancyIndexTest.class);
+		suite.addTestSuite(PathCacheTest.class);
+		suite.addTestSuite(ContractionHierarchyTest.class);
+		suite.addTestSuite(BinaryMapCacheTest.class);
+		suite.addTestSuite(WKTTokenizerTest.class);
+		suite.addTestSuite(DecimalParserTest.class);
+		suite.addTestSuite(MapNodeIndexTest.class);
 		//$JUnit-END$
 		return suite;
 	}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.WKTMapReader;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import movement.map.BinaryMapCache;
+import movement.map.MapNode;
+import movement.map.SimMap;
+
+/**
+ * Tests for the binary map cache
+ */
+public class BinaryMapCacheTest extends TestCase {
+	private static final String WKT = "LINESTRING (1.0 1.0, 2.0 1.0, " +
+		"3.0 1.0, 4.0 1.0)\n" +
+		"LINESTRING (1.0 1.0, 1.0 2.0)\n";
+	private static final String WKT2 = "LINESTRING (2.0 1.0, 2.0 0.5)\n";
+
+	private File dir;
+	private SimMap map;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		dir = File.createTempFile("mapcache", "");
+		dir.delete();
+		dir.mkdir();
+
+		WKTMapReader r = new WKTMapReader(true);
+		r.addPaths(new StringReader(WKT), 1);
+		r.addPaths(new StringReader(WKT2), 2);
+		map = r.getMap();
+	}
+
+	protected void tearDown() throws Exception {
+		for (File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+		super.tearDown();
+	}
+
+	public void testRoundTrip() throws IOException {
+		File f = new File(dir, "map.bin");
+		BinaryMapCache.write(map, f);
+		SimMap read = BinaryMapCache.read(f);
+		assertNotNull(read);
+
+		List<MapNode> orig = map.getNodes();
+		List<MapNode> nodes = read.getNodes();
+		assertEquals(orig.size(), nodes.size());
+		for (int i = 0; i < orig.size(); i++) {
+			MapNode o = orig.get(i);
+			MapNode n = nodes.get(i);
+			assertEquals(o.getLocation(), n.getLocation());
+			for (int t = MapNode.MIN_TYPE; t <= 3; t++) {
+				assertEquals(o.isType(t), n.isType(t));
+			}
+			assertEquals(o.getNeighbors().size(), n.getNeighbors().size());
+			for (int j = 0; j < o.getNeighbors().size(); j++) {
+				assertEquals(o.getNeighbors().get(j).getLocation(),
+						n.getNeighbors().get(j).getLocation());
+			}
+		}
+		assertSame(nodes.get(0), read.getNodeByCoord(
+				orig.get(0).getLocation()));
+		assertEquals(map.getMinBound(), read.getMinBound());
+		assertEquals(map.getMaxBound(), read.getMaxBound());
+	}
+
+	public void testInvalidFile() throws IOException {
+		File f = new File(dir, "map.bin");
+		assertNull(BinaryMapCache.read(f));
+
+		BinaryMapCache.write(map, f);
+		RandomAccessFile raf = new RandomAccessFile(f, "rw");
+		raf.setLength(raf.length() - 4);
+		raf.close();
+		assertNull(BinaryMapCache.read(f));
+	}
+
+	public void testCacheFileByContent() throws IOException {
+		File a = writeFile("a.wkt", WKT);
+		File b = writeFile("b.wkt", WKT2);
+		File c = writeFile("c.wkt", WKT);
+
+		File ab = BinaryMapCache.getCacheFile(dir, files(a, b));
+		assertEquals(ab, BinaryMapCache.getCacheFile(dir, files(c, b)));
+		assertFalse(ab.equals(BinaryMapCache.getCacheFile(dir, files(b, a))));
+		assertFalse(ab.equals(BinaryMapCache.getCacheFile(dir, files(a))));
+		assertEquals(dir, ab.getParentFile());
+	}
+
+	private File writeFile(String name, String contents) throws IOException {
+		File f = new File(dir, name);
+		FileWriter w = new FileWriter(f);
+		w.write(contents);
+		w.close();
+		return f;
+	}
+
+	private List<File> files(File... files) {
+		List<File> list = new ArrayList<File>();
+		for (File f : files) {
+			list.add(f);
+		}
+		return list;
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.Application;
+import core.Coord;
+import core.DTNHost;
+import core.Message;
+import core.NetworkInterface;
+
+/**
+ * Tests for the broadcast and geocast delivery of NetworkInterface
+ */
+public class BroadcastTest extends TestCase {
+	private static final String APP_ID = "broadcastTest";
+
+	private TestUtils utils;
+	private DTNHost sender;
+	private DTNHost near;
+	private DTNHost far;
+	private List<DTNHost> received;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.utils = new TestUtils(null, null, new TestSettings());
+		this.utils.setTransmitRange(100);
+		this.received = new ArrayList<DTNHost>();
+
+		this.sender = createHost(new Coord(0,0));
+		this.near = createHost(new Coord(10,0));
+		this.far = createHost(new Coord(80,0));
+		createHost(new Coord(500,0)); // not connected
+		sender.connect(near);
+		sender.connect(far);
+	}
+
+	private DTNHost createHost(Coord loc) {
+		DTNHost h = utils.createHost(loc);
+		h.getRouter().addApplication(new RecordingApp());
+		return h;
+	}
+
+	private Message frame() {
+		Message m = new Message(sender, null, "beacon", 10);
+		m.setAppID(APP_ID);
+		return m;
+	}
+
+	public void testBroadcast() {
+		NetworkInterface ni = sender.getInterface(1);
+		assertEquals(2, ni.broadcast(frame()));
+		assertEquals(2, received.size());
+		assertTrue(received.contains(near));
+		assertTrue(received.contains(far));
+
+		/* not put to the receivers' buffers */
+		assertEquals(0, near.getNrofMessages());
+		assertEquals(0, far.getNrofMessages());
+	}
+
+	public void testGeocast() {
+		NetworkInterface ni = sender.getInterface(1);
+		assertEquals(1, ni.geocast(frame(), sender.getLocation(), 50));
+		assertEquals(1, received.size());
+		assertSame(near, received.get(0));
+
+		received.clear();
+		assertEquals(0, ni.geocast(frame(), new Coord(300,0), 50));
+		assertTrue(received.isEmpty());
+	}
+
+	/**
+	 * Application that records the hosts that got a frame
+	 */
+	private class RecordingApp extends Application {
+		public RecordingApp() {
+			setAppID(APP_ID);
+		}
+
+		public Message handle(Message msg, DTNHost host) {
+			received.add(host);
+			return msg;
+		}
+
+		public void update(DTNHost host) { }
+
+		public Application replicate() {
+			return this;
+		}
+	}
+}
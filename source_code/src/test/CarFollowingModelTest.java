@@ -0,0 +1,158 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import movement.CarFollowingModel;
+import movement.MovementModel;
+import movement.Path;
+import movement.map.EdgeOccupancyIndex;
+import core.Coord;
+import core.DTNHost;
+import core.SimClock;
+
+/**
+ * Tests for the IDM based car following model
+ */
+public class CarFollowingModelTest extends TestCase {
+	private static final double DELTA = 1e-9;
+	private CarFollowingModel model;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		/* a=1.5, b=2, maximum braking 8, s0=2, T=1.5, length 5 */
+		this.model = new CarFollowingModel(1.5, 2, 8, 2, 1.5, 5);
+	}
+
+	public void testFreeRoadAcceleration() {
+		double[] pos = {0};
+		double[] v = {0};
+		double[] v0 = {10};
+
+		model.accelerate(1, pos, v, v0, 1);
+		assertEquals(1.5, v[0], DELTA); /* full acceleration from standstill */
+
+		for (int i = 0; i < 200; i++) {
+			double before = v[0];
+			model.accelerate(1, pos, v, v0, 0.5);
+			assertTrue(v[0] >= before);
+			assertTrue(v[0] <= 10);
+		}
+		assertEquals(10, v[0], 0.1);
+	}
+
+	public void testBrakesForCloseLeader() {
+		double[] pos = {0, 10};
+		double[] v = {10, 0};
+		double[] v0 = {10, 10};
+
+		model.accelerate(2, pos, v, v0, 0.5);
+		/* braking is limited to the maximum deceleration */
+		assertEquals(10 - 8 * 0.5, v[0], DELTA);
+		/* the leader has a free road */
+		assertEquals(0.75, v[1], DELTA);
+	}
+
+	public void testSpeedNeverNegative() {
+		double[] pos = {0, 6};
+		double[] v = {1, 0};
+		double[] v0 = {10, 0};
+
+		model.accelerate(2, pos, v, v0, 1);
+		assertEquals(0, v[0], DELTA);
+		assertEquals(0, v[1], DELTA); /* no desired speed; stops */
+	}
+
+	public void testFollowerKeepsDistance() {
+		double[] pos = {0, 30};
+		double[] v = {10, 10};
+		double[] v0 = {15, 5};
+		double dt = 0.1;
+
+		for (int i = 0; i < 2000; i++) {
+			model.accelerate(2, pos, v, v0, dt);
+			pos[0] += v[0] * dt;
+			pos[1] += v[1] * dt;
+			assertTrue("Cars collided at step " + i, pos[1] - pos[0] > 5);
+		}
+		assertEquals(5, v[1], 0.01);
+		assertEquals(5, v[0], 0.01); /* follows the slower leader */
+	}
+
+	public void testLeadersFromEdgeOccupancy() {
+		SimClock.reset();
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		EdgeOccupancyIndex index = new EdgeOccupancyIndex();
+		DTNHost a = onRoad(utils, index, 50);
+		DTNHost ped = onRoad(utils, index, 45);
+		DTNHost b = onRoad(utils, index, 40);
+		DTNHost parked = utils.createHost(new Coord(100,100));
+		index.reorder();
+		a.setActualSpeed(0);
+		b.setActualSpeed(10);
+
+		List<DTNHost> cars = new ArrayList<DTNHost>();
+		cars.add(b);
+		cars.add(a);
+		cars.add(parked);
+		model.update(cars, index, 0.5);
+
+		/* same as testBrakesForCloseLeader; the pedestrian is passed over */
+		assertEquals(10 - 8 * 0.5, b.getActualSpeed(), DELTA);
+		assertEquals(0.75, a.getActualSpeed(), DELTA);
+		assertEquals(0, parked.getActualSpeed(), DELTA);
+		assertSame(ped, index.getLeader(b));
+	}
+
+	/**
+	 * Creates a host on the road from (100,100) to (300,100) at the given
+	 * offset
+	 */
+	private DTNHost onRoad(TestUtils utils, EdgeOccupancyIndex index,
+			double offset) {
+		DTNHost h = utils.createHost(new RoadMovement(), null);
+		index.initialLocation(h, h.getLocation());
+		h.move(0.1);
+		index.newDestination(h, h.getDestination(), h.getSpeed());
+		h.setLocation(new Coord(100 + offset, 100));
+		return h;
+	}
+
+	/**
+	 * Movement from (100,100) east to (300,100) at 10 m/s
+	 */
+	private static class RoadMovement extends MovementModel {
+		@Override
+		public Coord getInitialLocation() {
+			return new Coord(100,100);
+		}
+
+		@Override
+		public boolean isActive() {
+			return true;
+		}
+
+		@Override
+		public Path getPath() {
+			Path p = new Path(10);
+			p.addWaypoint(new Coord(100,100));
+			p.addWaypoint(new Coord(300,100));
+			return p;
+		}
+
+		@Override
+		public double nextPathAvailable() {
+			return 0;
+		}
+
+		@Override
+		public RoadMovement replicate() {
+			return new RoadMovement();
+		}
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import movement.map.ContractionHierarchy;
+import movement.map.DijkstraPathFinder;
+import movement.map.MapGraph;
+import movement.map.MapNode;
+import core.Coord;
+
+/**
+ * Tests for the contraction hierarchy based path finding. The paths are
+ * compared to the ones found with plain A*.
+ */
+public class ContractionHierarchyTest extends TestCase {
+	private static final int GRID = 15;
+	private MapNode[] nodes;
+	private Random rng;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		ContractionHierarchy.reset();
+		MapGraph.reset();
+		this.rng = new Random(7);
+		createGrid();
+	}
+
+	protected void tearDown() throws Exception {
+		ContractionHierarchy.reset();
+		MapGraph.reset();
+		super.tearDown();
+	}
+
+	/**
+	 * Creates a grid of jittered nodes where some roads are one way and
+	 * some are missing
+	 */
+	private void createGrid() {
+		nodes = new MapNode[GRID * GRID];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = new MapNode(new Coord((i % GRID) * 10 +
+					rng.nextDouble() * 4, (i / GRID) * 10 +
+					rng.nextDouble() * 4));
+			nodes[i].addType(1 + rng.nextInt(2));
+		}
+		for (int i = 0; i < nodes.length; i++) {
+			if (i % GRID < GRID - 1) {
+				connect(nodes[i], nodes[i + 1]);
+			}
+			if (i + GRID < nodes.length) {
+				connect(nodes[i], nodes[i + GRID]);
+			}
+		}
+	}
+
+	private void connect(MapNode a, MapNode b) {
+		double r = rng.nextDouble();
+		if (r < 0.1) {
+			return; // no road
+		}
+		if (r < 0.95) { // two way or one way from a to b
+			a.addNeighbor(b);
+		}
+		if (r < 0.9 || r >= 0.95) { // two way or one way from b to a
+			b.addNeighbor(a);
+		}
+	}
+
+	private double length(List<MapNode> path) {
+		double len = 0;
+		for (int i = 1; i < path.size(); i++) {
+			assertTrue("No road " + path.get(i - 1) + "->" + path.get(i),
+					path.get(i - 1).getNeighbors().contains(path.get(i)));
+			len += path.get(i - 1).getLocation().distance(
+					path.get(i).getLocation());
+		}
+		return len;
+	}
+
+	private void compare(int[] okTypes) {
+		DijkstraPathFinder aStar = new DijkstraPathFinder(okTypes);
+		DijkstraPathFinder ch = new DijkstraPathFinder(okTypes, null, true);
+		int found = 0;
+		for (int i = 0; i < 300; i++) {
+			MapNode from = nodes[rng.nextInt(nodes.length)];
+			MapNode to = nodes[rng.nextInt(nodes.length)];
+			if (okTypes != null && !from.isType(okTypes)) {
+				continue;
+			}
+			List<MapNode> expected = aStar.getShortestPath(from, to);
+			List<MapNode> path = ch.getShortestPath(from, to);
+			assertEquals(expected.isEmpty(), path.isEmpty());
+			if (!path.isEmpty()) {
+				found++;
+				assertSame(from, path.get(0));
+				assertSame(to, path.get(path.size() - 1));
+				assertEquals(length(expected), length(path), 1e-6);
+			}
+		}
+		assertTrue(found > 0);
+	}
+
+	public void testSameLengthsAsAStar() {
+		compare(null);
+	}
+
+	public void testOkNodeTypes() {
+		compare(new int[] {1});
+	}
+
+	public void testFileCache() throws Exception {
+		File dir = File.createTempFile("chtest", "");
+		dir.delete(); /* the cache directory is created when needed */
+		try {
+			TestSettings ts = new TestSettings();
+			ts.putSetting(ContractionHierarchy.CONTRACTION_HIERARCHY_NS + "." +
+					ContractionHierarchy.CACHE_DIR_S, dir.getPath());
+			assertFalse(ContractionHierarchy.isEnabled());
+
+			MapGraph graph = MapGraph.of(nodes[0]);
+			ContractionHierarchy built = ContractionHierarchy.of(graph, -1);
+			assertEquals(1, dir.listFiles().length); /* no temporary files */
+			assertSame(built, ContractionHierarchy.of(graph, -1));
+
+			/* a new run reads the hierarchy from the file */
+			ContractionHierarchy.reset();
+			ContractionHierarchy.isEnabled();
+			ContractionHierarchy read = ContractionHierarchy.of(graph, -1);
+			assertNotSame(built, read);
+			assertEquals(built.getNrofEdges(), read.getNrofEdges());
+			int last = graph.size() - 1;
+			int[] a = built.findPath(0, last);
+			int[] b = read.findPath(0, last);
+			assertNotNull(a);
+			assertEquals(a.length, b.length);
+			for (int i = 0; i < a.length; i++) {
+				assertEquals(a[i], b[i]);
+			}
+		} finally {
+			if (dir.isDirectory()) {
+				for (File f : dir.listFiles()) {
+					f.delete();
+				}
+			}
+			dir.delete();
+		}
+	}
+}
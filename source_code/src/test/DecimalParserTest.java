@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.DecimalParser;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the DecimalParser class
+ */
+public class DecimalParserTest extends TestCase {
+	private DecimalParser parser;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.parser = new DecimalParser();
+	}
+
+	/**
+	 * Source that reads a string; numbers end at spaces and commas
+	 */
+	private static DecimalParser.Source source(final String text) {
+		return new DecimalParser.Source() {
+			public long length() {
+				return text.length();
+			}
+
+			public char charAt(long pos) {
+				return text.charAt((int)pos);
+			}
+
+			public boolean isDelimiter(char c) {
+				return c == ' ' || c == ',';
+			}
+		};
+	}
+
+	public void testMatchesParseDouble() {
+		Random rng = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			String number;
+			switch (i % 6) {
+			case 0:
+				number = Double.toString(rng.nextDouble() * 10000);
+				break;
+			case 1:
+				number = Double.toString(-rng.nextDouble() / 1000);
+				break;
+			case 2:
+				number = String.format("%.3f", rng.nextDouble() * 5000);
+				break;
+			case 3: /* up to the fast digits limit and just over it */
+				number = "0." + Long.toString(
+						(long)(rng.nextDouble() * 1e16));
+				break;
+			case 4:
+				number = Integer.toString(rng.nextInt());
+				break;
+			default: /* exponents are parsed by parseDouble */
+				number = Double.toString(rng.nextGaussian() * 1e30);
+			}
+
+			String text = "  " + number + " 1";
+			double value = parser.parse(source(text), 2);
+			assertEquals(number, Double.doubleToLongBits(
+					Double.parseDouble(number)),
+					Double.doubleToLongBits(value));
+			assertEquals(number, 2 + number.length(), parser.getEnd());
+		}
+	}
+
+	public void testSpecialNumbers() {
+		assertEquals(-0.0, parser.parse(source("-0.0"), 0));
+		assertEquals(Double.doubleToLongBits(-0.0),
+				Double.doubleToLongBits(parser.parse(source("-0.0"), 0)));
+		assertEquals(12.0, parser.parse(source("+12.,5"), 0));
+		assertEquals(4, parser.getEnd());
+		assertEquals(0.5, parser.parse(source(".5"), 0));
+		assertTrue(Double.isNaN(parser.parse(source("NaN"), 0)));
+		/* too many fraction digits for the powers of ten */
+		String tiny = "0." + String.format("%029d", 0) + "1";
+		assertEquals(1e-30, parser.parse(source(tiny), 0));
+	}
+
+	public void testInvalidNumbers() {
+		String[] invalid = {"", "-", "x", "1.2.3", "12a", "--1"};
+		for (String text : invalid) {
+			try {
+				parser.parse(source(text), 0);
+				fail("'" + text + "' should not be a number");
+			} catch (NumberFormatException e) {
+				// expected
+			}
+		}
+	}
+}
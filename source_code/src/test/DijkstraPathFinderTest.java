@@ -73,6 +73,31 @@ public class DijkstraPathFinderTest extends TestCase {
 		checkPath(getPath(n8,n4), n8, n7, n6, n5, n4);
 	}
 
+	public void testOkNodeTypes() {
+		n1.addType(1);
+		n2.addType(1);
+		n3.addType(1);
+		n4.addType(1);
+		n5.addType(2);
+		n6.addType(1);
+		DijkstraPathFinder typed = new DijkstraPathFinder(new int[] {1});
+		/* n5 is not OK so the path goes around it */
+		checkPath(typed.getShortestPath(n1, n6), n1, n2, n3, n6);
+		checkPath(typed.getShortestPath(n4, n3), n4, n1, n2, n3);
+		assertEquals(0, typed.getShortestPath(n1, n5).size());
+		assertEquals(0, typed.getShortestPath(n1, n7).size()); // no type
+		/* the filter of the other finder is independent */
+		checkPath(getPath(n1,n6), n1, n2, n5, n6);
+	}
+
+	public void testUnreachable() {
+		MapNode lone = newNode(100,100);
+		assertEquals(0, getPath(n1, lone).size());
+		assertEquals(0, getPath(lone, n1).size());
+		/* searches after a failed one still work */
+		checkPath(getPath(n4,n8), n4, n5, n6, n7, n8);
+	}
+
 	private void checkPath(List<MapNode> path, MapNode ... nodes) {
 		assertEquals(nodes.length,path.size());
 
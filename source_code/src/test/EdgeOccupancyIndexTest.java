@@ -0,0 +1,164 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+import junit.framework.TestCase;
+import movement.MapBasedMovement;
+import movement.MovementModel;
+import movement.map.EdgeOccupancyIndex;
+import movement.map.MapNode;
+import core.Coord;
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimClock;
+import core.SimScenario;
+import core.World;
+
+/**
+ * Tests for the EdgeOccupancyIndex class
+ */
+public class EdgeOccupancyIndexTest extends TestCase {
+	private TestUtils utils;
+	private EdgeOccupancyIndex index;
+	private MapNode n1, n2, n3;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.utils = new TestUtils(null, null, new TestSettings());
+		this.index = new EdgeOccupancyIndex();
+		this.n1 = new MapNode(new Coord(0,0));
+		this.n2 = new MapNode(new Coord(100,0));
+		this.n3 = new MapNode(new Coord(100,100));
+	}
+
+	/**
+	 * Creates a host at n1 that is heading to n2
+	 */
+	private DTNHost enterFirstEdge() {
+		DTNHost h = utils.createHost(n1.getLocation().clone());
+		index.initialLocation(h, h.getLocation());
+		index.newDestination(h, n2.getLocation(), 1);
+		return h;
+	}
+
+	public void testLeaderAndFollower() {
+		DTNHost first = enterFirstEdge();
+		first.setLocation(new Coord(50,0));
+		DTNHost second = enterFirstEdge();
+
+		assertEquals(2, index.getNrofHosts(n1, n2));
+		assertEquals(0, index.getNrofHosts(n2, n1));
+		assertEquals(0.02, index.getDensity(n1, n2), 1e-9);
+		assertSame(first, index.getLeader(second));
+		assertSame(second, index.getFollower(first));
+		assertNull(index.getLeader(first));
+		assertNull(index.getFollower(second));
+		assertEquals(50.0, index.getOffset(first), 1e-9);
+		assertEquals(0.0, index.getOffset(second), 1e-9);
+		assertEquals(first, index.getHosts(n1, n2).get(0));
+	}
+
+	public void testCrossingWaypoint() {
+		DTNHost first = enterFirstEdge();
+		DTNHost second = enterFirstEdge();
+		assertEquals(1, index.getNrofOccupiedEdges());
+
+		first.setLocation(n2.getLocation().clone());
+		index.newDestination(first, n3.getLocation(), 1);
+		assertEquals(1, index.getNrofHosts(n1, n2));
+		assertEquals(1, index.getNrofHosts(n2, n3));
+		assertNull(index.getLeader(second));
+		assertEquals(2, index.getNrofOccupiedEdges());
+
+		second.setLocation(n2.getLocation().clone());
+		index.newDestination(second, n3.getLocation(), 1);
+		assertEquals(0, index.getNrofHosts(n1, n2));
+		assertEquals(1, index.getNrofOccupiedEdges());
+		assertSame(first, index.getLeader(second));
+	}
+
+	public void testNotOnEdge() {
+		DTNHost h = utils.createHost(new Coord(0,0));
+		assertNull(index.getLeader(h));
+		assertTrue(index.getOffset(h) < 0);
+
+		index.initialLocation(h, h.getLocation());
+		index.newDestination(h, new Coord(0,0), 1); // already there
+		assertEquals(0, index.getNrofOccupiedEdges());
+		assertTrue(index.getHosts(n1, n2).isEmpty());
+	}
+
+	public void testReorderAfterOvertake() {
+		DTNHost a = enterFirstEdge();
+		DTNHost b = enterFirstEdge();
+		DTNHost c = enterFirstEdge();
+		a.setLocation(new Coord(10,0));
+		b.setLocation(new Coord(30,0));
+		c.setLocation(new Coord(20,0));
+
+		index.reorder();
+		assertSame(b, index.getHosts(n1, n2).get(0));
+		assertSame(c, index.getHosts(n1, n2).get(1));
+		assertSame(a, index.getHosts(n1, n2).get(2));
+		assertSame(b, index.getLeader(c));
+		assertSame(c, index.getFollower(b));
+		assertNull(index.getFollower(a));
+		assertEquals(3, index.getNrofHosts(n1, n2));
+	}
+
+	/**
+	 * Tests that the hosts of a scenario are on their first edges, from
+	 * their initial locations, as soon as they start moving
+	 */
+	public void testFirstEdgesInScenario() throws Exception {
+		File mapFile = File.createTempFile("edges", ".wkt");
+		mapFile.deleteOnExit();
+		PrintWriter out = new PrintWriter(mapFile);
+		out.println("LINESTRING (0 0, 100 0, 200 0, 300 0)");
+		out.close();
+
+		SimClock.reset();
+		SimScenario.reset();
+		DTNHost.reset();
+		NetworkInterface.reset();
+		TestSettings ts = new TestSettings();
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				World.EDGE_OCCUPANCY_INDEX_S, "true");
+		ts.putSetting(MapBasedMovement.MAP_BASE_MOVEMENT_NS + "." +
+				MapBasedMovement.NROF_FILES_S, "1");
+		ts.putSetting(MapBasedMovement.MAP_BASE_MOVEMENT_NS + "." +
+				MapBasedMovement.FILE_S + "1", mapFile.getPath());
+		ts.putSetting("testInterface.type", "SimpleBroadcastInterface");
+		ts.putSetting("testInterface." + NetworkInterface.TRANSMIT_SPEED_S,
+				"1");
+		ts.putSetting("testInterface." + NetworkInterface.TRANSMIT_RANGE_S,
+				"1");
+		String g = SimScenario.GROUP_NS + ".";
+		ts.putSetting(g + SimScenario.GROUP_ID_S, "h");
+		ts.putSetting(g + SimScenario.NROF_HOSTS_S, "5");
+		ts.putSetting(g + SimScenario.NROF_INTERF_S, "1");
+		ts.putSetting(g + SimScenario.INTERFACENAME_S + "1", "testInterface");
+		ts.putSetting(g + SimScenario.MOVEMENT_MODEL_S, "MapBasedMovement");
+		ts.putSetting(g + SimScenario.ROUTER_S, "PassiveRouter");
+		ts.putSetting(g + MovementModel.SPEED, "1,1");
+		ts.putSetting(g + MovementModel.WAIT_TIME, "0,0");
+
+		SimScenario scen = SimScenario.getInstance();
+		World world = scen.getWorld();
+		EdgeOccupancyIndex occupancy = world.getEdgeOccupancyIndex();
+		assertNotNull(occupancy);
+		world.update();
+
+		/* the first edges start from the initial locations */
+		for (DTNHost h : scen.getHosts()) {
+			assertEquals(h + " not on its first edge", 0.1,
+					occupancy.getOffset(h), 1e-6);
+		}
+		SimScenario.reset();
+	}
+}
@@ -7,6 +7,7 @@ package test;
 import input.ExternalMovementReader;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.List;
 
@@ -14,6 +15,7 @@ import util.Tuple;
 
 import junit.framework.TestCase;
 import core.Coord;
+import core.SettingsError;
 
 public class ExternalMovementReaderTest extends TestCase {
 	private ExternalMovementReader r;
@@ -30,6 +32,7 @@ public class ExternalMovementReaderTest extends TestCase {
 		"30 2 30 30\n" +
 		"30 3 40 30";
 	private static final String [] ids = {"1","2","3"};
+	private File tmpFile;
 	private static final double [] times = {10,20,30};
 	private static final Coord [][] coords =
 		{ {new Coord(10,10), new Coord(10,20), new Coord(10,30)},
@@ -40,13 +43,7 @@ public class ExternalMovementReaderTest extends TestCase {
 	protected void setUp() throws Exception {
 		super.setUp();
 
-		File tmpFile = File.createTempFile("EMRTest","tmp");
-		tmpFile.deleteOnExit();
-
-		PrintWriter pw = new PrintWriter(tmpFile);
-		pw.println(INPUT);
-		pw.close();
-
+		tmpFile = writeTmpFile(INPUT);
 		r = new ExternalMovementReader(tmpFile.getAbsolutePath());
 	}
 
@@ -63,6 +60,62 @@ public class ExternalMovementReaderTest extends TestCase {
 		assertEquals(0, list.size());
 	}
 
+	public void testCommentsAndOffsets() throws IOException {
+		File f = writeTmpFile("5 100 -10 10 100 200 0 0\r\n" +
+				"# comment\r\n" +
+				"\r\n" +
+				"5.5 a -2.25 150\r\n" +
+				"# 6 a 0 0\r\n" +
+				"6 a 1e1 1.50\r\n");
+		r = new ExternalMovementReader(f.getAbsolutePath());
+		assertEquals(100.0, r.getMaxTime());
+		assertEquals(-10.0, r.getMinX());
+
+		List<Tuple<String, Coord>> list = r.readNextMovements();
+		assertEquals(1, list.size());
+		assertEquals(0.5, r.getLastTimeStamp());
+		assertEquals(new Coord(7.75, 50), list.get(0).getValue());
+
+		r.setNormalize(false);
+		list = r.readNextMovements();
+		assertEquals(1, list.size());
+		assertEquals(6.0, r.getLastTimeStamp());
+		assertEquals(new Coord(10, 1.5), list.get(0).getValue());
+		assertEquals(0, r.readNextMovements().size());
+	}
+
+	public void testInvalidLine() throws IOException {
+		File f = writeTmpFile("0 0 0 0 0 0\n1 a 2 x\n");
+		try {
+			new ExternalMovementReader(f.getAbsolutePath());
+			fail("Invalid line should throw SettingsError");
+		} catch (SettingsError e) {
+			assertTrue(e.getMessage().contains("1 a 2 x"));
+		}
+	}
+
+	public void testBinaryFormat() throws IOException {
+		File bin = File.createTempFile("EMRTest",
+				ExternalMovementReader.BINARY_EXT);
+		bin.deleteOnExit();
+		ExternalMovementReader.storeToBinaryFile(tmpFile.getAbsolutePath(),
+				bin.getAbsolutePath());
+
+		r = new ExternalMovementReader(bin.getAbsolutePath());
+		testReader();
+		assertEquals(0, r.readNextMovements().size());
+	}
+
+	private File writeTmpFile(String contents) throws IOException {
+		File f = File.createTempFile("EMRTest","tmp");
+		f.deleteOnExit();
+
+		PrintWriter pw = new PrintWriter(f);
+		pw.println(contents);
+		pw.close();
+		return f;
+	}
+
 	private void checkTuples(List<Tuple<String, Coord>> list, String[] ids,
 			Coord[] coords) {
 
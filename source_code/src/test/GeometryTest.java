@@ -0,0 +1,67 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import junit.framework.TestCase;
+import core.Coord;
+import core.Geometry;
+import core.LineString;
+
+/**
+ * Tests for the geometry functions
+ */
+public class GeometryTest extends TestCase {
+	private static final double TOL = 0.05;
+
+	public void testOnLine() {
+		assertTrue(Geometry.onLine(0,0, 10,10, 5,5, TOL));
+		assertTrue(Geometry.onLine(0,0, 10,10, 20,20, TOL));
+		assertTrue(Geometry.onLine(0,10, 100,10, 50,10.04, TOL));
+		assertFalse(Geometry.onLine(0,10, 100,10, 50,10.06, TOL));
+		assertFalse(Geometry.onLine(0,0, 10,10, 5,6, TOL));
+		assertFalse(Geometry.onLine(5,5, 5,5, 5,5, TOL));
+	}
+
+	public void testOnLineVertical() {
+		assertTrue(Geometry.onLine(10,0, 10,100, 10,50, TOL));
+		assertTrue(Geometry.onLine(10,100, 10,0, 10.04,50, TOL));
+		assertFalse(Geometry.onLine(10,0, 10,100, 10.1,50, TOL));
+		assertTrue(LineString.contains(new Coord(10,0), new Coord(10,100),
+				new Coord(10,20)));
+	}
+
+	public void testOnSegment() {
+		assertTrue(Geometry.onSegment(0,0, 10,0, 5,0.5, 1));
+		assertTrue(Geometry.onSegment(0,0, 10,0, 10.5,0, 1));
+		assertFalse(Geometry.onSegment(0,0, 10,0, 12,0, 1));
+		assertFalse(Geometry.onSegment(0,0, 0,10, 2,5, 1));
+	}
+
+	public void testProjection() {
+		assertEquals(0.5, Geometry.projection(0,0, 10,0, 5,3), 0.0);
+		assertEquals(-1.0, Geometry.projection(0,0, 0,10, 4,-10), 0.0);
+		assertEquals(2.0, Geometry.projection(0,0, 10,10, 20,20), 1e-12);
+		assertEquals(0.0, Geometry.projection(3,3, 3,3, 5,5), 0.0);
+		assertEquals(0.0, Geometry.segmentProjection(0,0, 0,10, 4,-10), 0.0);
+		assertEquals(1.0, Geometry.segmentProjection(0,0, 10,10, 20,20), 0.0);
+		assertEquals(7.0, Geometry.lerp(4, 10, 0.5), 0.0);
+		assertEquals(9.0, Geometry.segmentDistanceSq(0,0, 0,10, 3,5), 1e-12);
+	}
+
+	public void testSegmentsIntersect() {
+		assertTrue(Geometry.segmentsIntersect(0,0, 10,10, 0,10, 10,0));
+		assertTrue(Geometry.segmentsIntersect(0,0, 0,10, -5,5, 5,5));
+		assertTrue(Geometry.segmentsIntersect(0,0, 10,0, 10,0, 20,0));
+		assertFalse(Geometry.segmentsIntersect(0,0, 10,0, 0,1, 10,1));
+		assertFalse(Geometry.segmentsIntersect(0,0, 10,10, 11,11, 20,20));
+	}
+
+	public void testClosestApproachTime() {
+		assertEquals(1.0, Geometry.closestApproachTime(10,0, -10,0), 0.0);
+		assertEquals(0.5, Geometry.closestApproachTime(-5,3, 10,0), 0.0);
+		assertTrue(Geometry.closestApproachTime(10,0, 10,0) < 0);
+		assertEquals(0.0, Geometry.closestApproachTime(10,0, 0,0), 0.0);
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import core.AllHostsIndex;
+import core.Coord;
+import core.DTNHost;
+import core.GridHostIndex;
+import core.HostIndex;
+
+/**
+ * Tests for the GridHostIndex class
+ */
+public class GridHostIndexTest extends TestCase {
+	private TestUtils utils;
+	private TestSettings ts;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.ts = new TestSettings();
+		this.utils = new TestUtils(null, null, ts);
+	}
+
+	public void testNearHostsContainAllInRange() {
+		List<DTNHost> hosts = new ArrayList<DTNHost>();
+		Random rnd = new Random(1);
+		for (int i=0; i<200; i++) {
+			hosts.add(utils.createHost(new Coord(rnd.nextDouble() * 1000,
+					rnd.nextDouble() * 1000)));
+		}
+
+		HostIndex grid = new GridHostIndex(new TestSettings(null));
+		grid.rebuild(hosts);
+
+		for (DTNHost h : hosts) {
+			List<DTNHost> near = grid.getNearHosts(h.getLocation(), 50);
+			for (DTNHost other : hosts) {
+				if (h.getLocation().distance(other.getLocation()) <= 50) {
+					assertTrue(other + " missing near " + h,
+							near.contains(other));
+				}
+			}
+			/* results must be in address order */
+			for (int i=1; i<near.size(); i++) {
+				assertTrue(near.get(i-1).getAddress() <
+						near.get(i).getAddress());
+			}
+		}
+	}
+
+	public void testFarHostsAreFiltered() {
+		List<DTNHost> hosts = new ArrayList<DTNHost>();
+		DTNHost h1 = utils.createHost(new Coord(10,10));
+		DTNHost h2 = utils.createHost(new Coord(20,10));
+		DTNHost h3 = utils.createHost(new Coord(900,900));
+		hosts.add(h1);
+		hosts.add(h2);
+		hosts.add(h3);
+
+		HostIndex grid = new GridHostIndex(new TestSettings(null));
+		grid.rebuild(hosts);
+		List<DTNHost> near = grid.getNearHosts(h1.getLocation(), 50);
+		assertTrue(near.contains(h1));
+		assertTrue(near.contains(h2));
+		assertFalse(near.contains(h3));
+
+		/* after moving, the index reflects the new locations */
+		h3.setLocation(new Coord(15, 15));
+		grid.rebuild(hosts);
+		assertTrue(grid.getNearHosts(h1.getLocation(), 50).contains(h3));
+
+		HostIndex all = new AllHostsIndex(null);
+		all.rebuild(hosts);
+		assertEquals(3, all.getNearHosts(new Coord(999,0), 1).size());
+	}
+
+	public void testOutOfBoundsLocations() {
+		List<DTNHost> hosts = new ArrayList<DTNHost>();
+		DTNHost h1 = utils.createHost(new Coord(-10,-10));
+		DTNHost h2 = utils.createHost(new Coord(5000,5000));
+		hosts.add(h1);
+		hosts.add(h2);
+
+		HostIndex grid = new GridHostIndex(new TestSettings(null));
+		grid.rebuild(hosts);
+		assertTrue(grid.getNearHosts(new Coord(0,0), 10).contains(h1));
+		assertTrue(grid.getNearHosts(new Coord(999,999), 10).contains(h2));
+	}
+}
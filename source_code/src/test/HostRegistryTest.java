@@ -0,0 +1,52 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import core.Coord;
+import core.DTNHost;
+import core.GroupTypeEnum;
+import core.HostRegistry;
+import core.HostRole;
+
+/**
+ * Tests for the HostRegistry class
+ */
+public class HostRegistryTest extends TestCase {
+	private TestUtils utils;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.utils = new TestUtils(null, null, new TestSettings());
+	}
+
+	public void testPartitions() {
+		List<DTNHost> hosts = new ArrayList<DTNHost>();
+		hosts.add(utils.createHost(new Coord(0,0), "car"));
+		hosts.add(utils.createHost(new Coord(0,0), "Intersection"));
+		hosts.add(utils.createHost(new Coord(0,0), "p"));
+		DTNHost configured = utils.createHost(new Coord(0,0), "p");
+		configured.setRole(HostRole.vehicle);
+		hosts.add(configured);
+
+		HostRegistry reg = new HostRegistry(hosts);
+		assertEquals(HostRole.vehicle, reg.getRole(0));
+		assertEquals(HostRole.intersection, reg.getRole(1));
+		assertEquals(HostRole.pedestrian, reg.getRole(2));
+		/* the role setting overrides the name */
+		assertEquals(HostRole.vehicle, reg.getRole(3));
+
+		int[] vehicles = reg.getIndexes(HostRole.vehicle);
+		assertEquals(2, vehicles.length);
+		assertEquals(0, vehicles[0]);
+		assertEquals(3, vehicles[1]);
+		assertEquals(hosts.get(2), reg.getHosts(HostRole.pedestrian).get(0));
+		assertEquals(4, reg.getIndexes(GroupTypeEnum.unknown).length);
+		assertEquals(0, reg.getIndexes(GroupTypeEnum.bus).length);
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import movement.StationaryMovement;
+import routing.MessageRouter;
+import routing.util.TrafficSignalController;
+import core.DTNHost;
+import core.NetworkInterface;
+import core.SimClock;
+import core.SimScenario;
+import core.World;
+
+/**
+ * Tests for the IntersectionRouter's light change messages
+ */
+public class IntersectionRouterTest extends TestCase {
+	private static final String IFACE = "testInterface";
+	private MessageChecker mc;
+	private DTNHost intersection;
+	private DTNHost vehicle;
+	private World world;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		SimScenario.reset();
+		DTNHost.reset();
+		NetworkInterface.reset();
+
+		TestSettings ts = new TestSettings();
+		ts.putSetting(SimScenario.SCENARIO_NS + "." +
+				SimScenario.NROF_GROUPS_S, "2");
+		ts.putSetting(TrafficSignalController.TRAFFIC_SIGNAL_NS + "." +
+				TrafficSignalController.GREEN_TIME_S, "10");
+		ts.putSetting(TrafficSignalController.TRAFFIC_SIGNAL_NS + "." +
+				TrafficSignalController.YELLOW_TIME_S, "2");
+		ts.putSetting(IFACE + ".type", "SimpleBroadcastInterface");
+		ts.putSetting(IFACE + "." + NetworkInterface.TRANSMIT_SPEED_S, "100");
+		ts.putSetting(IFACE + "." + NetworkInterface.TRANSMIT_RANGE_S, "10");
+
+		String g = SimScenario.GROUP_NS + ".";
+		ts.putSetting(g + SimScenario.NROF_HOSTS_S, "1");
+		ts.putSetting(g + SimScenario.NROF_INTERF_S, "1");
+		ts.putSetting(g + SimScenario.INTERFACENAME_S + "1", IFACE);
+		ts.putSetting(g + SimScenario.MOVEMENT_MODEL_S, "StationaryMovement");
+		ts.putSetting(g + MessageRouter.B_SIZE_S, "100");
+		ts.putSetting(g + MessageRouter.MSG_TTL_S, "300");
+
+		String g1 = SimScenario.GROUP_NS + "1.";
+		ts.putSetting(g1 + SimScenario.GROUP_ID_S, "i");
+		ts.putSetting(g1 + SimScenario.ROUTER_S, "IntersectionRouter");
+		ts.putSetting(g1 + StationaryMovement.LOCATION_S, "100,100");
+		String g2 = SimScenario.GROUP_NS + "2.";
+		ts.putSetting(g2 + SimScenario.GROUP_ID_S, "c");
+		ts.putSetting(g2 + SimScenario.ROUTER_S, "EpidemicRouter");
+		ts.putSetting(g2 + StationaryMovement.LOCATION_S, "105,100");
+
+		SimScenario scen = SimScenario.getInstance();
+		this.mc = new MessageChecker();
+		scen.addMessageListener(mc);
+		this.world = scen.getWorld();
+		this.intersection = scen.getHosts().get(0);
+		this.vehicle = scen.getHosts().get(1);
+	}
+
+	protected void tearDown() throws Exception {
+		SimScenario.reset();
+		super.tearDown();
+	}
+
+	/**
+	 * Runs the world until the given time and returns the ids of the
+	 * messages the intersection delivered to the vehicle
+	 */
+	private Set<String> runUntil(double time) {
+		Set<String> delivered = new HashSet<String>();
+		while (SimClock.getTime() < time) {
+			world.update();
+			while (mc.next()) {
+				if (mc.getLastType().equals(mc.TYPE_RELAY) &&
+						mc.getLastFrom() == intersection &&
+						mc.getLastTo() == vehicle) {
+					assertTrue(mc.getLastFirstDelivery());
+					delivered.add(mc.getLastMsg().getId());
+				}
+			}
+		}
+		return delivered;
+	}
+
+	public void testConsecutiveChangesReachNeighbor() {
+		String to = "-" + vehicle.getAddress();
+
+		/* lights start at time 0, before the hosts are connected */
+		runUntil(5);
+
+		/* north-south turns yellow at 10 */
+		Set<String> delivered = runUntil(11);
+		assertEquals(2, delivered.size());
+		assertTrue(delivered.contains("TL10-NS" + to));
+		assertTrue(delivered.contains("TL10-EW" + to));
+
+		/* east-west turns green at 12 */
+		delivered = runUntil(13);
+		assertEquals(2, delivered.size());
+		assertTrue(delivered.contains("TL12-NS" + to));
+		assertTrue(delivered.contains("TL12-EW" + to));
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import applications.LocationUpdateCodec;
+import core.Coord;
+import core.DTNHost;
+import core.MovableObject;
+
+/**
+ * Tests for the binary location update encoding
+ */
+public class LocationUpdateCodecTest extends TestCase {
+	private static final double DELTA = 1e-4;
+	private static final Coord[] ROAD = {new Coord(0,10), new Coord(100,10),
+		new Coord(100,200)};
+
+	private DTNHost sender;
+	private LocationUpdateCodec senderCodec;
+	private LocationUpdateCodec receiverCodec;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TestUtils utils = new TestUtils(null, null, new TestSettings());
+		this.sender = utils.createHost(new Coord(0,10));
+		this.senderCodec = new LocationUpdateCodec(3);
+		this.receiverCodec = new LocationUpdateCodec(3);
+	}
+
+	private MovableObject move(double x0, double x1) {
+		return new MovableObject(sender, new Coord(x0,10), new Coord(x1,10),
+				13.5, 0.1, Arrays.asList(ROAD));
+	}
+
+	private void assertMove(MovableObject expected, MovableObject mo) {
+		assertEquals(expected.getStartingLoc().getX(),
+				mo.getStartingLoc().getX(), DELTA);
+		assertEquals(expected.getEndingLoc().getX(),
+				mo.getEndingLoc().getX(), DELTA);
+		assertEquals(expected.getEndingLoc().getY(),
+				mo.getEndingLoc().getY(), DELTA);
+		assertEquals(expected.getSpeed(), mo.getSpeed(), DELTA);
+		assertEquals(expected.getIntervalTime(), mo.getIntervalTime(), DELTA);
+		assertEquals(expected.getMovePathSize(), mo.getMovePathSize());
+		for (int i = 0; i < mo.getMovePathSize(); i++) {
+			assertEquals(expected.getMoveRoadBegin(i), mo.getMoveRoadBegin(i));
+			assertEquals(expected.getMoveRoadEnd(i), mo.getMoveRoadEnd(i));
+		}
+		assertSame(sender, mo.getHost());
+	}
+
+	public void testRoundTrip() {
+		MovableObject first = move(10, 11.35);
+		byte[] full = senderCodec.encode(first, 1);
+		assertEquals(0, full[0]);
+		assertMove(first, receiverCodec.decode(full, sender));
+
+		MovableObject second = move(11.35, 12.7);
+		byte[] delta = senderCodec.encode(second, 1);
+		assertEquals(LocationUpdateCodec.FLAG_DELTA |
+				LocationUpdateCodec.FLAG_SAME_ROADS, delta[0]);
+		assertTrue(delta.length < full.length);
+		assertMove(second, receiverCodec.decode(delta, sender));
+	}
+
+	public void testFullUpdateInterval() {
+		assertEquals(0, senderCodec.encode(move(10, 11), 1)[0]);
+		assertTrue(senderCodec.encode(move(11, 12), 1)[0] != 0);
+		assertTrue(senderCodec.encode(move(12, 13), 1)[0] != 0);
+		assertEquals(0, senderCodec.encode(move(13, 14), 1)[0]);
+		/* other receivers have their own references */
+		assertEquals(0, senderCodec.encode(move(13, 14), 2)[0]);
+	}
+
+	public void testMissedBaseUpdate() {
+		senderCodec.encode(move(10, 11), 1); // lost
+		byte[] delta = senderCodec.encode(move(11, 12), 1);
+		assertNull(receiverCodec.decode(delta, sender));
+
+		senderCodec.encode(move(12, 13), 1); // lost
+		MovableObject m = move(13, 14);
+		assertMove(m, receiverCodec.decode(senderCodec.encode(m, 1), sender));
+	}
+
+	public void testDeltaDoesNotDrift() {
+		MovableObject m = null;
+		LocationUpdateCodec codec = new LocationUpdateCodec(1000);
+		double x = 0.123456789;
+		for (int i = 0; i < 500; i++, x += 1.3333333) {
+			m = move(x, x + 1.3333333);
+			receiverCodec.decode(codec.encode(m, 1), sender);
+		}
+		m = move(x, x + 1.3333333);
+		assertMove(m, receiverCodec.decode(codec.encode(m, 1), sender));
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import movement.map.MapGraph;
+import movement.map.MapNode;
+import movement.map.MapNodeIndex;
+import movement.map.SimMap;
+import core.Coord;
+
+/**
+ * Tests for the nearest node and edge index of maps
+ */
+public class MapNodeIndexTest extends TestCase {
+	private List<MapNode> nodes;
+	private MapNodeIndex index;
+	private Random rng;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		rng = new Random(7);
+		nodes = new ArrayList<MapNode>();
+		/* a 20x20 grid of streets with some random nodes in between */
+		Map<String, MapNode> grid = new HashMap<String, MapNode>();
+		for (int x = 0; x < 20; x++) {
+			for (int y = 0; y < 20; y++) {
+				MapNode n = new MapNode(new Coord(x * 50, y * 30));
+				grid.put(x + "," + y, n);
+				nodes.add(n);
+				if (x > 0) {
+					link(n, grid.get((x - 1) + "," + y));
+				}
+				if (y > 0) {
+					link(n, grid.get(x + "," + (y - 1)));
+				}
+			}
+		}
+		for (int i = 0; i < 100; i++) {
+			MapNode n = new MapNode(new Coord(rng.nextDouble() * 950,
+					rng.nextDouble() * 570));
+			link(n, nodes.get(rng.nextInt(nodes.size())));
+			nodes.add(n);
+		}
+		index = new MapNodeIndex(nodes);
+	}
+
+	private void link(MapNode a, MapNode b) {
+		a.addNeighbor(b);
+		b.addNeighbor(a);
+	}
+
+	private Coord randomCoord() {
+		return new Coord(rng.nextDouble() * 1400 - 200,
+				rng.nextDouble() * 1000 - 200);
+	}
+
+	public void testNearestNode() {
+		for (int i = 0; i < 500; i++) {
+			Coord c = randomCoord();
+			assertSame(bruteForceNearest(c), index.getNearestNode(c));
+		}
+		// exact location and a tie between two nodes (first is returned)
+		assertSame(nodes.get(21), index.getNearestNode(new Coord(50, 30)));
+		assertSame(nodes.get(0), index.getNearestNode(new Coord(0, 15)));
+	}
+
+	public void testNearestNodes() {
+		for (int i = 0; i < 100; i++) {
+			Coord c = randomCoord();
+			List<MapNode> nearest = index.getNearestNodes(c, 5);
+			assertEquals(5, nearest.size());
+			List<MapNode> expected = new ArrayList<MapNode>(nodes);
+			for (int j = 0; j < 5; j++) {
+				MapNode n = bruteForceNearest(c, expected);
+				assertSame(n, nearest.get(j));
+				expected.remove(n);
+			}
+		}
+		assertEquals(nodes.size(),
+				index.getNearestNodes(new Coord(0, 0), 10000).size());
+	}
+
+	public void testNodesWithin() {
+		for (int i = 0; i < 100; i++) {
+			Coord c = randomCoord();
+			double radius = rng.nextDouble() * 100;
+			List<MapNode> expected = new ArrayList<MapNode>();
+			for (MapNode n : nodes) {
+				if (n.getLocation().distance(c) <= radius) {
+					expected.add(n);
+				}
+			}
+			assertEquals(expected, index.getNodesWithin(c, radius));
+		}
+	}
+
+	public void testNearestEdge() {
+		for (int i = 0; i < 300; i++) {
+			Coord c = randomCoord();
+			MapNode[] edge = index.getNearestEdge(c);
+			assertNotNull(edge);
+			assertTrue(edge[0].getNeighbors().contains(edge[1]));
+			assertEquals(bruteForceEdgeDistance(c),
+					index.snapToEdge(c).distance(c), 0.000001);
+		}
+
+		Coord snapped = index.snapToEdge(new Coord(25, 10));
+		assertEquals(25.0, snapped.getX(), 0.000001);
+		assertEquals(0.0, snapped.getY(), 0.000001);
+	}
+
+	public void testSimMapIndexIsRebuilt() {
+		List<MapNode> ns = new ArrayList<MapNode>();
+		MapNode a = new MapNode(new Coord(0, 0));
+		MapNode b = new MapNode(new Coord(10, 0));
+		link(a, b);
+		ns.add(a);
+		ns.add(b);
+		SimMap map = new SimMap(ns);
+		assertSame(b, map.getNearestNode(new Coord(8, 0)));
+		map.translate(5, 0);
+		assertSame(a, map.getNearestNode(new Coord(8, 0)));
+	}
+
+	public void testSimMapGraphIsRebuilt() {
+		List<MapNode> ns = new ArrayList<MapNode>();
+		MapNode a = new MapNode(new Coord(0, 0));
+		MapNode b = new MapNode(new Coord(10, 20));
+		link(a, b);
+		ns.add(a);
+		ns.add(b);
+		SimMap map = new SimMap(ns);
+		MapGraph graph = MapGraph.of(a);
+		assertSame(graph, MapGraph.of(b));
+
+		map.translate(5, 0);
+		graph = MapGraph.of(b);
+		assertEquals(15.0, graph.getX(graph.indexOf(b)));
+		assertEquals(5.0, graph.getX(graph.indexOf(a)));
+
+		map.mirror();
+		graph = MapGraph.of(a);
+		assertEquals(-20.0, graph.getY(graph.indexOf(b)));
+	}
+
+	private MapNode bruteForceNearest(Coord c) {
+		return bruteForceNearest(c, nodes);
+	}
+
+	private MapNode bruteForceNearest(Coord c, List<MapNode> list) {
+		MapNode nearest = null;
+		double min = Double.MAX_VALUE;
+		for (MapNode n : list) {
+			double d = n.getLocation().distance(c);
+			if (d < min) {
+				min = d;
+				nearest = n;
+			}
+		}
+		return nearest;
+	}
+
+	private double bruteForceEdgeDistance(Coord c) {
+		double min = Double.MAX_VALUE;
+		for (MapNode a : nodes) {
+			for (MapNode b : a.getNeighbors()) {
+				Coord p = a.getLocation();
+				Coord q = b.getLocation();
+				double dx = q.getX() - p.getX();
+				double dy = q.getY() - p.getY();
+				double t = ((c.getX() - p.getX()) * dx +
+						(c.getY() - p.getY()) * dy) / (dx * dx + dy * dy);
+				t = Math.max(0, Math.min(1, t));
+				min = Math.min(min, new Coord(p.getX() + t * dx,
+						p.getY() + t * dy).distance(c));
+			}
+		}
+		return min;
+	}
+}
@@ -82,4 +82,31 @@ public class MapNodeTest extends TestCase {
 		c4Clone2.setLocation(c4Clone2.getX(), -c4Clone2.getY());
 	}
 
+	public void testNeighborArrays() {
+		MapNode a = new MapNode(new Coord(0, 0));
+		MapNode b = new MapNode(new Coord(3, 4));
+		MapNode c = new MapNode(new Coord(0, 1));
+		a.addNeighbor(b);
+		a.addNeighbor(c);
+		a.addNeighbor(b);
+		a.addNeighbor(a);
+
+		assertEquals(2, a.getNrofNeighbors());
+		assertSame(b, a.getNeighbor(0));
+		assertSame(c, a.getNeighbors().get(1));
+		assertEquals(5.0, a.getNeighborDistance(0));
+		assertEquals(1.0, a.getNeighborDistance(1));
+
+		MapNode d = new MapNode(new Coord(0, 2));
+		a.addNeighbor(d); // distances are recomputed after an addition
+		assertEquals(2.0, a.getNeighborDistance(2));
+
+		try {
+			a.getNeighbors().add(d);
+			fail("Neighbor list should be read-only");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+import core.Coord;
+import core.LineString;
+import core.MovableObject;
+import core.collision.ConflictType;
+import core.collision.NarrowPhase;
+import core.collision.PathOverlapNarrowPhase;
+import core.collision.PredictiveNarrowPhase;
+import core.collision.SegmentNarrowPhase;
+
+/**
+ * Tests for the narrow phases of the collision check
+ */
+public class NarrowPhaseTest extends TestCase {
+	private NarrowPhase segment;
+	private NarrowPhase pathOverlap;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		TestSettings ts = new TestSettings();
+		this.segment = new SegmentNarrowPhase(ts);
+		this.pathOverlap = new PathOverlapNarrowPhase(ts);
+	}
+
+	private MovableObject move(double x0, double y0, double x1, double y1,
+			double speed, Coord... path) {
+		return new MovableObject(null, new Coord(x0, y0), new Coord(x1, y1),
+				speed, 1.0, Arrays.asList(path));
+	}
+
+	public void testSegmentOverrun() {
+		Coord[] road = {new Coord(0,10), new Coord(100,10)};
+		MovableObject fast = move(10,10, 20,10, 10, road);
+		MovableObject slow = move(15,10, 16,10, 1, road);
+
+		assertEquals(ConflictType.overrun, segment.check(fast, slow));
+		/* the slow one isn't closing in on the fast one */
+		assertEquals(ConflictType.none, segment.check(slow, fast));
+	}
+
+	public void testSegmentRunInto() {
+		MovableObject ew = move(0,10, 10,10, 10,
+				new Coord(0,10), new Coord(100,10));
+		MovableObject ns = move(10,0, 10,10, 10,
+				new Coord(10,0), new Coord(10,100));
+
+		assertEquals(ConflictType.runInto, segment.check(ew, ns));
+	}
+
+	public void testSegmentFarApart() {
+		MovableObject a = move(0,0, 10,0, 10,
+				new Coord(0,0), new Coord(100,0));
+		MovableObject b = move(0,30, 10,30, 10,
+				new Coord(0,30), new Coord(100,30));
+		MovableObject still = move(5,5, 5,5, 0,
+				new Coord(0,5), new Coord(100,5));
+
+		assertEquals(ConflictType.none, segment.check(a, b));
+		assertEquals(ConflictType.none, segment.check(still, a));
+	}
+
+	public void testPathOverlapOverrun() {
+		Coord[] road = {new Coord(0,10), new Coord(100,10)};
+		MovableObject fast = move(10,10, 20,10, 10, road);
+		MovableObject slow = move(15,10, 16,10, 1, road);
+
+		assertEquals(ConflictType.overrun, pathOverlap.check(fast, slow));
+		/* the slower host can never catch up with the faster one */
+		assertFalse(slow.overlapImminent(fast));
+	}
+
+	public void testPredictiveOnReceivedMoves() {
+		NarrowPhase predictive = new PredictiveNarrowPhase(new TestSettings());
+		MovableObject east = move(0,10, 10,10, 10,
+				new Coord(0,10), new Coord(100,10));
+		/* a move decoded from a location update: no host state, only the
+		   roads of the move */
+		MovableObject west = new MovableObject(null, new Coord(40,10),
+				new Coord(30,10), 10, 1.0, null);
+		west.addToMovePath(new LineString(new Coord(50,10),
+				new Coord(0,10)));
+		MovableObject north = new MovableObject(null, new Coord(40,100),
+				new Coord(40,110), 10, 1.0, null);
+		north.addToMovePath(new LineString(new Coord(40,50),
+				new Coord(40,200)));
+
+		assertEquals(ConflictType.runInto, predictive.check(east, west));
+		assertEquals(ConflictType.none, predictive.check(east, north));
+	}
+}
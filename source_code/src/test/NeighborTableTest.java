@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import core.Coord;
+import core.MovableObject;
+import core.NeighborTable;
+
+/**
+ * Tests for the NeighborTable class
+ */
+public class NeighborTableTest extends TestCase {
+
+	private MovableObject update() {
+		return new MovableObject(null, new Coord(0,0), new Coord(1,0), 1, 1,
+				null);
+	}
+
+	public void testKeepsFreshest() {
+		NeighborTable t = new NeighborTable(4, 10);
+		MovableObject first = update();
+		MovableObject second = update();
+		t.put(7, first, 1);
+		t.put(7, second, 2);
+		assertSame(second, t.get(7, 2));
+		t.put(7, first, 1.5); // older than the stored one
+		assertSame(second, t.get(7, 2));
+		assertEquals(2.0, t.getUpdateTime(7));
+		assertEquals(1, t.size());
+		assertNull(t.get(8, 2));
+		assertTrue(t.getUpdateTime(8) < 0);
+	}
+
+	public void testExpiry() {
+		NeighborTable t = new NeighborTable(4, 10);
+		t.put(1, update(), 0);
+		t.put(2, update(), 5);
+		assertNotNull(t.get(1, 10));
+		assertNull(t.get(1, 10.5));
+		assertNotNull(t.get(2, 10.5));
+
+		t.expire(10.5);
+		assertEquals(1, t.size());
+		assertTrue(t.getUpdateTime(1) < 0);
+		assertNotNull(t.get(2, 10.5));
+	}
+
+	public void testCapacity() {
+		NeighborTable t = new NeighborTable(3, 100);
+		t.put(1, update(), 3);
+		t.put(2, update(), 1);
+		t.put(3, update(), 2);
+		t.put(4, update(), 4);
+		assertEquals(3, t.size());
+		assertTrue(t.getUpdateTime(2) < 0); // oldest removed
+		assertEquals(3.0, t.getUpdateTime(1));
+		assertEquals(2.0, t.getUpdateTime(3));
+		assertEquals(4.0, t.getUpdateTime(4));
+	}
+
+	public void testManyNeighbors() {
+		NeighborTable t = new NeighborTable(50, 20);
+		Random rnd = new Random(3);
+		double[] latest = new double[200];
+		for (double time = 0; time < 100; time += 0.5) {
+			int address = rnd.nextInt(200);
+			t.put(address, update(), time);
+			latest[address] = time;
+			assertTrue(t.size() <= 50);
+		}
+		t.expire(100);
+		for (int address = 0; address < latest.length; address++) {
+			if (t.getUpdateTime(address) >= 0) {
+				assertEquals(latest[address], t.getUpdateTime(address));
+				assertTrue(100 - latest[address] <= 20);
+			}
+		}
+		/* the recent updates are all there */
+		for (int address = 0; address < latest.length; address++) {
+			if (latest[address] > 80) {
+				assertEquals(latest[address], t.getUpdateTime(address));
+			}
+		}
+	}
+}
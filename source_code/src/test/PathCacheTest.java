@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+import movement.map.DijkstraPathFinder;
+import movement.map.MapNode;
+import movement.map.PathCache;
+import core.Coord;
+
+/**
+ * Tests for the PathCache class
+ */
+public class PathCacheTest extends TestCase {
+	private MapNode a, b, c;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		a = new MapNode(new Coord(0,0));
+		b = new MapNode(new Coord(10,0));
+		c = new MapNode(new Coord(20,0));
+		a.addNeighbor(b);
+		b.addNeighbor(a);
+		b.addNeighbor(c);
+		c.addNeighbor(b);
+	}
+
+	public void testHitsAndMisses() {
+		PathCache cache = new PathCache(10);
+		assertNull(cache.get(a, c, -1));
+		cache.put(a, c, -1, new MapNode[] {a, b, c});
+		assertEquals(3, cache.get(a, c, -1).length);
+		assertNull(cache.get(c, a, -1)); // other direction
+		assertNull(cache.get(a, c, 2)); // other type filter
+		assertEquals(1, cache.getHits());
+		assertEquals(3, cache.getMisses());
+		assertEquals(0.25, cache.getHitRate(), 1e-9);
+	}
+
+	public void testLeastRecentlyUsedIsEvicted() {
+		PathCache cache = new PathCache(2);
+		cache.put(a, b, -1, new MapNode[] {a, b});
+		cache.put(b, c, -1, new MapNode[] {b, c});
+		cache.get(a, b, -1); // a-b is now the most recently used
+		cache.put(a, c, -1, new MapNode[] {a, b, c});
+		assertEquals(2, cache.size());
+		assertNotNull(cache.get(a, b, -1));
+		assertNull(cache.get(b, c, -1));
+		assertNotNull(cache.get(a, c, -1));
+	}
+
+	public void testPathFinderUsesCache() {
+		PathCache cache = new PathCache(10);
+		DijkstraPathFinder finder = new DijkstraPathFinder(null, cache);
+		List<MapNode> first = finder.getShortestPath(a, c);
+		assertEquals(3, first.size());
+		assertEquals(0, cache.getHits());
+
+		first.clear(); // modifying a returned path doesn't affect the cache
+		List<MapNode> second = finder.getShortestPath(a, c);
+		assertEquals(1, cache.getHits());
+		assertEquals(3, second.size());
+		assertSame(a, second.get(0));
+		assertSame(c, second.get(2));
+
+		/* unreachable destinations are cached too */
+		MapNode lone = new MapNode(new Coord(100,100));
+		assertEquals(0, finder.getShortestPath(a, lone).size());
+		assertEquals(0, finder.getShortestPath(a, lone).size());
+		assertEquals(2, cache.getHits());
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import movement.MovementModel;
+import movement.Path;
+import core.Coord;
+import core.DTNHost;
+import core.SimClock;
+import core.collision.PedestrianYield;
+
+/**
+ * Tests for the PedestrianYield class
+ */
+public class PedestrianYieldTest extends TestCase {
+	private TestUtils utils;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		this.utils = new TestUtils(null, null, new TestSettings());
+		SimClock.reset();
+	}
+
+	public void testYieldByDistance() {
+		DTNHost car = utils.createHost(new Coord(100,100));
+		DTNHost near = utils.createHost(new Coord(120,100));
+		DTNHost far = utils.createHost(new Coord(300,100));
+		List<DTNHost> peds = new ArrayList<DTNHost>();
+		peds.add(far);
+
+		PedestrianYield yield = new PedestrianYield(new TestSettings(null),
+				peds);
+		assertFalse(yield.mustYield(car));
+
+		/* the pedestrian walks next to the car */
+		far.setLocation(new Coord(130,100));
+		yield.update();
+		assertTrue(yield.mustYield(car));
+
+		peds.add(near);
+		yield = new PedestrianYield(new TestSettings(null), peds);
+		assertTrue(yield.isPedestrian(near));
+		assertFalse(yield.isPedestrian(car));
+		/* pedestrians don't stop for each other */
+		assertFalse(yield.mustYield(near));
+	}
+
+	public void testYieldByAngle() {
+		/* the car drives east from (100,100) */
+		DTNHost car = utils.createHost(new EastMovement(), null);
+		car.move(0.1);
+		assertEquals(new Coord(200,100), car.getDestination());
+
+		DTNHost ped = utils.createHost(new Coord(80,100));
+		List<DTNHost> peds = new ArrayList<DTNHost>();
+		peds.add(ped);
+		TestSettings ts = new TestSettings(null);
+		ts.putSetting(PedestrianYield.YIELD_ANGLE_S, "45");
+		PedestrianYield yield = new PedestrianYield(ts, peds);
+
+		/* behind the car */
+		assertFalse(yield.mustYield(car));
+
+		/* beside the car */
+		ped.setLocation(new Coord(100,130));
+		yield.update();
+		assertFalse(yield.mustYield(car));
+
+		/* ahead of the car, outside the angle */
+		ped.setLocation(new Coord(110,130));
+		yield.update();
+		assertFalse(yield.mustYield(car));
+
+		/* ahead of the car, inside the angle */
+		ped.setLocation(new Coord(130,110));
+		yield.update();
+		assertTrue(yield.mustYield(car));
+	}
+
+	/**
+	 * Movement from (100,100) east to (200,100)
+	 */
+	private static class EastMovement extends MovementModel {
+		@Override
+		public Coord getInitialLocation() {
+			return new Coord(100,100);
+		}
+
+		@Override
+		public boolean isActive() {
+			return true;
+		}
+
+		@Override
+		public Path getPath() {
+			Path p = new Path(1);
+			p.addWaypoint(new Coord(100,100));
+			p.addWaypoint(new Coord(200,100));
+			return p;
+		}
+
+		@Override
+		public double nextPathAvailable() {
+			return 0;
+		}
+
+		@Override
+		public EastMovement replicate() {
+			return new EastMovement();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.EventQueue;
+
+import java.util.ArrayList;
+
+import junit.framework.TestCase;
+import routing.util.TrafficSignalController;
+import routing.util.TrafficSignalController.Approach;
+import core.DTNHost;
+import core.SimClock;
+import core.UpdateListener;
+import core.World;
+
+/**
+ * Tests for the TrafficSignalController class
+ */
+public class TrafficSignalControllerTest extends TestCase {
+	private World world;
+	private TrafficSignalController signals;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		TestSettings ts = new TestSettings();
+		ts.putSetting(TrafficSignalController.GREEN_TIME_S, "10");
+		ts.putSetting(TrafficSignalController.YELLOW_TIME_S, "2");
+		this.signals = new TrafficSignalController(ts);
+		this.world = new World(new ArrayList<DTNHost>(), 100, 100, 1.0,
+				new ArrayList<UpdateListener>(), false,
+				new ArrayList<EventQueue>());
+	}
+
+	public void testPhases() {
+		assertTrue(signals.update(world));
+		assertEquals(TrafficSignalController.GREEN,
+				signals.getColor(Approach.northSouth));
+		assertEquals(TrafficSignalController.RED,
+				signals.getColor(Approach.eastWest));
+		assertEquals(10.0, signals.getNextChangeTime());
+
+		SimClock.getInstance().setTime(9.9);
+		assertFalse(signals.update(world));
+
+		SimClock.getInstance().setTime(10);
+		assertTrue(signals.update(world));
+		assertEquals(TrafficSignalController.YELLOW,
+				signals.getColor(Approach.northSouth));
+
+		/* several phases passed since the last update */
+		SimClock.getInstance().setTime(22.5);
+		assertTrue(signals.update(world));
+		assertEquals(TrafficSignalController.RED,
+				signals.getColor(Approach.northSouth));
+		assertEquals(TrafficSignalController.YELLOW,
+				signals.getColor(Approach.eastWest));
+		assertEquals(24.0, signals.getNextChangeTime());
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import movement.MovementModel;
+import movement.Path;
+import core.Coord;
+import core.DTNHost;
+import core.GridHostIndex;
+import core.MovableObject;
+import core.SimClock;
+import core.collision.PredictedConflict;
+import core.collision.Trajectory;
+import core.collision.TrajectoryPredictor;
+
+/**
+ * Tests for the trajectory based conflict prediction
+ */
+public class TrajectoryPredictorTest extends TestCase {
+	private static final double DELTA = 1e-9;
+	private TrajectoryPredictor predictor;
+	private TestUtils utils;
+
+	protected void setUp() throws Exception {
+		super.setUp();
+		SimClock.reset();
+		this.utils = new TestUtils(null, null, new TestSettings());
+		this.predictor = new TrajectoryPredictor(10, 2);
+	}
+
+	private Trajectory trajectory(double x, double y) {
+		Trajectory t = new Trajectory();
+		t.reset(x, y);
+		return t;
+	}
+
+	public void testTrajectoryKnots() {
+		Trajectory t = trajectory(0, 0);
+		t.moveTo(10, 0, 5);
+		t.pause(1);
+		t.moveTo(10, 20, 10);
+		assertEquals(4, t.size());
+		assertEquals(5.0, t.getEndTime(), DELTA);
+		assertEquals(10.0, t.getMaxSpeed(), DELTA);
+		assertFalse(t.moveTo(0, 0, 0));
+
+		Coord c = new Coord(0, 0);
+		t.getLocation(1, c);
+		assertEquals(new Coord(5, 0), c);
+		t.getLocation(2.5, c);
+		assertEquals(new Coord(10, 0), c);
+		t.getLocation(4, c);
+		assertEquals(new Coord(10, 10), c);
+		t.getLocation(100, c);
+		assertEquals(new Coord(10, 20), c);
+	}
+
+	public void testTrajectoryFromMove() {
+		MovableObject mo = new MovableObject(null, new Coord(5, 0),
+				new Coord(15, 0), 10, 1.0, Arrays.asList(new Coord(0, 0),
+						new Coord(10, 0), new Coord(20, 0),
+						new Coord(20, 100)));
+		Trajectory t = new Trajectory();
+		t.set(mo, 10);
+		/* from the ending location along the rest of the path */
+		assertEquals(3, t.size());
+		assertEquals(new Coord(15, 0), new Coord(t.getX(0), t.getY(0)));
+		assertEquals(new Coord(20, 0), new Coord(t.getX(1), t.getY(1)));
+		assertEquals(10.5, t.getEndTime(), DELTA);
+
+		/* legs after the horizon are left out */
+		t.set(mo, 0.1);
+		assertEquals(2, t.size());
+	}
+
+	public void testHeadOn() {
+		Trajectory a = trajectory(0, 0);
+		a.moveTo(100, 0, 10);
+		Trajectory b = trajectory(50, 0);
+		b.moveTo(0, 0, 10);
+
+		/* closing at 20 m/s from 50 m; 2 m safety distance */
+		assertEquals(2.4, predictor.timeToConflict(a, b), DELTA);
+		assertEquals(2.5, predictor.timeOfClosestApproach(a, b), DELTA);
+		assertEquals(0.0, predictor.distanceAt(a, b, 2.5), DELTA);
+	}
+
+	public void testCrossingOnLaterLeg() {
+		/* a turns north at (20,0) and meets b waiting at (20,30) */
+		Trajectory a = trajectory(0, 0);
+		a.moveTo(20, 0, 10);
+		a.moveTo(20, 100, 10);
+		Trajectory b = trajectory(20, 30);
+
+		assertEquals(4.8, predictor.timeToConflict(a, b), DELTA);
+		assertEquals(5.0, predictor.timeOfClosestApproach(a, b), DELTA);
+	}
+
+	public void testNoConflict() {
+		Trajectory a = trajectory(0, 0);
+		a.moveTo(100, 0, 10);
+		Trajectory b = trajectory(0, 10);
+		b.moveTo(100, 10, 10);
+		assertEquals(Double.POSITIVE_INFINITY,
+				predictor.timeToConflict(a, b));
+		assertEquals(0.0, predictor.timeOfClosestApproach(a, b), DELTA);
+
+		/* beyond the horizon */
+		Trajectory c = trajectory(1000, 0);
+		assertFalse(predictor.mayConflict(a, c));
+		assertEquals(Double.POSITIVE_INFINITY,
+				predictor.timeToConflict(a, c));
+	}
+
+	public void testPredictAllMatchesPairwise() {
+		Random rng = new Random(42);
+		List<DTNHost> hosts = new ArrayList<DTNHost>();
+		for (int i = 0; i < 60; i++) {
+			/* crowd the hosts to a 200x200 area so that many pairs conflict */
+			LineMovement lm = new LineMovement(
+					new Coord(rng.nextDouble() * 200, rng.nextDouble() * 200),
+					new Coord(rng.nextDouble() * 200, rng.nextDouble() * 200),
+					1 + rng.nextDouble() * 14);
+			DTNHost host = utils.createHost(lm, null);
+			if (i % 5 != 0) { /* every fifth host stands still */
+				host.move(0.1);
+			}
+			hosts.add(host);
+		}
+		GridHostIndex index = new GridHostIndex(50);
+		index.rebuild(hosts);
+
+		/* every pair checked one by one with the same criteria */
+		Trajectory[] ts = new Trajectory[hosts.size()];
+		for (int i = 0; i < ts.length; i++) {
+			ts[i] = new Trajectory();
+			ts[i].set(hosts.get(i), predictor.getHorizon());
+		}
+		List<String> expected = new ArrayList<String>();
+		for (int i = 0; i < ts.length; i++) {
+			for (int j = i + 1; j < ts.length; j++) {
+				double t = predictor.timeToConflict(ts[i], ts[j]);
+				double closest = predictor.timeOfClosestApproach(ts[i], ts[j]);
+				if (t != Double.POSITIVE_INFINITY &&
+						closest < predictor.getHorizon()) {
+					expected.add(hosts.get(i) + "-" + hosts.get(j) + "@" + t);
+				}
+			}
+		}
+
+		predictor.snapshot(hosts);
+		/* moving after the snapshot doesn't change the prediction */
+		for (DTNHost host : hosts) {
+			host.move(1);
+		}
+		List<PredictedConflict> conflicts = predictor.predictAll(index);
+
+		assertTrue(expected.size() > 5);
+		assertEquals(expected.size(), conflicts.size());
+		for (int i = 0; i < conflicts.size(); i++) {
+			PredictedConflict c = conflicts.get(i);
+			assertTrue(c.getHost().getAddress() < c.getOther().getAddress());
+			assertTrue(expected.contains(c.getHost() + "-" + c.getOther() +
+					"@" + c.getTime()));
+			assertTrue(c.getClosestTime() < predictor.getHorizon());
+			assertTrue(c.getClosestDistance() < 2);
+			if (i > 0) {
+				assertTrue(conflicts.get(i - 1).getTime() <= c.getTime());
+			}
+		}
+	}
+
+	/**
+	 * Movement along a line from a start to an end location
+	 */
+	private static class LineMovement extends MovementModel {
+		private Coord start;
+		private Coord end;
+		private double speed;
+
+		public LineMovement(Coord start, Coord end, double speed) {
+			this.start = start;
+			this.end = end;
+			this.speed = speed;
+		}
+
+		@Override
+		public Coord getInitialLocation() {
+			return start.clone();
+		}
+
+		@Override
+		public boolean isActive() {
+			return true;
+		}
+
+		@Override
+		public Path getPath() {
+			Path p = new Path(speed);
+			p.addWaypoint(start.clone());
+			p.addWaypoint(end.clone());
+			return p;
+		}
+
+		@Override
+		public double nextPathAvailable() {
+			return 0;
+		}
+
+		@Override
+		public LineMovement replicate() {
+			return new LineMovement(start, end, speed);
+		}
+	}
+}
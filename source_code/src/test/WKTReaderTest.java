@@ -12,7 +12,9 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import junit.framework.TestCase;
@@ -237,6 +239,39 @@ public class WKTReaderTest extends TestCase {
 		assertFalse(map.getNodeByCoord(n11c).isType(2));
 	}
 
+	public void testParallelMapFiles() throws Exception {
+		String[] topologies = {TST_TOPOLOGY, ADD_TOPOLOGY, ADD_TOPOLOGY2,
+				"MULTILINESTRING ((5.0 3.0, 5.0 5.0), (5.0 5.0, 3.0 5.0))"};
+		List<File> files = new ArrayList<File>();
+		WKTMapReader sequential = new WKTMapReader(true);
+		for (int i = 0; i < topologies.length; i++) {
+			File f = File.createTempFile("WKTReaderTest","tmp");
+			f.deleteOnExit();
+			PrintWriter pw = new PrintWriter(f);
+			pw.println(topologies[i]);
+			pw.close();
+			files.add(f);
+			sequential.addPaths(new StringReader(topologies[i]), i + 1);
+		}
+
+		WKTMapReader parallel = new WKTMapReader(true);
+		parallel.addPaths(files, 1);
+
+		List<MapNode> expected = sequential.getMap().getNodes();
+		List<MapNode> nodes = parallel.getMap().getNodes();
+		assertEquals(expected.size(), nodes.size());
+		for (int i = 0; i < nodes.size(); i++) {
+			MapNode e = expected.get(i);
+			MapNode n = nodes.get(i);
+			assertEquals(e.getLocation(), n.getLocation());
+			assertEquals(e.getNeighbors().size(), n.getNeighbors().size());
+			for (int t = 1; t <= topologies.length; t++) {
+				assertEquals(e.isType(t), n.isType(t));
+			}
+		}
+		assertTrue(parallel.getMap().getNodeByCoord(n11c).isType(4));
+	}
+
 	private void basicNodesTests(WKTMapReader reader) {
 		Collection<MapNode> col = reader.getNodes();
 
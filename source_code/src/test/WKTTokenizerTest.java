@@ -0,0 +1,54 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package test;
+
+import input.WKTTokenizer;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the WKT line tokenizer
+ */
+public class WKTTokenizerTest extends TestCase {
+
+	public void testLines() throws IOException {
+		WKTTokenizer t = WKTTokenizer.parse(new StringReader(
+				"LINESTRING (1 2, 3.5 -4)\n" +
+				"POINT (7 8)\r\n" +
+				"MULTILINESTRING ((0 0,1 1),\n (2 2 9, 3 3))" +
+				"LINESTRING(5 6)"));
+		assertEquals(4, t.getNrofLines());
+		assertEquals(0, t.getLineStart(0));
+		assertEquals(2, t.getLineStart(1));
+		assertEquals(4, t.getLineStart(2));
+		assertEquals(6, t.getLineStart(3));
+		assertEquals(7, t.getLineStart(4));
+
+		assertEquals(3.5, t.getX(1));
+		assertEquals(-4.0, t.getY(1));
+		assertEquals(2.0, t.getX(4));
+		assertEquals(2.0, t.getY(4)); // third dimension is skipped
+		assertEquals(3.0, t.getX(5));
+		assertEquals(6.0, t.getY(6));
+	}
+
+	public void testInvalidData() {
+		try {
+			WKTTokenizer.parse(new StringReader("LINESTRING (1 x, 2 3)"));
+			fail("Invalid coordinate should throw IOException");
+		} catch (IOException e) {
+			// expected
+		}
+		try {
+			WKTTokenizer.parse(new StringReader("LINESTRING (1 2, 2 3"));
+			fail("Unterminated line should throw IOException");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+}
@@ -5,15 +5,27 @@
 package test;
 
 import input.EventQueue;
+import input.EventQueueHandler;
+import input.MessageEventGenerator;
+import interfaces.ConnectivityGrid;
 
+import java.io.File;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.List;
 
 import junit.framework.TestCase;
+import movement.MapBasedMovement;
+import movement.MovementModel;
+import routing.MessageRouter;
+import core.Coord;
 import core.DTNHost;
+import core.Message;
+import core.MessageListener;
 import core.ModuleCommunicationBus;
 import core.NetworkInterface;
 import core.SimClock;
+import core.SimScenario;
 import core.UpdateListener;
 import core.World;
 
@@ -102,6 +114,201 @@ public class WorldTest extends TestCase {
 	}
 
 
+	public void testParallelMovementMatchesSerial() throws Exception {
+		File mapFile = File.createTempFile("grid", ".wkt");
+		mapFile.deleteOnExit();
+		PrintWriter out = new PrintWriter(mapFile);
+		for (int i=0; i<=300; i+=100) {
+			out.println("LINESTRING (0 " + i + ", 100 " + i + ", 200 " + i +
+					", 300 " + i + ")");
+			out.println("LINESTRING (" + i + " 0, " + i + " 100, " + i +
+					" 200, " + i + " 300)");
+		}
+		out.close();
+
+		List<Coord> serial = runGrid(mapFile, false);
+		List<Coord> parallel = runGrid(mapFile, true);
+		new TestSettings();
+		MovementModel.reset(); /* back to the shared rng */
+		assertEquals(serial, parallel);
+	}
+
+	public void testSkipIdleIntervalsMatchesUnskipped() throws Exception {
+		File mapFile = File.createTempFile("line", ".wkt");
+		mapFile.deleteOnExit();
+		PrintWriter out = new PrintWriter(mapFile);
+		out.println("LINESTRING (0 0, 100 0, 200 0, 300 0)");
+		out.close();
+
+		List<String> skipped = new ArrayList<String>();
+		int nrofSkippedUpdates = runIdle(mapFile, true, skipped);
+		List<String> unskipped = new ArrayList<String>();
+		int nrofUpdates = runIdle(mapFile, false, unskipped);
+		new TestSettings();
+		MovementModel.reset();
+
+		assertTrue(nrofSkippedUpdates < nrofUpdates); /* something skipped */
+		assertTrue(unskipped.size() > 10);
+		assertEquals(unskipped, skipped);
+	}
+
+	/**
+	 * Runs a few mostly waiting hosts that get messages with a short TTL
+	 * and returns the number of update listener calls. The message events
+	 * and their times, and the final host locations are added to the log.
+	 */
+	private int runIdle(File mapFile, boolean skip, final List<String> log) {
+		SimClock.reset();
+		SimScenario.reset();
+		DTNHost.reset();
+		NetworkInterface.reset();
+
+		TestSettings ts = new TestSettings();
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				World.SKIP_IDLE_INTERVALS_S, String.valueOf(skip));
+		ts.putSetting(SimScenario.SCENARIO_NS + "." +
+				SimScenario.END_TIME_S, "3000");
+		ts.putSetting(SimScenario.SCENARIO_NS + "." +
+				SimScenario.UP_INT_S, "0.5");
+		ts.putSetting(MapBasedMovement.MAP_BASE_MOVEMENT_NS + "." +
+				MapBasedMovement.NROF_FILES_S, "1");
+		ts.putSetting(MapBasedMovement.MAP_BASE_MOVEMENT_NS + "." +
+				MapBasedMovement.FILE_S + "1", mapFile.getPath());
+		ts.putSetting("testInterface.type", "SimpleBroadcastInterface");
+		ts.putSetting("testInterface." + NetworkInterface.TRANSMIT_SPEED_S,
+				"100");
+		ts.putSetting("testInterface." + NetworkInterface.TRANSMIT_RANGE_S,
+				"20");
+		String g = SimScenario.GROUP_NS + ".";
+		ts.putSetting(g + SimScenario.GROUP_ID_S, "h");
+		ts.putSetting(g + SimScenario.NROF_HOSTS_S, "4");
+		ts.putSetting(g + SimScenario.NROF_INTERF_S, "1");
+		ts.putSetting(g + SimScenario.INTERFACENAME_S + "1", "testInterface");
+		ts.putSetting(g + SimScenario.MOVEMENT_MODEL_S, "MapBasedMovement");
+		ts.putSetting(g + SimScenario.ROUTER_S, "EpidemicRouter");
+		ts.putSetting(g + MessageRouter.MSG_TTL_S, "3");
+		ts.putSetting(g + MovementModel.SPEED, "5,10");
+		ts.putSetting(g + MovementModel.WAIT_TIME, "200,400");
+		String e = EventQueueHandler.SETTINGS_NAMESPACE;
+		ts.putSetting(e + "." + EventQueueHandler.NROF_SETTING, "1");
+		ts.putSetting(e + "1." + EventQueueHandler.CLASS_SETTING,
+				"MessageEventGenerator");
+		ts.putSetting(e + "1." + MessageEventGenerator.MESSAGE_INTERVAL_S,
+				"300,600");
+		ts.putSetting(e + "1." + MessageEventGenerator.MESSAGE_SIZE_S,
+				"100,200");
+		ts.putSetting(e + "1." + MessageEventGenerator.HOST_RANGE_S, "0,4");
+		ts.putSetting(e + "1." + MessageEventGenerator.MESSAGE_ID_PREFIX_S,
+				"M");
+		MovementModel.reset();
+		ConnectivityGrid.reset(); /* no interfaces left from other runs */
+
+		SimScenario scen = SimScenario.getInstance();
+		final int[] nrofUpdates = {0};
+		scen.addUpdateListener(new UpdateListener() {
+			public void updated(List<DTNHost> hosts) {
+				nrofUpdates[0]++;
+			}
+		});
+		scen.addMessageListener(new MessageListener() {
+			public void newMessage(Message m) {
+				log.add(SimClock.getTime() + " new " + m);
+			}
+			public void messageTransferStarted(Message m, DTNHost from,
+					DTNHost to) {
+				log.add(SimClock.getTime() + " start " + m + " " + from +
+						"->" + to);
+			}
+			public void messageDeleted(Message m, DTNHost where,
+					boolean dropped) {
+				log.add(SimClock.getTime() + " delete " + m + " " + where +
+						" " + dropped);
+			}
+			public void messageTransferAborted(Message m, DTNHost from,
+					DTNHost to) {
+				log.add(SimClock.getTime() + " abort " + m + " " + from +
+						"->" + to);
+			}
+			public void messageTransferred(Message m, DTNHost from,
+					DTNHost to, boolean firstDelivery) {
+				log.add(SimClock.getTime() + " relay " + m + " " + from +
+						"->" + to);
+			}
+		});
+
+		World w = scen.getWorld();
+		while (SimClock.getTime() < 3000) {
+			w.update();
+		}
+		for (DTNHost h : scen.getHosts()) {
+			log.add(h + " at " + h.getLocation());
+		}
+		SimScenario.reset();
+		return nrofUpdates[0];
+	}
+
+	/**
+	 * Runs cars and pedestrians on the grid map for 30 seconds and returns
+	 * the locations of the hosts in the end
+	 */
+	private List<Coord> runGrid(File mapFile, boolean parallel) {
+		SimClock.reset();
+		SimScenario.reset();
+		DTNHost.reset();
+		NetworkInterface.reset();
+
+		TestSettings ts = new TestSettings();
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				World.PARALLEL_MOVEMENT_S, String.valueOf(parallel));
+		ts.putSetting(World.OPTIMIZATION_SETTINGS_NS + "." +
+				World.NROF_THREADS_S, "4");
+		ts.putSetting(MovementModel.MOVEMENT_MODEL_NS + "." +
+				MovementModel.PER_HOST_RNG_S, "true");
+		ts.putSetting(MovementModel.MOVEMENT_MODEL_NS + "." +
+				MovementModel.RNG_SEED, "7");
+		ts.putSetting(MapBasedMovement.MAP_BASE_MOVEMENT_NS + "." +
+				MapBasedMovement.NROF_FILES_S, "1");
+		ts.putSetting(MapBasedMovement.MAP_BASE_MOVEMENT_NS + "." +
+				MapBasedMovement.FILE_S + "1", mapFile.getPath());
+		ts.putSetting(SimScenario.SCENARIO_NS + "." +
+				SimScenario.NROF_GROUPS_S, "2");
+		ts.putSetting("testInterface.type", "SimpleBroadcastInterface");
+		ts.putSetting("testInterface." + NetworkInterface.TRANSMIT_SPEED_S,
+				"1");
+		ts.putSetting("testInterface." + NetworkInterface.TRANSMIT_RANGE_S,
+				"1");
+		String g = SimScenario.GROUP_NS + ".";
+		ts.putSetting(g + SimScenario.NROF_HOSTS_S, "10");
+		ts.putSetting(g + SimScenario.NROF_INTERF_S, "1");
+		ts.putSetting(g + SimScenario.INTERFACENAME_S + "1", "testInterface");
+		ts.putSetting(g + SimScenario.MOVEMENT_MODEL_S, "MapBasedMovement");
+		ts.putSetting(g + SimScenario.ROUTER_S, "PassiveRouter");
+		ts.putSetting(g + MovementModel.WAIT_TIME, "0,5");
+		String g1 = SimScenario.GROUP_NS + "1.";
+		ts.putSetting(g1 + SimScenario.GROUP_ID_S, "p");
+		ts.putSetting(g1 + "groupType", "pedestrian");
+		ts.putSetting(g1 + MovementModel.SPEED, "0.5,1.5");
+		String g2 = SimScenario.GROUP_NS + "2.";
+		ts.putSetting(g2 + SimScenario.GROUP_ID_S, "c");
+		ts.putSetting(g2 + "groupType", "selfDrivingCar");
+		ts.putSetting(g2 + MovementModel.SPEED, "5,10");
+		MovementModel.reset();
+		ConnectivityGrid.reset(); /* no interfaces left from other runs */
+
+		SimScenario scen = SimScenario.getInstance();
+		World w = scen.getWorld();
+		for (int i=0; i<300; i++) {
+			w.update();
+		}
+
+		List<Coord> locations = new ArrayList<Coord>();
+		for (DTNHost h : scen.getHosts()) {
+			locations.add(h.getLocation().clone());
+		}
+		SimScenario.reset();
+		return locations;
+	}
+
 	/** Dummy scenario for providing test values for the World */
 	@SuppressWarnings("serial")
 	private class TestScenario extends core.SimScenario {
@@ -16,6 +16,7 @@ import core.SettingsError;
 import core.SimClock;
 import core.SimError;
 import core.SimScenario;
+import core.Trace;
 import core.UpdateListener;
 import core.World;
 
@@ -130,6 +131,7 @@ public abstract class DTNSimUI {
 		for (Report r : this.reports) {
 			r.done();
 		}
+		Trace.close();
 	}
 
 	/**
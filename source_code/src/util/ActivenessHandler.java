@@ -101,6 +101,14 @@ public class ActivenessHandler {
 		return timesList;
 	}
 
+	/**
+	 * Returns true if the node is active all the time
+	 * @return true if there are no active times nor active periods
+	 */
+	public boolean isAlwaysActive() {
+		return this.activeTimes == null && this.activePeriods == null;
+	}
+
 	/**
 	 * Returns true if node should be active at the moment
 	 * @return true if node should be active at the moment
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2010 Aalto University, ComNet
+ * Released under GPLv3. See LICENSE.txt for details.
+ */
+package util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes cache files so that concurrent runs never read a partially written
+ * file: the data is first written to a temporary file in the same directory
+ * and then renamed. If another run renamed its file in place first, that
+ * file is kept.
+ */
+public class SafeFileWriter {
+
+	/**
+	 * The data of a file
+	 */
+	public interface Content {
+		/**
+		 * Writes the data
+		 * @param out The stream to write to
+		 * @throws IOException if writing fails
+		 */
+		public void writeTo(OutputStream out) throws IOException;
+	}
+
+	/**
+	 * Writes a file. Creates the missing parent directories. The temporary
+	 * file is removed if anything fails.
+	 * @param file The file to write
+	 * @param content The data of the file
+	 * @throws IOException if the file can't be written
+	 */
+	public static void write(File file, Content content) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Can't create directory " + dir);
+		}
+		File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+		try {
+			OutputStream out = new BufferedOutputStream(
+					new FileOutputStream(tmp));
+			try {
+				content.writeTo(out);
+			} finally {
+				out.close();
+			}
+			if (!tmp.renameTo(file) && !file.isFile()) {
+				throw new IOException("Can't rename " + tmp + " to " + file);
+			}
+		} finally {
+			tmp.delete(); /* no-op if the file was renamed */
+		}
+	}
+}